@@ -0,0 +1,88 @@
+package evo.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import evo.Packet;
+import evo.PacketArena;
+
+/**
+ * Reads of a cached Packet kept on the heap against the same Packet kept off-heap by a PacketArena,
+ * and the cost of copying a decoded Packet off-heap then releasing it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArenaBenchmark {
+
+	private static final TypeReference<List<BenchObject>> LIST_TYPE = new TypeReference<List<BenchObject>>() {};
+
+	@Param({"small", "medium"})
+	public String size;
+
+	private PacketArena c_o_arena;
+	private byte[] c_a_doc;
+	private Packet c_o_heap;
+	private Packet c_o_offHeap;
+
+	@Setup
+	public void setup(){
+		c_o_arena = new PacketArena();
+		c_a_doc = Payloads.create(size).toByteArray();
+		c_o_heap = Packet.fromBytes(c_a_doc);
+		c_o_heap.get("normalList", LIST_TYPE);	// materialized once, as a heap cache holds it
+		c_o_offHeap = c_o_arena.copyOf(Packet.fromBytes(c_a_doc));
+	}
+
+	@TearDown
+	public void tearDown(){
+		c_o_offHeap.release();
+		c_o_arena.close();
+	}
+
+	@Benchmark
+	public int heapGetInt(){
+		return c_o_heap.getInt("int", 0);
+	}
+
+	@Benchmark
+	public int offHeapGetInt(){
+		return c_o_offHeap.getInt("int", 0);
+	}
+
+	@Benchmark
+	public List<BenchObject> heapGetList(){
+		return c_o_heap.get("normalList", LIST_TYPE);
+	}
+
+	@Benchmark
+	public List<BenchObject> offHeapGetList(){
+		return c_o_offHeap.get("normalList", LIST_TYPE);
+	}
+
+	@Benchmark
+	public int copyAndRelease(){
+		final Packet l_o_pack = c_o_arena.copyOf(Packet.fromBytes(c_a_doc));
+		final int r_i_len = l_o_pack.getCore().size();
+		l_o_pack.release();
+		return r_i_len;
+	}
+}
@@ -0,0 +1,87 @@
+package evo.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+import evo.PacketCodec;
+
+/**
+ * Batch decode and encode of a replay, by pools of different sizes. Compare the scores along threads for the scaling,
+ * threads = 0 is the plain loop on the calling thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+	private static final int BATCH = 2000;
+
+	@Param({"0", "1", "2", "4", "8"})
+	public int threads;
+
+	private ForkJoinPool c_o_pool;
+	private List<byte[]> cl_a_docs;
+	private List<Packet> cl_o_packs;
+
+	@Setup
+	public void setup(){
+		if (threads > 0)
+			c_o_pool = new ForkJoinPool(threads);
+		final byte[] l_a_doc = Payloads.create(Payloads.SMALL).toByteArray();
+		cl_a_docs = new ArrayList<byte[]>(BATCH);
+		cl_o_packs = new ArrayList<Packet>(BATCH);
+		for (int i = 0; i < BATCH; i++) {
+			cl_a_docs.add(l_a_doc);
+			final Packet l_o_pack = Payloads.create(Payloads.SMALL);
+			l_o_pack.put("seq", i);
+			cl_o_packs.add(l_o_pack);
+		}
+	}
+
+	@TearDown
+	public void tearDown(){
+		if (c_o_pool != null)
+			c_o_pool.shutdown();
+	}
+
+	@Benchmark
+	public List<Packet> decodeAll(){
+		if (c_o_pool == null) {
+			final List<Packet> rl_o_packs = new ArrayList<Packet>(BATCH);
+			for (byte[] l_a_doc : cl_a_docs)
+				rl_o_packs.add(Packet.fromBytes(l_a_doc));
+			return rl_o_packs;
+		}
+		return Packet.decodeAll(cl_a_docs, c_o_pool);
+	}
+
+	@Benchmark
+	public List<byte[]> encodeAll(){
+		if (c_o_pool == null) {
+			final List<byte[]> rl_a_docs = new ArrayList<byte[]>(BATCH);
+			for (Packet l_o_pack : cl_o_packs)
+				rl_a_docs.add(l_o_pack.toByteArray());
+			return rl_a_docs;
+		}
+		return Packet.encodeAll(cl_o_packs, PacketCodec.JSON, c_o_pool);
+	}
+}
@@ -0,0 +1,47 @@
+package evo.bench;
+
+import java.util.Date;
+
+/** Bean bound by getters and setters only, the case of {@link BindBenchmark} */
+public class BenchBean {
+	private int id;
+	private long timestamp;
+	private double price;
+	private boolean express;
+	private String name;
+	private String category;
+	private Date todayDate;
+	private BenchSubObject subObject;
+
+	public BenchBean(){
+	}
+	public BenchBean(boolean fl){
+		if (fl) {
+			this.id = 42;
+			this.timestamp = 1234567890123L;
+			this.price = 99.5;
+			this.express = true;
+			this.name = "bean";
+			this.category = "benchmark";
+			this.todayDate = new Date(1234567890123L);
+			this.subObject = new BenchSubObject(true);
+		}
+	}
+
+	public int getId()						{return id;}
+	public void setId(int id)				{this.id = id;}
+	public long getTimestamp()				{return timestamp;}
+	public void setTimestamp(long timestamp){this.timestamp = timestamp;}
+	public double getPrice()				{return price;}
+	public void setPrice(double price)		{this.price = price;}
+	public boolean isExpress()				{return express;}
+	public void setExpress(boolean express)	{this.express = express;}
+	public String getName()					{return name;}
+	public void setName(String name)		{this.name = name;}
+	public String getCategory()				{return category;}
+	public void setCategory(String category){this.category = category;}
+	public Date getTodayDate()				{return todayDate;}
+	public void setTodayDate(Date todayDate){this.todayDate = todayDate;}
+	public BenchSubObject getSubObject()	{return subObject;}
+	public void setSubObject(BenchSubObject subObject)	{this.subObject = subObject;}
+}
@@ -0,0 +1,21 @@
+package evo.bench;
+
+/** Same shape as PacketTestProgram.TestObject, public for the generated benchmark code */
+public class BenchObject {
+	static int COUNT = 0;
+
+	public int count = COUNT++;
+	public String[][] strings = new String[][]{{"a0","a1"},{"b0","b1"}};
+	private BenchSubObject subObject = null;
+
+	public BenchObject(){
+	}
+	public BenchObject(boolean fl){
+		if (fl)
+			this.subObject = new BenchSubObject(true);
+	}
+
+	public BenchSubObject getSubObject() {
+		return subObject;
+	}
+}
@@ -0,0 +1,23 @@
+package evo.bench;
+
+import java.util.Date;
+
+/** Same shape as PacketTestProgram.SubObject, public for the generated benchmark code */
+public class BenchSubObject {
+	public String string = "SubObject's string";
+	private Date date = null;
+
+	public BenchSubObject(){
+	}
+	public BenchSubObject(boolean fl){
+		if (fl)
+			this.date = new Date();
+	}
+	public Date getTodayDate(){
+		return this.date;
+	}
+	public BenchSubObject setTodayDate(Date date){
+		this.date = date;
+		return this;
+	}
+}
@@ -0,0 +1,28 @@
+package evo.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry of benchmarks.jar, same as JMH's main but the gc profiler is always enabled,
+ * so every result reports the allocation rate next to ops/s.
+ * <PRE>
+ * java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regexp]
+ * </PRE>
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		final CommandLineOptions l_o_cmd = new CommandLineOptions(args);
+		final ChainedOptionsBuilder l_o_opts = new OptionsBuilder().parent(l_o_cmd);
+		if (l_o_cmd.getIncludes().isEmpty())
+			l_o_opts.include("evo\\.bench\\..*");
+		l_o_opts.addProfiler(GCProfiler.class);
+		new Runner(l_o_opts.build()).run();
+	}
+}
@@ -0,0 +1,71 @@
+package evo.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+
+/**
+ * Getter and setter binding of a registered class against reflection.<br/>
+ * Plain Packets use the mapper of {@link Packet}, where the beans are registered,
+ * {@link ReflectivePacket} has a mapper of its own where they are not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindBenchmark {
+
+	/** Packet subclass, so a separate mapper without registered classes */
+	public static class ReflectivePacket extends Packet {
+	}
+
+	private byte[] c_a_json;
+	private Packet c_o_registered;
+	private Packet c_o_reflective;
+
+	@Setup
+	public void setup(){
+		Packet.register(BenchBean.class, BenchSubObject.class);
+		final BenchBean l_o_bean = new BenchBean(true);
+		c_o_registered = new Packet();
+		c_o_registered.put("bean", l_o_bean);
+		c_o_reflective = new ReflectivePacket();
+		c_o_reflective.put("bean", l_o_bean);
+		c_a_json = c_o_registered.toByteArray();
+	}
+
+	@Benchmark
+	public BenchBean registeredGet(){
+		return Packet.fromBytes(c_a_json).get("bean", BenchBean.class);
+	}
+
+	@Benchmark
+	public BenchBean reflectiveGet(){
+		final Packet l_o_pack = new ReflectivePacket();
+		l_o_pack.deserialize(c_a_json, 0, c_a_json.length);
+		return l_o_pack.get("bean", BenchBean.class);
+	}
+
+	@Benchmark
+	public byte[] registeredEncode(){
+		return c_o_registered.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] reflectiveEncode(){
+		return c_o_reflective.toByteArray();
+	}
+}
@@ -0,0 +1,61 @@
+package evo.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+import evo.PacketCache;
+import evo.PacketCodec;
+
+/**
+ * Decoding of a repeated error Packet, plain against through a PacketCache, compare gc.alloc.rate.norm too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+	private final PacketCache c_o_cache = new PacketCache();
+	private byte[] c_a_json;
+	private byte[] c_a_binary;
+
+	@Setup
+	public void setup(){
+		final Packet l_o_pack = new Packet();
+		l_o_pack.setError(true);
+		l_o_pack.setMessage("Service unavailable, retry later");
+		l_o_pack.put("code", 503);
+		l_o_pack.put("service", "inventory");
+		l_o_pack.put("retryAfter", 30);
+		c_a_json = l_o_pack.toByteArray();
+		c_a_binary = l_o_pack.toByteArray(PacketCodec.BINARY);
+	}
+
+	@Benchmark
+	public String plain(){
+		return Packet.fromBytes(c_a_json).getMessage();
+	}
+
+	@Benchmark
+	public String cached(){
+		return c_o_cache.fromBytes(c_a_json).getMessage();
+	}
+
+	@Benchmark
+	public String plainBinary(){
+		return Packet.fromBytes(c_a_binary).getMessage();
+	}
+}
@@ -0,0 +1,104 @@
+package evo.bench;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+import evo.PacketColumns;
+
+/**
+ * A batch of 1000 rows of the layout of PacketTestProgram, as JSON documents against a columnar batch:
+ * encoding, decoding every row, and summing a single column.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnsBenchmark {
+
+	private static final int ROWS = 1000;
+
+	private List<Packet> cl_o_rows;
+	private List<byte[]> cl_a_json;
+	private byte[] c_a_columns;
+
+	@Setup
+	public void setup(){
+		cl_o_rows = new ArrayList<Packet>(ROWS);
+		int l_i_json = 0;
+		for (int i = 0; i < ROWS; i++) {
+			final Packet l_o_pack = new Packet();
+			l_o_pack.put("boolean", i % 2 == 0);
+			l_o_pack.put("double", i * 0.5d);
+			l_o_pack.put("int", i);
+			l_o_pack.put("string", "Hello World " + i);
+			l_o_pack.put("calendar", Calendar.getInstance());
+			cl_o_rows.add(l_o_pack);
+		}
+		cl_a_json = this.encodeJson();
+		for (byte[] l_a_doc : cl_a_json)
+			l_i_json += l_a_doc.length;
+		c_a_columns = PacketColumns.encode(cl_o_rows);
+		System.out.println();
+		System.out.println(ROWS + " rows: " + l_i_json + " json bytes, " + c_a_columns.length + " columnar bytes");
+	}
+
+	@Benchmark
+	public List<byte[]> encodeJson(){
+		final List<byte[]> rl_a_docs = new ArrayList<byte[]>(ROWS);
+		for (Packet l_o_pack : cl_o_rows)
+			rl_a_docs.add(l_o_pack.toByteArray());
+		return rl_a_docs;
+	}
+
+	@Benchmark
+	public byte[] encodeColumns(){
+		return PacketColumns.encode(cl_o_rows);
+	}
+
+	@Benchmark
+	public List<Packet> decodeJson(){
+		final List<Packet> rl_o_packs = new ArrayList<Packet>(ROWS);
+		for (byte[] l_a_doc : cl_a_json)
+			rl_o_packs.add(Packet.fromBytes(l_a_doc));
+		return rl_o_packs;
+	}
+
+	@Benchmark
+	public List<Packet> decodeColumns(){
+		return PacketColumns.wrap(c_a_columns).toPackets();
+	}
+
+	@Benchmark
+	public double sumJson(){
+		double r_d_sum = 0;
+		for (byte[] l_a_doc : cl_a_json)
+			r_d_sum += Packet.fromBytes(l_a_doc).getDouble("double", 0);
+		return r_d_sum;
+	}
+
+	@Benchmark
+	public double sumColumn(){
+		final PacketColumns l_o_batch = PacketColumns.wrap(c_a_columns);
+		final PacketColumns.Column l_o_col = l_o_batch.getColumn("double");
+		double r_d_sum = 0;
+		for (int i = 0; i < l_o_batch.size(); i++)
+			r_d_sum += l_o_col.getDouble(i, 0);
+		return r_d_sum;
+	}
+}
@@ -0,0 +1,63 @@
+package evo.bench;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+
+/**
+ * One Packet with a concurrent core shared by all benchmark threads, the read-mostly case.<br/>
+ * Run with different thread counts (-t 1, -t 4, ...) to check the getters scale with cores.
+ * The Packet is decoded again every iteration, so each iteration includes the contended first materialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ConcurrentPacketBenchmark {
+
+	private byte[] c_a_json;
+	private Packet c_o_shared;
+
+	@Setup(Level.Trial)
+	public void encode(){
+		c_a_json = Payloads.create(Payloads.MEDIUM).toByteArray();
+	}
+
+	@Setup(Level.Iteration)
+	public void decode(){
+		c_o_shared = Packet.fromBytes(c_a_json, 0, c_a_json.length, new ConcurrentHashMap<String, Object>());
+	}
+
+	@Benchmark
+	public BenchObject sharedGet(){
+		return c_o_shared.get("singleObject", BenchObject.class);
+	}
+
+	@Benchmark
+	public List<BenchObject> sharedGetList(){
+		return c_o_shared.getList("normalList", BenchObject.class);
+	}
+
+	@Benchmark
+	public int sharedGetInt(){
+		return c_o_shared.getInt("int", 0);
+	}
+}
@@ -0,0 +1,72 @@
+package evo.bench;
+
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+
+/**
+ * Typed reads of time and identifier fields of a decoded telemetry Packet, through the converters of PacketConverters.
+ * calendarGetInstance is the former Calendar.getInstance() per read, for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertBenchmark {
+
+	private byte[] c_a_doc;
+	/** Decoded core, copied per operation so the Calendar is converted each time */
+	private Map<String, Object> cm_o_core;
+	private Packet c_o_pack;
+
+	@Setup
+	public void setup(){
+		final Packet l_o_pack = new Packet();
+		l_o_pack.put("time", System.currentTimeMillis());
+		l_o_pack.put("id", UUID.randomUUID().toString());
+		c_a_doc = l_o_pack.toByteArray();
+		cm_o_core = Packet.fromBytes(c_a_doc).getCore();
+		c_o_pack = Packet.fromBytes(c_a_doc);
+	}
+
+	@Benchmark
+	public Calendar calendar(){
+		return new Packet(new HashMap<String, Object>(cm_o_core)).getCalendar("time");
+	}
+
+	@Benchmark
+	public Calendar calendarGetInstance(){
+		final Packet l_o_pack = new Packet(new HashMap<String, Object>(cm_o_core));
+		final Calendar r_o_cal = Calendar.getInstance();
+		r_o_cal.setTimeInMillis(l_o_pack.getLong("time", 0));
+		return r_o_cal;
+	}
+
+	@Benchmark
+	public Instant instant(){
+		return c_o_pack.get("time", Instant.class);
+	}
+
+	@Benchmark
+	public UUID uuid(){
+		return c_o_pack.get("id", UUID.class);
+	}
+}
@@ -0,0 +1,101 @@
+package evo.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.DeflatePacketCodec;
+import evo.Packet;
+import evo.PacketCodec;
+
+/**
+ * Small error Packets deflated with a trained dictionary, against plain JSON.
+ * The ratio and the deflate and inflate cost are printed by the codec at the end of the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeflateBenchmark {
+
+	private static final int VERSION = 7;
+
+	private DeflatePacketCodec c_o_codec;
+	private Packet c_o_pack;
+	private byte[] c_a_json;
+	private byte[] c_a_deflated;
+
+	@Setup
+	public void setup(){
+		final Random l_o_rand = new Random(1);
+		final List<Packet> ll_o_samples = new ArrayList<Packet>();
+		for (int i = 0; i < 200; i++)
+			ll_o_samples.add(sample(l_o_rand));
+		c_o_codec = new DeflatePacketCodec(VERSION, DeflatePacketCodec.train(ll_o_samples, 4096), Deflater.BEST_SPEED);
+		PacketCodec.register(c_o_codec);
+		c_o_pack = sample(l_o_rand);
+		c_a_json = c_o_pack.toByteArray();
+		c_a_deflated = c_o_pack.toByteArray(c_o_codec);
+	}
+
+	@TearDown
+	public void tearDown(){
+		System.out.println();
+		System.out.println(c_o_codec + ", " + c_a_json.length + " json bytes to " + c_a_deflated.length);
+	}
+
+	private static Packet sample(Random p_o_rand){
+		final Packet r_o_pack = new Packet();
+		r_o_pack.setError(true);
+		r_o_pack.setMessage(p_o_rand.nextBoolean()? "Service unavailable" : "Timeout while calling backend");
+		r_o_pack.put("service", p_o_rand.nextBoolean()? "inventory" : "orders");
+		r_o_pack.put("requestId", UUID.randomUUID().toString());
+		r_o_pack.put("latencyMillis", p_o_rand.nextInt(5000));
+		final Map<String, Object> lm_o_origin = new HashMap<String, Object>();
+		lm_o_origin.put("region", "eu-west-1");
+		lm_o_origin.put("host", "node-" + p_o_rand.nextInt(20));
+		r_o_pack.put("origin", lm_o_origin);
+		return r_o_pack;
+	}
+
+	@Benchmark
+	public byte[] encodeJson(){
+		c_o_pack.put("latencyMillis", 1);	// not intact, encoded again
+		return c_o_pack.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] encodeDeflated(){
+		c_o_pack.put("latencyMillis", 1);
+		return c_o_pack.toByteArray(c_o_codec);
+	}
+
+	@Benchmark
+	public String decodeJson(){
+		return Packet.fromBytes(c_a_json).getMessage();
+	}
+
+	@Benchmark
+	public String decodeDeflated(){
+		return Packet.fromBytes(c_a_deflated).getMessage();
+	}
+}
@@ -0,0 +1,56 @@
+package evo.bench;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+
+/**
+ * Four threads reading the basic values of a shared Packet of 32 keys, by its core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class FreezeBenchmark {
+
+	@Param({"hash", "concurrent", "frozen"})
+	public String core;
+
+	private Packet c_o_pack;
+
+	@Setup
+	public void setup(){
+		final Packet l_o_pack = new Packet();
+		for (int i = 0; i < 32; i++)
+			l_o_pack.put("key" + i, i);
+		l_o_pack.put("string", "Hello World");
+		if ("concurrent".equals(core))
+			c_o_pack = new Packet(new ConcurrentHashMap<String, Object>(l_o_pack.getCore()));
+		else if ("frozen".equals(core))
+			c_o_pack = l_o_pack.freeze();
+		else
+			c_o_pack = l_o_pack;
+	}
+
+	@Benchmark
+	public int read(){
+		return c_o_pack.getInt("key7", 0) + c_o_pack.getInt("key30", 0) + c_o_pack.getString("string").length();
+	}
+}
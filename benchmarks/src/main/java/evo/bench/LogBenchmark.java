@@ -0,0 +1,116 @@
+package evo.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import evo.Packet;
+import evo.io.PacketLog;
+
+/**
+ * Append, random access and replay of a PacketLog in a temporary directory.
+ * Replays visit the whole log per operation, multiply the score by {@link #RECORDS} for records per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+
+	public static final int RECORDS = 20000;
+
+	private File c_o_dir;
+	private PacketLog c_o_log;
+	private File c_o_appendDir;
+	private PacketLog c_o_appendLog;
+	private Packet c_o_pack;
+	private long c_l_next;
+
+	@Setup
+	public void setup() throws IOException {
+		c_o_pack = Payloads.create(Payloads.SMALL);
+		c_o_dir = createDir();
+		c_o_log = new PacketLog(c_o_dir);
+		for (int i = 0; i < RECORDS; i++)
+			c_o_log.append(c_o_pack);
+	}
+
+	@Setup(Level.Iteration)
+	public void setupAppend() throws IOException {
+		c_o_appendDir = createDir();
+		c_o_appendLog = new PacketLog(c_o_appendDir);
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDownAppend() throws IOException {
+		c_o_appendLog.close();
+		delete(c_o_appendDir);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		c_o_log.close();
+		delete(c_o_dir);
+	}
+
+	@Benchmark
+	public long append() throws IOException {
+		return c_o_appendLog.append(c_o_pack);
+	}
+
+	@Benchmark
+	public int get(){
+		c_l_next = (c_l_next + 7919) % RECORDS;	// strided over the segment
+		return c_o_log.get(c_l_next).getInt("int", 0);
+	}
+
+	@Benchmark
+	public long replayRecords(final Blackhole p_o_hole) throws IOException {
+		return c_o_log.replay(0, new PacketLog.Visitor() {
+			@Override
+			public boolean visit(long p_l_number, ByteBuffer p_o_record) {
+				p_o_hole.consume(p_o_record.get(p_o_record.position()));
+				return true;
+			}
+		});
+	}
+
+	@Benchmark
+	public void replayPackets(Blackhole p_o_hole){
+		for (Packet l_o_pack : c_o_log)
+			p_o_hole.consume(l_o_pack.getInt("int", 0));
+	}
+
+	private static File createDir() throws IOException {
+		final File r_o_dir = File.createTempFile("packetlog", "");
+		if (!r_o_dir.delete() || !r_o_dir.mkdir())
+			throw new IOException("Cannot create " + r_o_dir);
+		return r_o_dir;
+	}
+
+	private static void delete(File p_o_dir){
+		final File[] l_a_files = p_o_dir.listFiles();
+		if (l_a_files != null) {
+			for (File l_o_file : l_a_files)
+				l_o_file.delete();
+		}
+		p_o_dir.delete();
+	}
+}
@@ -0,0 +1,122 @@
+package evo.bench;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import evo.Packet;
+
+/**
+ * Hot paths of {@link Packet}.<br/>
+ * The "first" benchmarks decode the document then read one field, which is the usual life of a received Packet,
+ * compare them with {@link #fromString()} to get the cost of the lazy deserialization itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketBenchmark {
+
+	private static final TypeReference<List<List<BenchObject>>> NESTED_LIST = new TypeReference<List<List<BenchObject>>>() {};
+	/** Keys read by a router */
+	private static final Set<String> ROUTING_KEYS = new HashSet<String>(Arrays.asList("int", "string"));
+
+	@Param({Payloads.SMALL, Payloads.MEDIUM, Payloads.LARGE})
+	public String size;
+
+	private Packet c_o_pack;
+	private String c_s_json;
+	private Packet c_o_decoded;
+
+	@Setup
+	public void setup(){
+		c_o_pack = Payloads.create(size);
+		c_s_json = c_o_pack.serialize();
+		c_o_decoded = Packet.fromString(c_s_json);
+		c_o_decoded.get("singleObject", BenchObject.class);	// materialized for repeatedGet
+	}
+
+	@Benchmark
+	public String serialize(){
+		return c_o_pack.serialize();
+	}
+
+	@Benchmark
+	public Packet fromString(){
+		return Packet.fromString(c_s_json);
+	}
+
+	@Benchmark
+	public BenchObject firstGet(){
+		return Packet.fromString(c_s_json).get("singleObject", BenchObject.class);
+	}
+
+	@Benchmark
+	public BenchObject repeatedGet(){
+		return c_o_decoded.get("singleObject", BenchObject.class);
+	}
+
+	@Benchmark
+	public List<BenchObject> firstGetList(){
+		return Packet.fromString(c_s_json).getList("normalList", BenchObject.class);
+	}
+
+	@Benchmark
+	public Map<Integer, BenchObject> firstGetMap(){
+		return Packet.fromString(c_s_json).getMap("normalMap", Integer.class, BenchObject.class);
+	}
+
+	@Benchmark
+	public List<List<BenchObject>> firstGetTypeReference(){
+		return Packet.fromString(c_s_json).get("nestedList", NESTED_LIST);
+	}
+
+	@Benchmark
+	public Calendar firstGetCalendar(){
+		return Packet.fromString(c_s_json).getCalendar("calendar");
+	}
+
+	@Benchmark
+	public String fullGetString(){
+		return Packet.fromString(c_s_json).getString("string");
+	}
+
+	@Benchmark
+	public String projectedGetString(){
+		return Packet.fromString(c_s_json, ROUTING_KEYS).getString("string");
+	}
+
+	@Benchmark
+	public byte[] relayUntouched(){
+		final Packet l_o_pack = Packet.fromString(c_s_json, ROUTING_KEYS);
+		l_o_pack.getString("string");
+		return l_o_pack.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] relayModified(){
+		final Packet l_o_pack = Packet.fromString(c_s_json);
+		l_o_pack.put("string", "relayed");
+		return l_o_pack.toByteArray();
+	}
+}
@@ -0,0 +1,83 @@
+package evo.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+
+/**
+ * State sync of a Packet where one nested field changed: the receiver decoding the whole document,
+ * against applying a merge patch to its replica. The sender side is measured apart, by diff.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatchBenchmark {
+
+	private byte[] c_a_base;
+	private Packet c_o_last;
+	private Packet c_o_current;
+	private byte[] c_a_full;
+	private byte[] c_a_patch;
+	private Packet c_o_replica;
+
+	@Setup
+	public void setup(){
+		final Packet l_o_pack = new Packet();
+		for (int i = 0; i < 20; i++) {
+			final Map<String, Object> lm_o_node = new HashMap<String, Object>();
+			lm_o_node.put("host", "node-" + i);
+			lm_o_node.put("load", i * 0.1);
+			final List<Integer> ll_i_shards = new ArrayList<Integer>();
+			for (int j = 0; j < 16; j++)
+				ll_i_shards.add(i * 16 + j);
+			lm_o_node.put("shards", ll_i_shards);
+			l_o_pack.put("node" + i, lm_o_node);
+		}
+		c_a_base = l_o_pack.toByteArray();
+		c_o_last = Packet.fromBytes(c_a_base);
+		c_o_current = Packet.fromBytes(c_a_base);
+		final Map<String, Object> lm_o_node = c_o_current.getMap("node3", String.class, Object.class);
+		lm_o_node.put("load", 0.9);
+		c_o_current.put("node3", lm_o_node);
+		c_a_full = c_o_current.toByteArray();
+		c_a_patch = c_o_last.diff(c_o_current).toByteArray();
+		c_o_replica = Packet.fromBytes(c_a_base);
+		System.out.println();
+		System.out.println("full " + c_a_full.length + " bytes, patch " + c_a_patch.length + " bytes");
+	}
+
+	@Benchmark
+	public Packet receiveFull(){
+		return Packet.fromBytes(c_a_full);
+	}
+
+	/** A merge patch is idempotent, so the replica of the receiver is patched again and again */
+	@Benchmark
+	public Packet receivePatch(){
+		c_o_replica.applyPatch(Packet.fromBytes(c_a_patch));
+		return c_o_replica;
+	}
+
+	@Benchmark
+	public byte[] sendPatch(){
+		return c_o_last.diff(c_o_current).toByteArray();
+	}
+}
@@ -0,0 +1,66 @@
+package evo.bench;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import evo.Packet;
+
+/**
+ * Packets with the layout of PacketTestProgram, the size of collections depends on the payload size.
+ */
+public final class Payloads {
+
+	public static final String SMALL = "small", MEDIUM = "medium", LARGE = "large";
+
+	private Payloads(){
+	}
+
+	/** Number of elements of every collection in the payload */
+	public static int elements(String p_s_size){
+		if (SMALL.equals(p_s_size))
+			return 2;
+		if (MEDIUM.equals(p_s_size))
+			return 32;
+		if (LARGE.equals(p_s_size))
+			return 1024;
+		throw new IllegalArgumentException("Unknown payload size: " + p_s_size);
+	}
+
+	public static Packet create(String p_s_size){
+		final int l_i_elements = elements(p_s_size);
+		final Packet r_o_pack = new Packet();
+		r_o_pack.put("boolean", true);
+		r_o_pack.put("double", 9d);
+		r_o_pack.put("int", 99);
+		r_o_pack.put("string", "Hello World");
+		r_o_pack.put("calendar", Calendar.getInstance());
+		r_o_pack.put("singleObject", new BenchObject(true));
+		r_o_pack.put("objectArray", createList(l_i_elements).toArray(new BenchObject[0]));
+		r_o_pack.put("normalList", createList(l_i_elements));
+		r_o_pack.put("normalMap", createMap(l_i_elements));
+		final List<List<BenchObject>> ll_o_nested = new ArrayList<List<BenchObject>>();
+		ll_o_nested.add(createList(l_i_elements));
+		r_o_pack.put("nestedList", ll_o_nested);
+		final Map<Integer, Map<Integer, BenchObject>> mm_o_nested = new HashMap<Integer, Map<Integer, BenchObject>>();
+		mm_o_nested.put(0, createMap(l_i_elements));
+		r_o_pack.put("nestedMap", mm_o_nested);
+		return r_o_pack;
+	}
+
+	private static List<BenchObject> createList(int p_i_elements){
+		final List<BenchObject> r_l_list = new ArrayList<BenchObject>(p_i_elements);
+		for (int i = 0; i < p_i_elements; i++)
+			r_l_list.add(new BenchObject(true));
+		return r_l_list;
+	}
+
+	private static Map<Integer, BenchObject> createMap(int p_i_elements){
+		final Map<Integer, BenchObject> r_m_map = new HashMap<Integer, BenchObject>();
+		for (int i = 0; i < p_i_elements; i++)
+			r_m_map.put(i, new BenchObject(true));
+		return r_m_map;
+	}
+}
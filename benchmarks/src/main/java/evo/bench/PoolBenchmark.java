@@ -0,0 +1,78 @@
+package evo.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+import evo.PacketPool;
+import evo.PrimitiveCore;
+
+/**
+ * Request handling of a fixed-shape message, a new Packet per message against a pooled one, compare gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoolBenchmark {
+
+	private static final PacketPool POOL = new PacketPool(){
+		@Override
+		protected Packet create() {
+			return new Packet(new PrimitiveCore());
+		}
+	};
+
+	private String c_s_json;
+	private final ByteArrayOutputStream c_o_out = new ByteArrayOutputStream(1024);
+
+	@Setup
+	public void setup(){
+		final Packet l_o_pack = new Packet();
+		l_o_pack.put("id", 12345L);
+		l_o_pack.put("type", "order");
+		l_o_pack.put("price", 99.5);
+		l_o_pack.put("quantity", 3);
+		l_o_pack.put("express", true);
+		c_s_json = l_o_pack.serialize();
+	}
+
+	@Benchmark
+	public long fresh() throws IOException {
+		final Packet l_o_pack = Packet.fromString(c_s_json);
+		final long r_l_id = l_o_pack.getLong("id", 0);
+		l_o_pack.put("quantity", 4);
+		c_o_out.reset();
+		l_o_pack.writeTo(c_o_out);
+		return r_l_id;
+	}
+
+	@Benchmark
+	public long pooled() throws IOException {
+		final Packet l_o_pack = POOL.acquire();
+		try {
+			l_o_pack.deserialize(c_s_json);
+			final long r_l_id = l_o_pack.getLong("id", 0);
+			l_o_pack.put("quantity", 4);
+			c_o_out.reset();
+			l_o_pack.writeTo(c_o_out);
+			return r_l_id;
+		} finally {
+			l_o_pack.release();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package evo.bench;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+import evo.PrimitiveCore;
+
+/**
+ * A numeric metrics Packet on the default HashMap core against {@link PrimitiveCore}, compare gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveBenchmark {
+
+	private static final String[] KEYS = {"count", "sum", "min", "max", "mean", "p50", "p99", "errors"};
+
+	@Param({"hash", "primitive"})
+	public String core;
+
+	private Packet c_o_pack;
+	private byte[] c_a_json;
+	private int c_i_seq;
+
+	@Setup
+	public void setup(){
+		c_o_pack = this.create();
+		this.fill(c_o_pack, 1000);
+		c_a_json = c_o_pack.toByteArray();
+	}
+
+	private Packet create(){
+		return "primitive".equals(core)? new Packet(new PrimitiveCore()) : new Packet(new HashMap<String, Object>());
+	}
+
+	private void fill(Packet p_o_pack, int p_i_seq){
+		for (int i = 0; i < KEYS.length; i++) {
+			if ((i & 1) == 0)
+				p_o_pack.put(KEYS[i], (long) p_i_seq * 1000 + i);
+			else
+				p_o_pack.put(KEYS[i], p_i_seq * 0.5 + i);
+		}
+	}
+
+	@Benchmark
+	public double putAndGet(){
+		this.fill(c_o_pack, ++c_i_seq);
+		double r_d_sum = 0;
+		for (String l_s_key : KEYS)
+			r_d_sum += c_o_pack.getDouble(l_s_key, 0);
+		return r_d_sum;
+	}
+
+	@Benchmark
+	public byte[] encode(){
+		return c_o_pack.toByteArray();
+	}
+
+	@Benchmark
+	public long decodeAndGet(){
+		final Packet l_o_pack = this.create();
+		l_o_pack.deserialize(c_a_json, 0, c_a_json.length);
+		return l_o_pack.getLong("count", 0);
+	}
+}
@@ -0,0 +1,88 @@
+package evo.bench;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evo.Packet;
+
+/**
+ * A single scan of an array of 100000 objects: bound into a List, against streamed element by element, sequential and parallel.
+ * The first match stops the stream early, compare gc.alloc.rate.norm too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamBenchmark {
+
+	private static final int ELEMENTS = 100000;
+
+	public static class Event {
+		public int id;
+		public String name;
+		public boolean error;
+	}
+
+	private byte[] c_a_json;
+
+	@Setup
+	public void setup(){
+		final StringBuilder l_o_json = new StringBuilder("{\"events\":[");
+		for (int i = 0; i < ELEMENTS; i++) {
+			if (i > 0)
+				l_o_json.append(',');
+			l_o_json.append("{\"id\":").append(i).append(",\"name\":\"event ").append(i).append("\",\"error\":").append(i == ELEMENTS / 2).append('}');
+		}
+		c_a_json = l_o_json.append("]}").toString().getBytes();
+	}
+
+	@Benchmark
+	public long sumList(){
+		long r_l_sum = 0;
+		final List<Event> ll_o_events = Packet.fromBytes(c_a_json).getList("events", Event.class);
+		for (Event l_o_event : ll_o_events)
+			r_l_sum += l_o_event.id;
+		return r_l_sum;
+	}
+
+	@Benchmark
+	public long sumStream(){
+		long r_l_sum = 0;
+		for (Iterator<Event> l_o_it = Packet.fromBytes(c_a_json).iterator("events", Event.class); l_o_it.hasNext();)
+			r_l_sum += l_o_it.next().id;
+		return r_l_sum;
+	}
+
+	@Benchmark
+	public long sumParallel(){
+		return Packet.fromBytes(c_a_json).stream("events", Event.class).parallel().mapToLong(e -> e.id).sum();
+	}
+
+	@Benchmark
+	public int firstErrorList(){
+		for (Event l_o_event : Packet.fromBytes(c_a_json).getList("events", Event.class)) {
+			if (l_o_event.error)
+				return l_o_event.id;
+		}
+		return -1;
+	}
+
+	@Benchmark
+	public int firstErrorStream(){
+		return Packet.fromBytes(c_a_json).stream("events", Event.class).filter(e -> e.error).findFirst().get().id;
+	}
+}
@@ -0,0 +1,92 @@
+package evo;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Round trip of {@link PacketCodec#BINARY}, then every truncation of the document.<br/>
+ * A document cut anywhere, with its object length left as is or shortened to the bytes left, must decode
+ * or fail with an IOException, never with an unchecked exception, into a HashMap as into a {@link PrimitiveCore}.
+ */
+public class BinaryCodecTestProgram {
+
+	public static void main(String[] args) throws IOException {
+		final Packet l_o_pack = new Packet(new LinkedHashMap<String, Object>());
+		l_o_pack.put("null", null);
+		l_o_pack.put("false", false);
+		l_o_pack.put("true", true);
+		l_o_pack.put("fixint", 7);
+		l_o_pack.put("int", -123456);
+		l_o_pack.put("long", 1L << 40);
+		l_o_pack.put("double", 2.5d);
+		l_o_pack.put("float", 1.5f);
+		l_o_pack.put("bigInteger", BigInteger.ONE.shiftLeft(80));
+		l_o_pack.put("bigDecimal", new BigDecimal("3.14159265358979323846"));
+		l_o_pack.put("string", "Hello World");
+		l_o_pack.put("binary", new byte[]{1, 2, 3});
+		l_o_pack.put("object", createMap());
+		l_o_pack.put("array", new int[]{1, 2, 3});
+
+		final byte[] l_a_doc = l_o_pack.toByteArray(PacketCodec.BINARY);
+		final Packet l_o_back = Packet.fromBytes(l_a_doc, 0, l_a_doc.length, new LinkedHashMap<String, Object>());
+		check(l_o_pack.serialize().equals(l_o_back.serialize()), "round trip: " + l_o_back.serialize());
+
+		// header, object length, then the fields
+		int l_i_fields = 3;
+		while (l_a_doc[l_i_fields] < 0)
+			l_i_fields++;
+		l_i_fields++;
+		for (int l_i_cut = 0; l_i_cut < l_a_doc.length; l_i_cut++) {
+			decode(l_a_doc, l_i_cut, "cut at " + l_i_cut);
+			if (l_i_cut >= l_i_fields)
+				decode(shorten(l_a_doc, l_i_fields, l_i_cut), "shortened to " + l_i_cut);
+		}
+		System.out.println("BinaryCodecTestProgram: " + l_a_doc.length + " truncations OK");
+	}
+
+	private static Map<String, Object> createMap() {
+		final Map<String, Object> r_o_map = new LinkedHashMap<String, Object>();
+		r_o_map.put("a", 1);
+		r_o_map.put("b", Arrays.asList("x", "y"));
+		return r_o_map;
+	}
+
+	/** Same document cut at the length, its object length rewritten to the fields left */
+	private static byte[] shorten(byte[] p_a_doc, int p_i_fields, int p_i_len) {
+		final int l_i_content = p_i_len - p_i_fields;
+		final byte[] r_a_doc = new byte[p_i_len + 5];
+		System.arraycopy(p_a_doc, 0, r_a_doc, 0, 3);
+		int l_i_pos = 3;
+		int l_i_val = l_i_content;
+		while ((l_i_val & ~0x7F) != 0) {
+			r_a_doc[l_i_pos++] = (byte) ((l_i_val & 0x7F) | 0x80);
+			l_i_val >>>= 7;
+		}
+		r_a_doc[l_i_pos++] = (byte) l_i_val;
+		System.arraycopy(p_a_doc, p_i_fields, r_a_doc, l_i_pos, l_i_content);
+		return Arrays.copyOf(r_a_doc, l_i_pos + l_i_content);
+	}
+
+	private static void decode(byte[] p_a_doc, int p_i_len, String p_s_case) {
+		for (Packet l_o_pack : new Packet[]{new Packet(), new Packet(new PrimitiveCore())}) {
+			try {
+				PacketCodec.BINARY.decode(l_o_pack, p_a_doc, 0, p_i_len);
+			} catch (IOException e) {	// expected
+			} catch (RuntimeException e) {
+				throw new AssertionError(p_s_case + ", " + l_o_pack.getCore().getClass().getSimpleName() + ": " + e, e);
+			}
+		}
+	}
+	private static void decode(byte[] p_a_doc, String p_s_case) {
+		decode(p_a_doc, p_a_doc.length, p_s_case);
+	}
+
+	private static void check(boolean p_fl_ok, String p_s_case) {
+		if (!p_fl_ok)
+			throw new AssertionError(p_s_case);
+	}
+}
@@ -0,0 +1,613 @@
+package evo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Compact binary codec, see {@link PacketCodec#BINARY}.<br/>
+ * A MessagePack-style tagged format. Objects and arrays are prefixed by their byte length, so the top level is decoded
+ * without reading the nested values at all, and an element decoded by this codec is copied as is when it is encoded again.
+ * <PRE>
+ * document		: 0xB7 VERSION object
+ * value		: tag payload
+ * 0x00			null
+ * 0x01 / 0x02	false / true
+ * 0x03			int, zigzag varint
+ * 0x04			long, zigzag varint
+ * 0x05			double, 8 bytes big-endian
+ * 0x06			float, 4 bytes big-endian
+ * 0x07			big integer, varint length + two's-complement bytes
+ * 0x08			big decimal, zigzag varint scale + big integer payload of the unscaled value
+ * 0x09			string, varint length + UTF-8
+ * 0x0A			binary, varint length + bytes
+ * 0x0B			object, varint length + (key value)*, key is varint length + UTF-8
+ * 0x0C			array, varint length + value*
+ * 0x80-0xFF	int 0 to 127
+ * </PRE>
+ * 0xB7 can not start a UTF-8 text, so the format never collides with JSON on detection.
+ */
+final class BinaryPacketCodec extends PacketCodec {
+
+	static final byte MAGIC = (byte) 0xB7;
+	static final byte VERSION = 1;
+
+	private static final int
+		T_NULL = 0x00, T_FALSE = 0x01, T_TRUE = 0x02,
+		T_INT = 0x03, T_LONG = 0x04, T_DOUBLE = 0x05, T_FLOAT = 0x06, T_BIG_INT = 0x07, T_BIG_DEC = 0x08,
+		T_STRING = 0x09, T_BINARY = 0x0A, T_OBJECT = 0x0B, T_ARRAY = 0x0C,
+		T_FIXINT = 0x80;
+
+	/** Encoding buffer reused by the thread */
+	private static final ThreadLocal<Output> C_O_OUTPUT = new ThreadLocal<Output>(){
+		@Override
+		protected Output initialValue() {
+			return new Output();
+		}
+	};
+
+	BinaryPacketCodec(){
+	}
+
+	@Override
+	public String getName() {
+		return "binary";
+	}
+
+	@Override
+	public boolean accept(byte[] p_a_buf, int p_i_off, int p_i_len) {
+		return p_i_len >= 2 && p_a_buf[p_i_off] == MAGIC;
+	}
+
+	@Override
+	public boolean isArray(byte[] p_a_buf, int p_i_off) {
+		return p_a_buf[p_i_off] == T_ARRAY;
+	}
+
+//		Decode		\\
+	@Override
+	protected void decode(Packet p_o_pack, byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException {
+		final Input l_o_in = new Input(p_a_buf, p_i_off, p_i_off + p_i_len);
+		if (l_o_in.readByte() != MAGIC)
+			throw new JsonParseException("Not a binary Packet", null);
+		final int l_i_ver = l_o_in.readByte();
+		if (l_i_ver != VERSION)
+			throw new JsonParseException("Unsupported binary Packet version: " + l_i_ver, null);
+		if (l_o_in.readByte() != T_OBJECT)
+			throw new JsonParseException("Packet must be an object", null);
+		final int l_i_end = l_o_in.readLength();
+		final PrimitiveCore l_o_prims = p_o_pack.getCore() instanceof PrimitiveCore? (PrimitiveCore) p_o_pack.getCore() : null;
+		int l_i_wanted = p_o_pack.countSelected();
+		while (l_i_wanted != 0 && l_o_in.c_i_pos < l_i_end) {
+			final String l_s_key = l_o_in.readKey();
+			if (!p_o_pack.isSelected(l_s_key)) {	// projected out
+				l_o_in.skipValue();
+				continue;
+			}
+			if (l_o_prims == null || !readPrimitive(l_o_prims, l_s_key, l_o_in))
+				p_o_pack.putElement(l_s_key, this.readElement(l_o_in));
+			l_i_wanted--;
+		}
+	}
+
+	/**
+	 * Put a primitive value to the slots without boxing.
+	 * @return false if the value is not a primitive, nothing is read
+	 */
+	private static boolean readPrimitive(PrimitiveCore p_o_prims, String p_s_key, Input p_o_in) throws IOException {
+		final int l_i_tag = p_o_in.peekTag();
+		switch (l_i_tag) {
+		case T_FALSE:	p_o_in.c_i_pos++;	p_o_prims.putBoolean(p_s_key, false);							return true;
+		case T_TRUE:	p_o_in.c_i_pos++;	p_o_prims.putBoolean(p_s_key, true);							return true;
+		case T_INT:		p_o_in.c_i_pos++;	p_o_prims.putInt(p_s_key, (int) p_o_in.readZigzag());			return true;
+		case T_LONG:	p_o_in.c_i_pos++;	p_o_prims.putLong(p_s_key, p_o_in.readZigzag());				return true;
+		case T_DOUBLE:	p_o_in.c_i_pos++;	p_o_prims.putDouble(p_s_key, Double.longBitsToDouble(p_o_in.readFixed(8)));	return true;
+		default:
+			if (l_i_tag < T_FIXINT)
+				return false;
+			p_o_in.c_i_pos++;
+			p_o_prims.putInt(p_s_key, l_i_tag - T_FIXINT);
+			return true;
+		}
+	}
+
+	/** Read a top level value, objects and arrays are skipped by their length. */
+	private Object readElement(Input p_o_in) throws IOException {
+		final int l_i_tag = p_o_in.peekTag();
+		if (l_i_tag == T_OBJECT || l_i_tag == T_ARRAY) {
+			final int l_i_start = p_o_in.c_i_pos++;
+			p_o_in.c_i_pos = p_o_in.readLength();
+			return new RawElement(this, p_o_in.c_a_buf, l_i_start, p_o_in.c_i_pos - l_i_start);
+		}
+		p_o_in.c_i_pos++;
+		switch (l_i_tag) {
+		case T_NULL:		return null;
+		case T_FALSE:		return Boolean.FALSE;
+		case T_TRUE:		return Boolean.TRUE;
+		case T_INT:			return (int) p_o_in.readZigzag();
+		case T_LONG:		return p_o_in.readZigzag();
+		case T_DOUBLE:		return Double.longBitsToDouble(p_o_in.readFixed(8));
+		case T_FLOAT:		return Float.intBitsToFloat((int) p_o_in.readFixed(4));
+		case T_BIG_INT:		return p_o_in.readBigInteger();
+		case T_BIG_DEC:		return p_o_in.readBigDecimal();
+		case T_STRING:		return p_o_in.readString();
+		case T_BINARY:		return p_o_in.readBinary();
+		default:
+			if (l_i_tag >= T_FIXINT)
+				return l_i_tag - T_FIXINT;
+			throw new JsonParseException("Unknown tag: " + l_i_tag, null);
+		}
+	}
+
+	/** Present the element as Jackson tokens through a TokenBuffer */
+	@Override
+	public JsonParser createParser(ObjectMapper p_o_mapper, byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException {
+		final TokenBuffer l_o_tokens = new TokenBuffer(p_o_mapper);
+		this.copyTokens(new Input(p_a_buf, p_i_off, p_i_off + p_i_len), l_o_tokens);
+		return l_o_tokens.asParser();
+	}
+
+	/** Copy a value as tokens to the generator */
+	private void copyTokens(Input p_o_in, JsonGenerator p_o_gen) throws IOException {
+		final int l_i_tag = p_o_in.readByte() & 0xFF;
+		switch (l_i_tag) {
+		case T_NULL:		p_o_gen.writeNull();											break;
+		case T_FALSE:		p_o_gen.writeBoolean(false);									break;
+		case T_TRUE:		p_o_gen.writeBoolean(true);										break;
+		case T_INT:			p_o_gen.writeNumber((int) p_o_in.readZigzag());					break;
+		case T_LONG:		p_o_gen.writeNumber(p_o_in.readZigzag());						break;
+		case T_DOUBLE:		p_o_gen.writeNumber(Double.longBitsToDouble(p_o_in.readFixed(8)));	break;
+		case T_FLOAT:		p_o_gen.writeNumber(Float.intBitsToFloat((int) p_o_in.readFixed(4)));	break;
+		case T_BIG_INT:		p_o_gen.writeNumber(p_o_in.readBigInteger());					break;
+		case T_BIG_DEC:		p_o_gen.writeNumber(p_o_in.readBigDecimal());					break;
+		case T_STRING:		p_o_gen.writeString(p_o_in.readString());						break;
+		case T_BINARY:		p_o_gen.writeBinary(p_o_in.readBinary());						break;
+		case T_OBJECT: {
+			p_o_gen.writeStartObject();
+			final int l_i_end = p_o_in.readLength();
+			while (p_o_in.c_i_pos < l_i_end) {
+				p_o_gen.writeFieldName(p_o_in.readString());
+				this.copyTokens(p_o_in, p_o_gen);
+			}
+			p_o_gen.writeEndObject();
+			break;
+		}
+		case T_ARRAY: {
+			p_o_gen.writeStartArray();
+			final int l_i_end = p_o_in.readLength();
+			while (p_o_in.c_i_pos < l_i_end)
+				this.copyTokens(p_o_in, p_o_gen);
+			p_o_gen.writeEndArray();
+			break;
+		}
+		default:
+			if (l_i_tag < T_FIXINT)
+				throw new JsonParseException("Unknown tag: " + l_i_tag, null);
+			p_o_gen.writeNumber(l_i_tag - T_FIXINT);
+		}
+	}
+
+//		Encode		\\
+	@Override
+	protected void encode(Packet p_o_pack, OutputStream p_o_out) throws IOException {
+		final Output l_o_out = C_O_OUTPUT.get();
+		try {
+			this.encode(p_o_pack, l_o_out);
+			p_o_out.write(l_o_out.c_a_buf, 0, l_o_out.c_i_len);
+		} finally {
+			l_o_out.release();
+		}
+	}
+
+	private void encode(Packet p_o_pack, Output p_o_out) throws IOException {
+		p_o_out.reset();
+		p_o_out.writeByte(MAGIC);
+		p_o_out.writeByte(VERSION);
+		p_o_out.writeByte(T_OBJECT);
+		final int l_i_body = p_o_out.beginLength();
+		if (p_o_pack.getCore() instanceof PrimitiveCore) {
+			final PrimitiveCore l_o_prims = (PrimitiveCore) p_o_pack.getCore();
+			for (int i = 0, l_i_slots = l_o_prims.slots(); i < l_i_slots; i++) {
+				p_o_out.writeString(l_o_prims.keyAt(i));
+				this.writeSlot(p_o_out, l_o_prims, i, p_o_pack.getMapper());
+			}
+		} else {
+			for (Map.Entry<String, Object> l_o_entry : p_o_pack.getCore().entrySet()) {
+				p_o_out.writeString(l_o_entry.getKey());
+				this.writeValue(p_o_out, l_o_entry.getValue(), p_o_pack.getMapper());
+			}
+		}
+		p_o_out.endLength(l_i_body);
+	}
+
+	@Override
+	protected byte[] encode(Packet p_o_pack) throws IOException {
+		final Output l_o_out = C_O_OUTPUT.get();
+		try {
+			this.encode(p_o_pack, l_o_out);
+			return Arrays.copyOf(l_o_out.c_a_buf, l_o_out.c_i_len);
+		} finally {
+			l_o_out.release();
+		}
+	}
+
+	/** Encode a slot of PrimitiveCore, primitives without boxing */
+	private void writeSlot(Output p_o_out, PrimitiveCore p_o_prims, int p_i_slot, PacketMapper p_o_mapper) throws IOException {
+		final long l_l_prim = p_o_prims.primAt(p_i_slot);
+		switch (p_o_prims.kindAt(p_i_slot)) {
+		case PrimitiveCore.K_INT:
+		case PrimitiveCore.K_LONG:
+			p_o_out.writeInteger(l_l_prim);
+			break;
+		case PrimitiveCore.K_DOUBLE:
+			p_o_out.writeByte(T_DOUBLE);
+			p_o_out.writeFixed(l_l_prim, 8);
+			break;
+		case PrimitiveCore.K_BOOLEAN:
+			p_o_out.writeByte(l_l_prim != 0? T_TRUE : T_FALSE);
+			break;
+		default:
+			this.writeValue(p_o_out, p_o_prims.refAt(p_i_slot), p_o_mapper);
+		}
+	}
+
+	/** Encode a value of the core, basic types are written directly, others through Jackson tokens */
+	private void writeValue(Output p_o_out, Object p_o_val, PacketMapper p_o_mapper) throws IOException {
+		if (p_o_val == null) {
+			p_o_out.writeByte(T_NULL);
+		} else if (p_o_val instanceof String) {
+			p_o_out.writeByte(T_STRING);
+			p_o_out.writeString((String) p_o_val);
+		} else if (p_o_val instanceof Integer || p_o_val instanceof Long || p_o_val instanceof Short || p_o_val instanceof Byte) {
+			p_o_out.writeInteger(((Number) p_o_val).longValue());
+		} else if (p_o_val instanceof Double) {
+			p_o_out.writeByte(T_DOUBLE);
+			p_o_out.writeFixed(Double.doubleToRawLongBits((Double) p_o_val), 8);
+		} else if (p_o_val instanceof Boolean) {
+			p_o_out.writeByte((Boolean) p_o_val? T_TRUE : T_FALSE);
+		} else if (p_o_val instanceof RawElement) {
+			final RawElement l_o_raw = (RawElement) p_o_val;
+			if (l_o_raw.getCodec() == this) {	// splice, already encoded
+				p_o_out.writeBytes(l_o_raw.getBuffer(), l_o_raw.getOffset(), l_o_raw.getLength());
+			} else {
+				final JsonParser l_o_parser = l_o_raw.createParser(p_o_mapper.getObjectMapper());
+				try {
+					l_o_parser.nextToken();
+					this.writeTokens(p_o_out, l_o_parser);
+				} finally {
+					l_o_parser.close();
+				}
+			}
+		} else {
+			final TokenBuffer l_o_tokens = new TokenBuffer(p_o_mapper.getObjectMapper());
+			p_o_mapper.writer().writeValue(l_o_tokens, p_o_val);
+			final JsonParser l_o_parser = l_o_tokens.asParser();
+			l_o_parser.nextToken();
+			this.writeTokens(p_o_out, l_o_parser);
+		}
+	}
+
+	/** Encode the value at the current token of the parser */
+	private void writeTokens(Output p_o_out, JsonParser p_o_parser) throws IOException {
+		final JsonToken l_o_token = p_o_parser.getCurrentToken();
+		switch (l_o_token) {
+		case START_OBJECT: {
+			p_o_out.writeByte(T_OBJECT);
+			final int l_i_body = p_o_out.beginLength();
+			while (p_o_parser.nextToken() == JsonToken.FIELD_NAME) {
+				p_o_out.writeString(p_o_parser.getCurrentName());
+				p_o_parser.nextToken();
+				this.writeTokens(p_o_out, p_o_parser);
+			}
+			p_o_out.endLength(l_i_body);
+			break;
+		}
+		case START_ARRAY: {
+			p_o_out.writeByte(T_ARRAY);
+			final int l_i_body = p_o_out.beginLength();
+			while (p_o_parser.nextToken() != JsonToken.END_ARRAY)
+				this.writeTokens(p_o_out, p_o_parser);
+			p_o_out.endLength(l_i_body);
+			break;
+		}
+		case VALUE_STRING:
+			p_o_out.writeByte(T_STRING);
+			p_o_out.writeString(p_o_parser.getText());
+			break;
+		case VALUE_NUMBER_INT:
+			if (p_o_parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER)
+				p_o_out.writeBigInteger(T_BIG_INT, p_o_parser.getBigIntegerValue());
+			else
+				p_o_out.writeInteger(p_o_parser.getLongValue());
+			break;
+		case VALUE_NUMBER_FLOAT:
+			switch (p_o_parser.getNumberType()) {
+			case BIG_DECIMAL:
+				final BigDecimal l_o_dec = p_o_parser.getDecimalValue();
+				p_o_out.writeByte(T_BIG_DEC);
+				p_o_out.writeZigzag(l_o_dec.scale());
+				p_o_out.writeBigInteger(-1, l_o_dec.unscaledValue());
+				break;
+			case FLOAT:
+				p_o_out.writeByte(T_FLOAT);
+				p_o_out.writeFixed(Float.floatToRawIntBits(p_o_parser.getFloatValue()), 4);
+				break;
+			default:
+				p_o_out.writeByte(T_DOUBLE);
+				p_o_out.writeFixed(Double.doubleToRawLongBits(p_o_parser.getDoubleValue()), 8);
+			}
+			break;
+		case VALUE_TRUE:
+			p_o_out.writeByte(T_TRUE);
+			break;
+		case VALUE_FALSE:
+			p_o_out.writeByte(T_FALSE);
+			break;
+		case VALUE_NULL:
+			p_o_out.writeByte(T_NULL);
+			break;
+		case VALUE_EMBEDDED_OBJECT:
+			final Object l_o_embedded = p_o_parser.getEmbeddedObject();
+			if (l_o_embedded instanceof byte[]) {
+				final byte[] l_a_bin = (byte[]) l_o_embedded;
+				p_o_out.writeByte(T_BINARY);
+				p_o_out.writeVarint(l_a_bin.length);
+				p_o_out.writeBytes(l_a_bin, 0, l_a_bin.length);
+				break;
+			}
+			throw new JsonParseException("Unsupported embedded object: " + l_o_embedded, p_o_parser.getCurrentLocation());
+		default:
+			throw new JsonParseException("Unexpected token: " + l_o_token, p_o_parser.getCurrentLocation());
+		}
+	}
+
+//		Buffers		\\
+	/** Growable encoding buffer */
+	private static final class Output {
+		private static final int INITIAL_BUFFER = 1024;
+		/** Buffers larger than this are not kept by the thread */
+		private static final int MAX_KEPT_BUFFER = 1024 * 1024;
+
+		byte[] c_a_buf = new byte[INITIAL_BUFFER];
+		int c_i_len;
+
+		void reset(){
+			c_i_len = 0;
+		}
+		void release(){
+			if (c_a_buf.length > MAX_KEPT_BUFFER)
+				c_a_buf = new byte[INITIAL_BUFFER];
+		}
+		private void ensure(int p_i_more){
+			if (c_i_len + p_i_more > c_a_buf.length)
+				c_a_buf = Arrays.copyOf(c_a_buf, Math.max(c_a_buf.length << 1, c_i_len + p_i_more));
+		}
+		void writeByte(int p_i_byte){
+			ensure(1);
+			c_a_buf[c_i_len++] = (byte) p_i_byte;
+		}
+		void writeBytes(byte[] p_a_buf, int p_i_off, int p_i_len){
+			ensure(p_i_len);
+			System.arraycopy(p_a_buf, p_i_off, c_a_buf, c_i_len, p_i_len);
+			c_i_len += p_i_len;
+		}
+		void writeVarint(long p_l_val){
+			ensure(10);
+			while ((p_l_val & ~0x7FL) != 0) {
+				c_a_buf[c_i_len++] = (byte) ((p_l_val & 0x7F) | 0x80);
+				p_l_val >>>= 7;
+			}
+			c_a_buf[c_i_len++] = (byte) p_l_val;
+		}
+		void writeZigzag(long p_l_val){
+			writeVarint((p_l_val << 1) ^ (p_l_val >> 63));
+		}
+		void writeFixed(long p_l_bits, int p_i_bytes){
+			ensure(p_i_bytes);
+			for (int i = (p_i_bytes - 1) * 8; i >= 0; i -= 8)
+				c_a_buf[c_i_len++] = (byte) (p_l_bits >>> i);
+		}
+		/** Integers are normalized by magnitude as JSON does, so small longs are decoded as Integer */
+		void writeInteger(long p_l_val){
+			if (p_l_val >= 0 && p_l_val < 0x80) {
+				writeByte(T_FIXINT | (int) p_l_val);
+			} else {
+				writeByte(p_l_val == (int) p_l_val? T_INT : T_LONG);
+				writeZigzag(p_l_val);
+			}
+		}
+		/** @param p_i_tag negative to write the payload only */
+		void writeBigInteger(int p_i_tag, BigInteger p_o_val){
+			if (p_i_tag >= 0)
+				writeByte(p_i_tag);
+			final byte[] l_a_bytes = p_o_val.toByteArray();
+			writeVarint(l_a_bytes.length);
+			writeBytes(l_a_bytes, 0, l_a_bytes.length);
+		}
+		/** Varint length + UTF-8, encoded in place */
+		void writeString(String p_s_val){
+			final int l_i_start = beginLength();
+			final int l_i_chars = p_s_val.length();
+			ensure(l_i_chars * 3);
+			final byte[] l_a_buf = c_a_buf;
+			int l_i_len = c_i_len;
+			for (int i = 0; i < l_i_chars; i++) {
+				final char c = p_s_val.charAt(i);
+				if (c < 0x80) {
+					l_a_buf[l_i_len++] = (byte) c;
+				} else if (c < 0x800) {
+					l_a_buf[l_i_len++] = (byte) (0xC0 | (c >> 6));
+					l_a_buf[l_i_len++] = (byte) (0x80 | (c & 0x3F));
+				} else if (Character.isHighSurrogate(c) && i + 1 < l_i_chars && Character.isLowSurrogate(p_s_val.charAt(i + 1))) {
+					final int l_i_cp = Character.toCodePoint(c, p_s_val.charAt(++i));
+					l_a_buf[l_i_len++] = (byte) (0xF0 | (l_i_cp >> 18));
+					l_a_buf[l_i_len++] = (byte) (0x80 | ((l_i_cp >> 12) & 0x3F));
+					l_a_buf[l_i_len++] = (byte) (0x80 | ((l_i_cp >> 6) & 0x3F));
+					l_a_buf[l_i_len++] = (byte) (0x80 | (l_i_cp & 0x3F));
+				} else if (Character.isSurrogate(c)) {
+					l_a_buf[l_i_len++] = '?';	// unpaired surrogate, same as String.getBytes
+				} else {
+					l_a_buf[l_i_len++] = (byte) (0xE0 | (c >> 12));
+					l_a_buf[l_i_len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+					l_a_buf[l_i_len++] = (byte) (0x80 | (c & 0x3F));
+				}
+			}
+			c_i_len = l_i_len;
+			endLength(l_i_start);
+		}
+		/**
+		 * Reserve one byte for the varint length of the following content
+		 * @return start of the content, pass to {@link #endLength(int)}
+		 */
+		int beginLength(){
+			ensure(1);
+			return ++c_i_len;
+		}
+		/** Write the length of the content, moving it when the varint needs more than one byte */
+		void endLength(int p_i_start){
+			final int l_i_len = c_i_len - p_i_start;
+			int l_i_size = 1;
+			for (int l_i_val = l_i_len >>> 7; l_i_val != 0; l_i_val >>>= 7)
+				l_i_size++;
+			if (l_i_size > 1) {
+				ensure(l_i_size - 1);
+				System.arraycopy(c_a_buf, p_i_start, c_a_buf, p_i_start + l_i_size - 1, l_i_len);
+			}
+			int l_i_pos = p_i_start - 1;
+			int l_i_val = l_i_len;
+			while ((l_i_val & ~0x7F) != 0) {
+				c_a_buf[l_i_pos++] = (byte) ((l_i_val & 0x7F) | 0x80);
+				l_i_val >>>= 7;
+			}
+			c_a_buf[l_i_pos] = (byte) l_i_val;
+			c_i_len = p_i_start + l_i_size - 1 + l_i_len;
+		}
+	}
+
+	/** Decoding cursor */
+	private static final class Input {
+		final byte[] c_a_buf;
+		final int c_i_end;
+		int c_i_pos;
+
+		Input(byte[] p_a_buf, int p_i_off, int p_i_end){
+			this.c_a_buf = p_a_buf;
+			this.c_i_pos = p_i_off;
+			this.c_i_end = p_i_end;
+		}
+
+		private void require(int p_i_bytes) throws JsonParseException {
+			if (c_i_pos + p_i_bytes > c_i_end)
+				throw new JsonParseException("Unexpected end of binary Packet", null);
+		}
+		/** Tag of the next value, not consumed */
+		int peekTag() throws JsonParseException {
+			require(1);
+			return c_a_buf[c_i_pos] & 0xFF;
+		}
+		byte readByte() throws JsonParseException {
+			require(1);
+			return c_a_buf[c_i_pos++];
+		}
+		long readVarint() throws JsonParseException {
+			long r_l_val = 0;
+			for (int l_i_shift = 0; l_i_shift < 64; l_i_shift += 7) {
+				final byte l_b = readByte();
+				r_l_val |= (long) (l_b & 0x7F) << l_i_shift;
+				if (l_b >= 0)
+					return r_l_val;
+			}
+			throw new JsonParseException("Malformed varint", null);
+		}
+		long readZigzag() throws JsonParseException {
+			final long l_l_val = readVarint();
+			return (l_l_val >>> 1) ^ -(l_l_val & 1);
+		}
+		long readFixed(int p_i_bytes) throws JsonParseException {
+			require(p_i_bytes);
+			long r_l_bits = 0;
+			for (int i = 0; i < p_i_bytes; i++)
+				r_l_bits = (r_l_bits << 8) | (c_a_buf[c_i_pos++] & 0xFF);
+			return r_l_bits;
+		}
+		/**
+		 * Read a varint length and check the content is available
+		 * @return end of the content
+		 */
+		int readLength() throws JsonParseException {
+			final long l_l_len = readVarint();
+			if (l_l_len < 0 || l_l_len > c_i_end - c_i_pos)
+				throw new JsonParseException("Unexpected end of binary Packet", null);
+			return c_i_pos + (int) l_l_len;
+		}
+		String readString() throws JsonParseException {
+			final int l_i_end = readLength();
+			final String r_s_val = new String(c_a_buf, c_i_pos, l_i_end - c_i_pos, RawElement.UTF_8);
+			c_i_pos = l_i_end;
+			return r_s_val;
+		}
+		/** Same as {@link #readString()} for a key of the Packet, repeated keys are shared, see {@link KeyInterner} */
+		String readKey() throws JsonParseException {
+			final int l_i_end = readLength();
+			final String r_s_key = KeyInterner.intern(c_a_buf, c_i_pos, l_i_end - c_i_pos);
+			c_i_pos = l_i_end;
+			return r_s_key;
+		}
+		byte[] readBinary() throws JsonParseException {
+			final int l_i_end = readLength();
+			final byte[] r_a_val = Arrays.copyOfRange(c_a_buf, c_i_pos, l_i_end);
+			c_i_pos = l_i_end;
+			return r_a_val;
+		}
+		BigInteger readBigInteger() throws JsonParseException {
+			return new BigInteger(readBinary());
+		}
+		BigDecimal readBigDecimal() throws JsonParseException {
+			final int l_i_scale = (int) readZigzag();
+			return new BigDecimal(readBigInteger(), l_i_scale);
+		}
+		/** Skip a value without reading it, objects and arrays by their length */
+		void skipValue() throws JsonParseException {
+			final int l_i_tag = readByte() & 0xFF;
+			switch (l_i_tag) {
+			case T_NULL:
+			case T_FALSE:
+			case T_TRUE:
+				break;
+			case T_INT:
+			case T_LONG:
+				readVarint();
+				break;
+			case T_DOUBLE:
+			case T_FLOAT:
+				require(l_i_tag == T_DOUBLE? 8 : 4);
+				c_i_pos += l_i_tag == T_DOUBLE? 8 : 4;
+				break;
+			case T_BIG_DEC:
+				readVarint();	// scale, then the unscaled big integer
+				c_i_pos = readLength();
+				break;
+			case T_BIG_INT:
+			case T_STRING:
+			case T_BINARY:
+			case T_OBJECT:
+			case T_ARRAY:
+				c_i_pos = readLength();
+				break;
+			default:
+				if (l_i_tag < T_FIXINT)
+					throw new JsonParseException("Unknown tag: " + l_i_tag, null);
+			}
+		}
+	}
+}
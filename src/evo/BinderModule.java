@@ -0,0 +1,285 @@
+package evo;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBuilder;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.deser.impl.MethodProperty;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.impl.PropertySerializerMap;
+
+/**
+ * Jackson module of {@link PacketMapper} replacing the reflective getter and setter calls of registered classes.<br/>
+ * When the bean serializer or deserializer of a registered class is built, each public getter and setter is bound
+ * to a {@link Function} or {@link BiConsumer} spun by {@link LambdaMetafactory}, which the JIT inlines like a direct call,
+ * instead of {@link Method#invoke(Object, Object...)} with its argument array and access checks.
+ * Fields, creators and non-public members keep the accessors of Jackson.
+ * @rule
+ * <PRE>
+ * Serializers and deserializers are cached by the ObjectMapper, a class must be registered before its first use to be optimized.
+ * </PRE>
+ */
+final class BinderModule extends SimpleModule {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Classes to optimize */
+	private final Set<Class<?>> c_o_classes = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+	BinderModule(){
+		super("evo.BinderModule");
+		this.setDeserializerModifier(new BeanDeserializerModifier() {
+			@Override
+			public BeanDeserializerBuilder updateBuilder(DeserializationConfig config, BeanDescription beanDesc, BeanDeserializerBuilder builder) {
+				if (c_o_classes.contains(beanDesc.getBeanClass()))
+					bindSetters(builder);
+				return builder;
+			}
+		});
+		this.setSerializerModifier(new BeanSerializerModifier() {
+			@Override
+			public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+				if (c_o_classes.contains(beanDesc.getBeanClass()))
+					bindGetters(beanProperties);
+				return beanProperties;
+			}
+		});
+	}
+
+	void add(Class<?> p_cls_bean){
+		c_o_classes.add(p_cls_bean);
+	}
+
+	boolean contains(Class<?> p_cls_bean){
+		return c_o_classes.contains(p_cls_bean);
+	}
+
+//		Binding		\\
+	private static void bindSetters(BeanDeserializerBuilder p_o_builder){
+		final List<SettableBeanProperty> l_o_props = new ArrayList<SettableBeanProperty>();
+		for (Iterator<SettableBeanProperty> l_o_it = p_o_builder.getProperties(); l_o_it.hasNext();)
+			l_o_props.add(l_o_it.next());
+		for (SettableBeanProperty l_o_prop : l_o_props) {
+			if (!(l_o_prop instanceof MethodProperty))
+				continue;
+			final Method l_o_setter = ((AnnotatedMethod) l_o_prop.getMember()).getAnnotated();
+			final Object l_o_lambda = setter(l_o_setter);
+			if (l_o_lambda != null)
+				p_o_builder.addOrReplaceProperty(new SetterProperty(l_o_prop, l_o_lambda), true);
+		}
+	}
+
+	private static void bindGetters(List<BeanPropertyWriter> pl_o_writers){
+		for (int i = 0; i < pl_o_writers.size(); i++) {
+			final BeanPropertyWriter l_o_writer = pl_o_writers.get(i);
+			if (l_o_writer.getClass() != BeanPropertyWriter.class || !(l_o_writer.getMember() instanceof AnnotatedMethod))
+				continue;
+			final Function<Object, Object> l_o_getter = getter(((AnnotatedMethod) l_o_writer.getMember()).getAnnotated());
+			if (l_o_getter != null)
+				pl_o_writers.set(i, new GetterWriter(l_o_writer, l_o_getter));
+		}
+	}
+
+	/** true if a lambda spun in this package can call the method */
+	private static boolean isBindable(Method p_o_method){
+		final Class<?> l_cls_owner = p_o_method.getDeclaringClass();
+		if (!Modifier.isPublic(p_o_method.getModifiers()) || !Modifier.isPublic(l_cls_owner.getModifiers()))
+			return false;
+		for (Class<?> l_cls_outer = l_cls_owner.getEnclosingClass(); l_cls_outer != null; l_cls_outer = l_cls_outer.getEnclosingClass()) {
+			if (!Modifier.isPublic(l_cls_outer.getModifiers()))
+				return false;
+		}
+		try {	// visible from the class loader of the lambda
+			return Class.forName(l_cls_owner.getName(), false, BinderModule.class.getClassLoader()) == l_cls_owner;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/** @return a {@link BiConsumer} for void setters, a {@link BiFunction} returning the result otherwise, null if not bindable */
+	private static Object setter(Method p_o_setter){
+		if (!isBindable(p_o_setter) || p_o_setter.getParameterTypes().length != 1)
+			return null;
+		try {
+			final MethodHandles.Lookup l_o_lookup = MethodHandles.lookup();
+			final MethodHandle l_o_impl = l_o_lookup.unreflect(p_o_setter);
+			final Class<?> l_cls_owner = p_o_setter.getDeclaringClass();
+			final Class<?> l_cls_value = wrap(p_o_setter.getParameterTypes()[0]);
+			if (p_o_setter.getReturnType() == void.class)
+				return LambdaMetafactory.metafactory(l_o_lookup, "accept", MethodType.methodType(BiConsumer.class),
+						MethodType.methodType(void.class, Object.class, Object.class), l_o_impl,
+						MethodType.methodType(void.class, l_cls_owner, l_cls_value)).getTarget().invoke();
+			return LambdaMetafactory.metafactory(l_o_lookup, "apply", MethodType.methodType(BiFunction.class),
+					MethodType.methodType(Object.class, Object.class, Object.class), l_o_impl,
+					MethodType.methodType(wrap(p_o_setter.getReturnType()), l_cls_owner, l_cls_value)).getTarget().invoke();
+		} catch (Throwable e) {
+			return null;	// keep the reflective property
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Function<Object, Object> getter(Method p_o_getter){
+		if (!isBindable(p_o_getter) || p_o_getter.getParameterTypes().length != 0 || p_o_getter.getReturnType() == void.class)
+			return null;
+		try {
+			final MethodHandles.Lookup l_o_lookup = MethodHandles.lookup();
+			return (Function<Object, Object>) LambdaMetafactory.metafactory(l_o_lookup, "apply", MethodType.methodType(Function.class),
+					MethodType.methodType(Object.class, Object.class), l_o_lookup.unreflect(p_o_getter),
+					MethodType.methodType(wrap(p_o_getter.getReturnType()), p_o_getter.getDeclaringClass())).getTarget().invoke();
+		} catch (Throwable e) {
+			return null;	// keep the reflective writer
+		}
+	}
+
+	private static Class<?> wrap(Class<?> p_cls_type){
+		return p_cls_type.isPrimitive()? MethodType.methodType(p_cls_type).wrap().returnType() : p_cls_type;
+	}
+
+//		Properties		\\
+	/** Deserialized property set by a lambda, otherwise same as the {@link MethodProperty} it replaces */
+	static final class SetterProperty extends SettableBeanProperty {
+		private static final long serialVersionUID = 1L;
+
+		private final SettableBeanProperty c_o_base;
+		/** {@link BiConsumer} or {@link BiFunction} */
+		private final transient Object c_o_setter;
+
+		SetterProperty(SettableBeanProperty p_o_base, Object p_o_setter){
+			super(p_o_base);
+			this.c_o_base = p_o_base;
+			this.c_o_setter = p_o_setter;
+		}
+		private SetterProperty(SetterProperty p_o_src, JsonDeserializer<?> p_o_deser){
+			super(p_o_src, p_o_deser);
+			this.c_o_base = p_o_src.c_o_base.withValueDeserializer(p_o_deser);
+			this.c_o_setter = p_o_src.c_o_setter;
+		}
+		private SetterProperty(SetterProperty p_o_src, String p_s_name){
+			super(p_o_src, p_s_name);
+			this.c_o_base = p_o_src.c_o_base.withName(p_s_name);
+			this.c_o_setter = p_o_src.c_o_setter;
+		}
+
+		@Override
+		public SettableBeanProperty withValueDeserializer(JsonDeserializer<?> deser) {
+			return new SetterProperty(this, deser);
+		}
+		@Override
+		public SettableBeanProperty withName(String newName) {
+			return new SetterProperty(this, newName);
+		}
+
+		@Override
+		public <A extends Annotation> A getAnnotation(Class<A> acls) {
+			return c_o_base.getAnnotation(acls);
+		}
+		@Override
+		public AnnotatedMember getMember() {
+			return c_o_base.getMember();
+		}
+
+		@Override
+		public void deserializeAndSet(JsonParser jp, DeserializationContext ctxt, Object instance) throws IOException, JsonProcessingException {
+			this.set(instance, this.deserialize(jp, ctxt));
+		}
+		@Override
+		public Object deserializeSetAndReturn(JsonParser jp, DeserializationContext ctxt, Object instance) throws IOException, JsonProcessingException {
+			return this.setAndReturn(instance, this.deserialize(jp, ctxt));
+		}
+		@Override
+		public void set(Object instance, Object value) throws IOException {
+			this.setAndReturn(instance, value);
+		}
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object setAndReturn(Object instance, Object value) throws IOException {
+			try {
+				if (c_o_setter instanceof BiConsumer) {
+					((BiConsumer<Object, Object>) c_o_setter).accept(instance, value);
+					return instance;
+				}
+				final Object r_o_result = ((BiFunction<Object, Object, Object>) c_o_setter).apply(instance, value);
+				return r_o_result!=null? r_o_result : instance;	// same as MethodProperty, for builders
+			} catch (RuntimeException e) {
+				_throwAsIOE(e, value);
+				return null;
+			}
+		}
+	}
+
+	/** Serialized property read by a lambda, the rest is the same as {@link BeanPropertyWriter#serializeAsField(Object, JsonGenerator, SerializerProvider)} */
+	static final class GetterWriter extends BeanPropertyWriter {
+		private final Function<Object, Object> c_o_getter;
+
+		GetterWriter(BeanPropertyWriter p_o_base, Function<Object, Object> p_o_getter){
+			super(p_o_base);
+			this.c_o_getter = p_o_getter;
+		}
+
+		@Override
+		public void serializeAsField(Object bean, JsonGenerator jgen, SerializerProvider prov) throws Exception {
+			final Object l_o_val = c_o_getter.apply(bean);
+			if (l_o_val == null) {
+				if (_nullSerializer != null) {
+					jgen.writeFieldName(_name);
+					_nullSerializer.serialize(null, jgen, prov);
+				}
+				return;
+			}
+			JsonSerializer<Object> l_o_ser = _serializer;
+			if (l_o_ser == null) {
+				final Class<?> l_cls_val = l_o_val.getClass();
+				final PropertySerializerMap l_o_map = _dynamicSerializers;
+				l_o_ser = l_o_map.serializerFor(l_cls_val);
+				if (l_o_ser == null)
+					l_o_ser = _findAndAddDynamic(l_o_map, l_cls_val, prov);
+			}
+			if (_suppressableValue != null) {
+				if (MARKER_FOR_EMPTY == _suppressableValue) {
+					if (l_o_ser.isEmpty(l_o_val))
+						return;
+				} else if (_suppressableValue.equals(l_o_val)) {
+					return;
+				}
+			}
+			if (l_o_val == bean)
+				_handleSelfReference(bean, l_o_ser);
+			jgen.writeFieldName(_name);
+			if (_typeSerializer == null)
+				l_o_ser.serialize(l_o_val, jgen, prov);
+			else
+				l_o_ser.serializeWithType(l_o_val, jgen, prov, _typeSerializer);
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package evo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JSON compressed by raw deflate with a preset dictionary, for small repetitive Packets.<br/>
+ * A dictionary holds the key names and frequent string values of typical Packets, {@link #train(Collection, int)} builds it from samples,
+ * so even a Packet of a few hundred bytes compresses well, where plain gzip has nothing to refer to.
+ * Each frame names the version of its dictionary, every codec constructed stays able to decode its version,
+ * so frames of an older dictionary are still read after a new one is deployed.
+ * Deflaters and inflaters are reused per thread.
+ * <PRE>
+ * document		: 0xB8 version(varint) length(varint) deflated JSON
+ * </PRE>
+ * 0xB8 can not start a UTF-8 text, so the format never collides with JSON on detection.
+ * @usage
+ * <PRE>
+ * {@code
+ * byte[] dictionary = DeflatePacketCodec.train(samples, 2048);	// saved and shipped with the version
+ * DeflatePacketCodec codec = new DeflatePacketCodec(1, dictionary);
+ * PacketCodec.register(codec);
+ * byte[] bytes = packet.toByteArray(codec);
+ * Packet packet = Packet.fromBytes(bytes);	// format and dictionary are detected
+ * System.out.println(codec.getRatio());
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) A version must always denote the same dictionary, constructing another codec of a known version throws IllegalArgumentException.
+ * 2) Objects and arrays of a decoded Packet are JSON elements of the inflated document.
+ * 3) A frame announcing a JSON longer than {@link #getMaxLength()} is rejected like a malformed document. The limit and the decode stats
+ *    are those of the decoding codec for a frame of its version, of the first codec constructed of the version for older frames.
+ * </PRE>
+ */
+public class DeflatePacketCodec extends PacketCodec {
+
+	static final byte MAGIC = (byte) 0xB8;
+	/** Dictionaries longer than this are cut, deflate refers back 32 KB at most */
+	public static final int MAX_DICTIONARY = 32 * 1024;
+	/** Longer string values are not collected by {@link #train(Collection, int)} */
+	private static final int MAX_TRAINED_VALUE = 32;
+	/** Buffers grown larger than this by a large Packet are not kept */
+	private static final int MAX_KEPT_BUFFER = 1024 * 1024;
+	/** Default limit of the inflated length of a frame */
+	public static final int DEFAULT_MAX_LENGTH = 64 * 1024 * 1024;
+
+	/** Codecs by dictionary version, to decode any frame */
+	private static final ConcurrentMap<Integer, DeflatePacketCodec> CM_O_VERSIONS = new ConcurrentHashMap<Integer, DeflatePacketCodec>();
+
+	private static final ThreadLocal<Workspace> C_O_WORKSPACE = new ThreadLocal<Workspace>(){
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+
+	private final int c_i_version;
+	private final byte[] c_a_dictionary;
+	private final int c_i_level;
+	private final int c_i_maxLength;
+
+	private final LongAdder c_o_encodes = new LongAdder();
+	private final LongAdder c_o_decodes = new LongAdder();
+	private final LongAdder c_o_rawBytes = new LongAdder();
+	private final LongAdder c_o_deflatedBytes = new LongAdder();
+	private final LongAdder c_o_deflateNanos = new LongAdder();
+	private final LongAdder c_o_inflateNanos = new LongAdder();
+
+	/** Same as {@link #DeflatePacketCodec(int, byte[], int)} with the default compression level */
+	public DeflatePacketCodec(int p_i_version, byte[] p_a_dictionary){
+		this(p_i_version, p_a_dictionary, Deflater.DEFAULT_COMPRESSION);
+	}
+	/** Same as {@link #DeflatePacketCodec(int, byte[], int, int)} with the {@link #DEFAULT_MAX_LENGTH default limit} */
+	public DeflatePacketCodec(int p_i_version, byte[] p_a_dictionary, int p_i_level){
+		this(p_i_version, p_a_dictionary, p_i_level, DEFAULT_MAX_LENGTH);
+	}
+	/**
+	 * @param p_i_version version of the dictionary written in each frame, not negative
+	 * @param p_a_dictionary preset dictionary, the most frequent strings last, empty for plain deflate
+	 * @param p_i_level compression level of {@link Deflater}
+	 * @param p_i_maxLength frames of the version announcing a longer JSON are rejected before anything is allocated
+	 * @throws IllegalArgumentException if another dictionary has the version
+	 */
+	public DeflatePacketCodec(int p_i_version, byte[] p_a_dictionary, int p_i_level, int p_i_maxLength){
+		if (p_i_version < 0)
+			throw new IllegalArgumentException("Negative dictionary version: " + p_i_version);
+		this.c_i_version = p_i_version;
+		this.c_a_dictionary = p_a_dictionary.length > MAX_DICTIONARY?
+				Arrays.copyOfRange(p_a_dictionary, p_a_dictionary.length - MAX_DICTIONARY, p_a_dictionary.length) : p_a_dictionary.clone();
+		this.c_i_level = p_i_level;
+		this.c_i_maxLength = p_i_maxLength;
+		final DeflatePacketCodec l_o_known = CM_O_VERSIONS.putIfAbsent(p_i_version, this);
+		if (l_o_known != null && !Arrays.equals(l_o_known.c_a_dictionary, c_a_dictionary))
+			throw new IllegalArgumentException("Dictionary version " + p_i_version + " is already defined");
+	}
+
+//		GETTER		\\
+	public int getVersion()		{return this.c_i_version;}
+	public int getMaxLength()		{return this.c_i_maxLength;}
+	public byte[] getDictionary()	{return this.c_a_dictionary.clone();}
+	public long getEncodes()		{return c_o_encodes.sum();}
+	public long getDecodes()		{return c_o_decodes.sum();}
+	/** Deflated bytes per JSON byte of the encoded Packets, 1 if none */
+	public double getRatio(){
+		final long l_l_raw = c_o_rawBytes.sum();
+		return l_l_raw > 0? (double) c_o_deflatedBytes.sum() / l_l_raw : 1d;
+	}
+	/** Average nanoseconds of deflating a Packet, the JSON encoding excluded */
+	public double getDeflateNanos(){
+		final long l_l_count = c_o_encodes.sum();
+		return l_l_count > 0? (double) c_o_deflateNanos.sum() / l_l_count : 0d;
+	}
+	/** Average nanoseconds of inflating a Packet, the JSON decoding excluded */
+	public double getInflateNanos(){
+		final long l_l_count = c_o_decodes.sum();
+		return l_l_count > 0? (double) c_o_inflateNanos.sum() / l_l_count : 0d;
+	}
+
+	/** Zero the counters */
+	public void resetStats(){
+		c_o_encodes.reset();
+		c_o_decodes.reset();
+		c_o_rawBytes.reset();
+		c_o_deflatedBytes.reset();
+		c_o_deflateNanos.reset();
+		c_o_inflateNanos.reset();
+	}
+
+	@Override
+	public String getName() {
+		return "deflate-v" + c_i_version;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[dictionary=%d bytes, encodes=%d, ratio=%.3f, deflate=%.0f ns, decodes=%d, inflate=%.0f ns]",
+				this.getName(), c_a_dictionary.length, this.getEncodes(), this.getRatio(), this.getDeflateNanos(),
+				this.getDecodes(), this.getInflateNanos());
+	}
+
+//		Codec		\\
+	@Override
+	public boolean accept(byte[] p_a_buf, int p_i_off, int p_i_len) {
+		return p_i_len >= 3 && p_a_buf[p_i_off] == MAGIC;
+	}
+
+	/** The document is inflated to an array of its length, owned by the Packet, then decoded by {@link PacketCodec#JSON} */
+	@Override
+	protected void decode(Packet p_o_pack, byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException {
+		final byte[] l_a_json = this.inflate(p_a_buf, p_i_off, p_i_len);
+		PacketCodec.JSON.decode(p_o_pack, l_a_json, 0, l_a_json.length);
+	}
+
+	@Override
+	protected void encode(Packet p_o_pack, OutputStream p_o_out) throws IOException {
+		final Workspace l_o_ws = C_O_WORKSPACE.get();
+		final Workspace.Buffer l_o_json = l_o_ws.c_o_json;
+		l_o_json.reset();
+		PacketCodec.JSON.encode(p_o_pack, l_o_json);
+		final long l_l_start = System.nanoTime();
+		final Deflater l_o_deflater = l_o_ws.deflater(c_i_level);
+		l_o_deflater.setDictionary(c_a_dictionary);
+		l_o_deflater.setInput(l_o_json.array(), 0, l_o_json.size());
+		l_o_deflater.finish();
+		final Workspace.Buffer l_o_out = l_o_ws.c_o_out;
+		l_o_out.reset();
+		l_o_out.write(MAGIC);
+		l_o_out.writeVarint(c_i_version);
+		l_o_out.writeVarint(l_o_json.size());
+		final int l_i_header = l_o_out.size();
+		while (!l_o_deflater.finished())
+			l_o_out.deflate(l_o_deflater);
+		c_o_deflateNanos.add(System.nanoTime() - l_l_start);
+		c_o_encodes.increment();
+		c_o_rawBytes.add(l_o_json.size());
+		c_o_deflatedBytes.add(l_o_out.size() - l_i_header);
+		p_o_out.write(l_o_out.array(), 0, l_o_out.size());
+		l_o_ws.trim();
+	}
+
+	/** Elements of a decoded Packet are JSON, this is only used over a whole document */
+	@Override
+	public JsonParser createParser(ObjectMapper p_o_mapper, byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException {
+		final byte[] l_a_json = this.inflate(p_a_buf, p_i_off, p_i_len);
+		return PacketCodec.JSON.createParser(p_o_mapper, l_a_json, 0, l_a_json.length);
+	}
+
+	/** A document is always an object */
+	@Override
+	public boolean isArray(byte[] p_a_buf, int p_i_off) {
+		return false;
+	}
+
+	/**
+	 * Inflate a frame by this codec if it is of its version, so its limit and stats apply,
+	 * otherwise by the first codec constructed of the version of the frame
+	 */
+	private byte[] inflate(byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException {
+		final int[] l_a_pos = {p_i_off + 1};
+		final int l_i_end = p_i_off + p_i_len;
+		final int l_i_version = readVarint(p_a_buf, l_a_pos, l_i_end);
+		final int l_i_len = readVarint(p_a_buf, l_a_pos, l_i_end);
+		final DeflatePacketCodec l_o_codec = l_i_version == c_i_version? this : CM_O_VERSIONS.get(l_i_version);
+		if (l_o_codec == null)
+			throw new JsonParseException("Unknown dictionary version: " + l_i_version, null);
+		if (l_i_len < 0 || l_i_len > l_o_codec.c_i_maxLength)	// the length is read from the frame, never trusted
+			throw new JsonParseException("Invalid inflated length of deflated Packet: " + (l_i_len & 0xFFFFFFFFL), null);
+		final long l_l_start = System.nanoTime();
+		final Inflater l_o_inflater = C_O_WORKSPACE.get().inflater();
+		l_o_inflater.setDictionary(l_o_codec.c_a_dictionary);
+		l_o_inflater.setInput(p_a_buf, l_a_pos[0], l_i_end - l_a_pos[0]);
+		final byte[] r_a_json = new byte[l_i_len];
+		try {
+			int l_i_done = 0;
+			while (l_i_done < l_i_len) {
+				final int l_i_read = l_o_inflater.inflate(r_a_json, l_i_done, l_i_len - l_i_done);
+				if (l_i_read == 0 && (l_o_inflater.finished() || l_o_inflater.needsInput()))
+					throw new JsonParseException("Truncated deflated Packet", null);
+				l_i_done += l_i_read;
+			}
+		} catch (DataFormatException e) {
+			throw new JsonParseException("Corrupt deflated Packet: " + e.getMessage(), null, e);
+		}
+		l_o_codec.c_o_inflateNanos.add(System.nanoTime() - l_l_start);
+		l_o_codec.c_o_decodes.increment();
+		return r_a_json;
+	}
+
+	private static int readVarint(byte[] p_a_buf, int[] p_a_pos, int p_i_end) throws JsonParseException {
+		int r_i_val = 0;
+		for (int l_i_shift = 0; l_i_shift < 32; l_i_shift += 7) {
+			if (p_a_pos[0] >= p_i_end)
+				throw new JsonParseException("Truncated deflated Packet", null);
+			final byte l_b_byte = p_a_buf[p_a_pos[0]++];
+			r_i_val |= (l_b_byte & 0x7F) << l_i_shift;
+			if (l_b_byte >= 0)
+				return r_i_val;
+		}
+		throw new JsonParseException("Malformed varint in deflated Packet", null);
+	}
+
+//		Training		\\
+	/**
+	 * Build a dictionary from sample Packets: the key names and the short string values, weighted by their frequency and length,
+	 * ordered so the most valuable strings are last, nearest to the data.
+	 * @param p_i_maxSize bytes of the dictionary, at most {@link #MAX_DICTIONARY}
+	 */
+	public static byte[] train(Collection<? extends Packet> pl_o_samples, int p_i_maxSize){
+		final Map<String, int[]> lm_a_counts = new HashMap<String, int[]>();
+		for (Packet l_o_pack : pl_o_samples) {
+			try {
+				final byte[] l_a_json = l_o_pack.toByteArray(PacketCodec.JSON);
+				final JsonParser l_o_parser = l_o_pack.getMapper().getFactory().createParser(l_a_json);
+				try {
+					for (JsonToken l_o_token; (l_o_token = l_o_parser.nextToken()) != null;) {
+						if (l_o_token == JsonToken.FIELD_NAME)
+							count(lm_a_counts, '"' + l_o_parser.getCurrentName() + "\":");
+						else if (l_o_token == JsonToken.VALUE_STRING && l_o_parser.getTextLength() <= MAX_TRAINED_VALUE)
+							count(lm_a_counts, '"' + l_o_parser.getText() + '"');
+					}
+				} finally {
+					l_o_parser.close();
+				}
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Cannot encode a sample Packet", e);
+			}
+		}
+		final List<Entry<String, int[]>> ll_o_ranked = new ArrayList<Entry<String, int[]>>(lm_a_counts.entrySet());
+		Collections.sort(ll_o_ranked, new Comparator<Entry<String, int[]>>() {
+			@Override
+			public int compare(Entry<String, int[]> p_o_a, Entry<String, int[]> p_o_b) {	// most saved bytes first
+				return Long.compare((long) p_o_b.getValue()[0] * p_o_b.getKey().length(), (long) p_o_a.getValue()[0] * p_o_a.getKey().length());
+			}
+		});
+		final int l_i_max = Math.min(p_i_maxSize, MAX_DICTIONARY);
+		final List<byte[]> ll_a_picked = new ArrayList<byte[]>();
+		int l_i_size = 0;
+		for (Entry<String, int[]> l_o_entry : ll_o_ranked) {
+			if (l_o_entry.getValue()[0] < 2)	// seen once, not worth the room
+				break;
+			final byte[] l_a_str = l_o_entry.getKey().getBytes(RawElement.UTF_8);
+			if (l_i_size + l_a_str.length > l_i_max)
+				continue;
+			ll_a_picked.add(l_a_str);
+			l_i_size += l_a_str.length;
+		}
+		final ByteArrayOutputStream r_o_dict = new ByteArrayOutputStream(l_i_size);
+		for (int i = ll_a_picked.size() - 1; i >= 0; i--)
+			r_o_dict.write(ll_a_picked.get(i), 0, ll_a_picked.get(i).length);
+		return r_o_dict.toByteArray();
+	}
+
+	private static void count(Map<String, int[]> pm_a_counts, String p_s_str){
+		final int[] l_a_count = pm_a_counts.get(p_s_str);
+		if (l_a_count != null)
+			l_a_count[0]++;
+		else
+			pm_a_counts.put(p_s_str, new int[]{1});
+	}
+
+	/** Deflater, inflater and buffers of a thread */
+	private static final class Workspace {
+		private Deflater c_o_deflater;
+		private int c_i_level;
+		private Inflater c_o_inflater;
+		private final Buffer c_o_json = new Buffer();
+		private final Buffer c_o_out = new Buffer();
+
+		Deflater deflater(int p_i_level){
+			if (c_o_deflater == null || c_i_level != p_i_level) {
+				if (c_o_deflater != null)
+					c_o_deflater.end();
+				c_o_deflater = new Deflater(p_i_level, true);
+				c_i_level = p_i_level;
+			} else
+				c_o_deflater.reset();
+			return c_o_deflater;
+		}
+
+		Inflater inflater(){
+			if (c_o_inflater == null)
+				c_o_inflater = new Inflater(true);
+			else
+				c_o_inflater.reset();
+			return c_o_inflater;
+		}
+
+		void trim(){
+			c_o_json.trim();
+			c_o_out.trim();
+		}
+
+		/** Growable buffer exposing its array */
+		static final class Buffer extends ByteArrayOutputStream {
+			Buffer(){
+				super(1024);
+			}
+
+			byte[] array()	{return this.buf;}
+
+			void trim(){
+				if (buf.length > MAX_KEPT_BUFFER)
+					buf = new byte[1024];
+			}
+
+			void writeVarint(int p_i_val){
+				int l_i_val = p_i_val;
+				while ((l_i_val & ~0x7F) != 0) {
+					this.write((l_i_val & 0x7F) | 0x80);
+					l_i_val >>>= 7;
+				}
+				this.write(l_i_val);
+			}
+
+			/** Deflate into the free room of the buffer, growing it when full */
+			void deflate(Deflater p_o_deflater){
+				if (count == buf.length)
+					buf = Arrays.copyOf(buf, buf.length << 1);
+				count += p_o_deflater.deflate(buf, count, buf.length - count);
+			}
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package evo;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable Map core of {@link Packet}, made by {@link Packet#freeze()} to share a Packet between threads without locks.<br/>
+ * Keys and values are stored side by side in one flat array, an open addressing table with linear probing at most two thirds full,
+ * with the hash code of each key precomputed in a parallel int[]. A core of 16 keys takes about 29 bytes per entry
+ * without the values, against about 44 bytes for a HashMap.<br/>
+ * Values are immutable: strings, boxed numbers, booleans and enums are kept, objects and arrays are kept or written
+ * as {@link RawElement}s, so each typed get binds a new copy from the bytes and never writes the core.
+ * A byte[] is copied when frozen and again by each get, since its JSON is a Base64 string that would not be read back as bytes.
+ * Every field is final, so the core is safely published with the Packet.
+ * @rule
+ * <PRE>
+ * 1) Putting or removing a key throws UnsupportedOperationException.
+ * 2) The bytes of the raw elements must not be modified, like the source of any decoded Packet.
+ * 3) The iteration order is not specified.
+ * 4) Other values written as a JSON string or number are read back by a converter of {@link PacketConverters},
+ *    such as a Calendar from its epoch milliseconds, or as the string or number itself.
+ * </PRE>
+ */
+public final class FrozenCore extends AbstractMap<String, Object> {
+
+	/** Key of slot i at 2 * i, its value at 2 * i + 1, null key is empty */
+	private final Object[] c_a_table;
+	/** Hash code of the key of each slot */
+	private final int[] c_a_hashes;
+	/** 32 - log2 of the slots, see {@link #home(int)} */
+	private final int c_i_shift;
+	private final int c_i_size;
+
+	/**
+	 * @param pm_o_map values of a Packet, objects and arrays are written to JSON by the mapper
+	 * @throws IllegalArgumentException if a value cannot be serialized
+	 */
+	FrozenCore(Map<String, ? extends Object> pm_o_map, PacketMapper p_o_mapper){
+		final int l_i_size = pm_o_map.size();
+		int l_i_capacity = 2, l_i_shift = 31;
+		while (l_i_capacity * 2 < l_i_size * 3) {
+			l_i_capacity <<= 1;
+			l_i_shift--;
+		}
+		this.c_i_shift = l_i_shift;
+		final Object[] l_a_table = new Object[l_i_capacity << 1];
+		final int[] l_a_hashes = new int[l_i_capacity];
+		int l_i_count = 0;
+		for (Entry<String, ? extends Object> l_o_entry : pm_o_map.entrySet()) {
+			final String l_s_key = l_o_entry.getKey();
+			final int l_i_hash = l_s_key.hashCode();
+			int i = this.home(l_i_hash);
+			while (l_a_table[i << 1] != null)
+				i = (i + 1) & (l_i_capacity - 1);
+			l_a_table[i << 1] = l_s_key;
+			l_a_table[(i << 1) + 1] = immutable(l_s_key, l_o_entry.getValue(), p_o_mapper);
+			l_a_hashes[i] = l_i_hash;
+			l_i_count++;
+		}
+		this.c_a_table = l_a_table;
+		this.c_a_hashes = l_a_hashes;
+		this.c_i_size = l_i_count;
+	}
+
+	/** First slot of the hash, by its high bits multiplied by the golden ratio, so keys of consecutive hashes such as "key1", "key2" do not cluster */
+	private int home(int p_i_hash){
+		return (p_i_hash * 0x9E3779B9) >>> c_i_shift;
+	}
+
+	/** The value itself if it is immutable, otherwise its JSON */
+	private static Object immutable(String p_s_key, Object p_o_val, PacketMapper p_o_mapper){
+		if (p_o_val == null || p_o_val instanceof String || p_o_val instanceof Boolean || p_o_val instanceof Character
+				|| p_o_val instanceof Integer || p_o_val instanceof Long || p_o_val instanceof Double || p_o_val instanceof Float
+				|| p_o_val instanceof Short || p_o_val instanceof Byte || p_o_val instanceof BigInteger || p_o_val instanceof BigDecimal
+				|| p_o_val instanceof Enum || p_o_val instanceof RawElement)
+			return p_o_val;
+		if (p_o_val instanceof byte[])
+			return ((byte[]) p_o_val).clone();
+		try {
+			final byte[] l_a_json = OrgJson.isJSON(p_o_val)? p_o_val.toString().getBytes(RawElement.UTF_8) : p_o_mapper.writer().writeValueAsBytes(p_o_val);
+			if (l_a_json.length > 0 && (l_a_json[0] == '{' || l_a_json[0] == '['))
+				return new RawElement(l_a_json, 0, l_a_json.length);
+			return p_o_mapper.getObjectMapper().readValue(l_a_json, Object.class);	// a Calendar as epoch milliseconds, for example
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Cannot freeze the value of " + p_s_key, e);
+		}
+	}
+
+//		Map		\\
+	@Override
+	public int size() {
+		return c_i_size;
+	}
+
+	@Override
+	public boolean containsKey(Object p_o_key) {
+		return this.slot(p_o_key) >= 0;
+	}
+
+	@Override
+	public Object get(Object p_o_key) {
+		final int l_i_slot = this.slot(p_o_key);
+		return l_i_slot >= 0? this.value(l_i_slot) : null;
+	}
+
+	/** Value of the slot, a copy of a byte[] */
+	private Object value(int p_i_slot){
+		final Object r_o_val = c_a_table[(p_i_slot << 1) + 1];
+		return r_o_val instanceof byte[]? ((byte[]) r_o_val).clone() : r_o_val;
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new AbstractSet<Entry<String, Object>>() {
+			@Override
+			public Iterator<Entry<String, Object>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return c_i_size;
+			}
+		};
+	}
+
+	/** @return slot of the key, -1 if absent */
+	private int slot(Object p_o_key){
+		if (!(p_o_key instanceof String))
+			return -1;
+		final int l_i_hash = p_o_key.hashCode();
+		final int l_i_mask = c_a_hashes.length - 1;
+		for (int i = this.home(l_i_hash); ; i = (i + 1) & l_i_mask) {
+			final Object l_o_key = c_a_table[i << 1];
+			if (l_o_key == p_o_key)	// literal and interned keys
+				return i;
+			if (l_o_key == null)
+				return -1;
+			if (c_a_hashes[i] == l_i_hash && p_o_key.equals(l_o_key))
+				return i;
+		}
+	}
+
+	/** Slots in table order, skipping the empty slots */
+	private final class EntryIterator implements Iterator<Entry<String, Object>> {
+		private int c_i_next = this.skip(0);
+
+		private int skip(int p_i_slot){
+			int r_i_slot = p_i_slot;
+			while (r_i_slot < c_a_hashes.length && c_a_table[r_i_slot << 1] == null)
+				r_i_slot++;
+			return r_i_slot;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return c_i_next < c_a_hashes.length;
+		}
+
+		@Override
+		public Entry<String, Object> next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException();
+			final int l_i_slot = c_i_next;
+			c_i_next = this.skip(l_i_slot + 1);
+			return new SimpleImmutableEntry<String, Object>((String) c_a_table[l_i_slot << 1], value(l_i_slot));
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("FrozenCore is read-only");
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package evo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Textual JSON codec, see {@link PacketCodec#JSON}.<br/>
+ * Decoding is a single pass over the top level of the document by Jackson's streaming parser,
+ * objects and arrays are skipped at token level and kept as a byte range of the buffer.
+ */
+final class JsonPacketCodec extends PacketCodec {
+
+	JsonPacketCodec(){
+	}
+
+	@Override
+	public String getName() {
+		return "json";
+	}
+
+	/** Accept anything, JSON is the fallback of detection */
+	@Override
+	public boolean accept(byte[] p_a_buf, int p_i_off, int p_i_len) {
+		return true;
+	}
+
+	@Override
+	protected void decode(Packet p_o_pack, byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException {
+		final JsonParser l_o_parser = p_o_pack.getMapper().getFactory().createParser(p_a_buf, p_i_off, p_i_len);
+		try {
+			if (l_o_parser.nextToken() != JsonToken.START_OBJECT)
+				throw new JsonParseException("Packet must be a JSON object", l_o_parser.getCurrentLocation());
+			final PrimitiveCore l_o_prims = p_o_pack.getCore() instanceof PrimitiveCore? (PrimitiveCore) p_o_pack.getCore() : null;
+			int l_i_wanted = p_o_pack.countSelected();
+			while (l_i_wanted != 0 && l_o_parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String l_s_key = l_o_parser.getCurrentName();
+				final JsonToken l_o_token = l_o_parser.nextToken();
+				if (!p_o_pack.isSelected(l_s_key)) {	// projected out, skipped without reading the value
+					if (l_o_token == JsonToken.START_OBJECT || l_o_token == JsonToken.START_ARRAY)
+						l_o_parser.skipChildren();
+					continue;
+				}
+				if (l_o_prims == null || !readPrimitive(l_o_prims, l_s_key, l_o_parser))
+					p_o_pack.putElement(l_s_key, this.readElement(p_o_pack, l_o_parser, p_a_buf));
+				l_i_wanted--;
+			}
+		} finally {
+			l_o_parser.close();
+		}
+	}
+
+	/**
+	 * Put the value of current field to the slots without boxing.
+	 * @return false if the value is not a primitive
+	 */
+	private static boolean readPrimitive(PrimitiveCore p_o_prims, String p_s_key, JsonParser p_o_parser) throws IOException {
+		switch (p_o_parser.getCurrentToken()) {
+		case VALUE_NUMBER_INT:
+			switch (p_o_parser.getNumberType()) {
+			case INT:	p_o_prims.putInt(p_s_key, p_o_parser.getIntValue());	return true;
+			case LONG:	p_o_prims.putLong(p_s_key, p_o_parser.getLongValue());	return true;
+			default:	return false;	// BigInteger
+			}
+		case VALUE_NUMBER_FLOAT:
+			p_o_prims.putDouble(p_s_key, p_o_parser.getDoubleValue());
+			return true;
+		case VALUE_TRUE:
+			p_o_prims.putBoolean(p_s_key, true);
+			return true;
+		case VALUE_FALSE:
+			p_o_prims.putBoolean(p_s_key, false);
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/** Read the value of current field, the parser must be at the value token. */
+	private Object readElement(Packet p_o_pack, JsonParser p_o_parser, byte[] p_a_buf) throws IOException {
+		switch (p_o_parser.getCurrentToken()) {
+		case START_OBJECT:
+		case START_ARRAY:
+			// Byte parsers read the whole array as their input buffer, so the location is the absolute index of the current byte.
+			final int l_i_start = (int) p_o_parser.getCurrentLocation().getCharOffset();
+			final byte l_b_start = l_i_start >= 0 && l_i_start < p_a_buf.length? p_a_buf[l_i_start] : 0;
+			if (l_b_start == '{' || l_b_start == '[') {
+				p_o_parser.skipChildren();
+				final int l_i_end = (int) p_o_parser.getCurrentLocation().getCharOffset() + 1;
+				return new RawElement(this, p_a_buf, l_i_start, l_i_end - l_i_start);
+			} else {	// unexpected location, fall back to re-encoding the element
+				final PacketMapper l_o_mapper = p_o_pack.getMapper();
+				final byte[] l_a_elem = l_o_mapper.writer().writeValueAsBytes(l_o_mapper.getObjectMapper().readTree(p_o_parser));
+				return new RawElement(this, l_a_elem, 0, l_a_elem.length);
+			}
+		case VALUE_STRING:
+			return p_o_parser.getText();
+		case VALUE_NUMBER_INT:
+			return p_o_parser.getNumberValue();
+		case VALUE_NUMBER_FLOAT:
+			return p_o_parser.getDoubleValue();
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		case VALUE_NULL:
+			return null;
+		default:
+			throw new JsonParseException("Unexpected token: " + p_o_parser.getCurrentToken(), p_o_parser.getCurrentLocation());
+		}
+	}
+
+	@Override
+	protected void encode(Packet p_o_pack, OutputStream p_o_out) throws IOException {
+		final PacketMapper l_o_mapper = p_o_pack.getMapper();
+		final JsonGenerator l_o_gen = l_o_mapper.getFactory().createGenerator(p_o_out);
+		try {
+			l_o_gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			l_o_mapper.writer().writeValue(l_o_gen, p_o_pack.getCore());
+		} finally {
+			l_o_gen.close();	// flush
+		}
+	}
+
+	@Override
+	protected byte[] encode(Packet p_o_pack) throws IOException {
+		return p_o_pack.getMapper().writer().writeValueAsBytes(p_o_pack.getCore());
+	}
+
+	@Override
+	public JsonParser createParser(ObjectMapper p_o_mapper, byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException {
+		return p_o_mapper.getFactory().createParser(p_a_buf, p_i_off, p_i_len);
+	}
+
+	@Override
+	public boolean isArray(byte[] p_a_buf, int p_i_off) {
+		return p_a_buf[p_i_off] == '[';
+	}
+}
@@ -0,0 +1,56 @@
+package evo;
+
+/**
+ * Shared table of decoded key strings, so the keys repeated across documents are not allocated per document.<br/>
+ * The table is direct-mapped by the hash of the UTF-8 bytes, a key replaces the key of another hash in its slot.
+ * Keys read by Jackson are canonicalized by its own symbol table already, this table serves the other codecs.
+ * Slots are published racily, their entries are immutable, so the table is thread-safe without locking.
+ */
+final class KeyInterner {
+
+	private static final int SLOTS = 4096;
+	/** Longer keys are rarely repeated, they are allocated */
+	private static final int MAX_KEY = 64;
+
+	private static final Entry[] C_A_SLOTS = new Entry[SLOTS];
+
+	private KeyInterner(){
+	}
+
+	/** @return the string of the UTF-8 bytes, the same instance as the last decoded equal key if it is still in its slot */
+	static String intern(byte[] p_a_buf, int p_i_off, int p_i_len){
+		if (p_i_len > MAX_KEY)
+			return new String(p_a_buf, p_i_off, p_i_len, RawElement.UTF_8);
+		int l_i_hash = p_i_len;
+		for (int i = p_i_off, l_i_end = p_i_off + p_i_len; i < l_i_end; i++)
+			l_i_hash = 31 * l_i_hash + p_a_buf[i];
+		final int l_i_slot = (l_i_hash ^ (l_i_hash >>> 16)) & (SLOTS - 1);
+		final Entry l_o_entry = C_A_SLOTS[l_i_slot];
+		if (l_o_entry != null && l_o_entry.matches(p_a_buf, p_i_off, p_i_len))
+			return l_o_entry.c_s_key;
+		final String r_s_key = new String(p_a_buf, p_i_off, p_i_len, RawElement.UTF_8);
+		C_A_SLOTS[l_i_slot] = new Entry(r_s_key, p_a_buf, p_i_off, p_i_len);
+		return r_s_key;
+	}
+
+	private static final class Entry {
+		private final String c_s_key;
+		private final byte[] c_a_bytes;
+
+		Entry(String p_s_key, byte[] p_a_buf, int p_i_off, int p_i_len){
+			this.c_s_key = p_s_key;
+			this.c_a_bytes = new byte[p_i_len];
+			System.arraycopy(p_a_buf, p_i_off, c_a_bytes, 0, p_i_len);
+		}
+
+		boolean matches(byte[] p_a_buf, int p_i_off, int p_i_len){
+			if (c_a_bytes.length != p_i_len)
+				return false;
+			for (int i = 0; i < p_i_len; i++) {
+				if (c_a_bytes[i] != p_a_buf[p_i_off + i])
+					return false;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package evo;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only Map core of {@link Packet} whose fields are encoded in a block of direct memory of a {@link PacketArena}.<br/>
+ * The heap keeps this handle only. Each get decodes the field from the block: numbers, booleans and strings directly,
+ * objects and arrays as a {@link RawElement} copied to the heap, so the typed get methods of Packet bind them straight from the bytes.
+ * Materialized values are not cached in the core, they are garbage as soon as the caller drops them.<br/>
+ * A block is the fields one after the other: key length as 2 bytes, UTF-8 key, kind, value length as 4 bytes, value.
+ * A key is found by scanning the fields, comparing the lengths first.
+ * @rule
+ * <PRE>
+ * 1) Putting or removing a key throws UnsupportedOperationException.
+ * 2) Call {@link Packet#release()} or {@link #release()} once when the Packet is dropped, the block is then reused by the arena.
+ * 3) Reading a released core throws IllegalStateException.
+ * </PRE>
+ */
+public final class OffHeapCore extends AbstractMap<String, Object> {
+
+	/** Kinds of value */
+	static final byte K_NULL = 0, K_INT = 1, K_LONG = 2, K_DOUBLE = 3, K_BOOLEAN = 4, K_STRING = 5, K_NUMBER = 6, K_RAW = 7;
+
+	private final PacketArena c_o_arena;
+	private final PacketArena.Chunk c_o_chunk;
+	private final int c_i_off;
+	private final int c_i_len;
+	private final int c_i_size;
+	private volatile boolean c_fl_released;
+
+	OffHeapCore(PacketArena p_o_arena, PacketArena.Chunk p_o_chunk, int p_i_off, int p_i_len, int p_i_size){
+		this.c_o_arena = p_o_arena;
+		this.c_o_chunk = p_o_chunk;
+		this.c_i_off = p_i_off;
+		this.c_i_len = p_i_len;
+		this.c_i_size = p_i_size;
+	}
+
+	/** Copy the encoded fields into the block, once by the arena before the core is returned */
+	void fill(byte[] p_a_block){
+		final ByteBuffer l_o_mem = c_o_chunk.c_o_mem.duplicate();
+		l_o_mem.position(c_i_off);
+		l_o_mem.put(p_a_block, 0, c_i_len);
+	}
+
+//		GETTER		\\
+	/** Bytes of the block in direct memory */
+	public int getBlockLength()		{return this.c_i_len;}
+	public boolean isReleased()		{return this.c_fl_released;}
+
+	/**
+	 * Give the block back to the arena.
+	 * @throws IllegalStateException if the core is already released
+	 */
+	public void release(){
+		synchronized (this) {
+			if (c_fl_released)
+				throw new IllegalStateException("OffHeapCore is already released");
+			c_fl_released = true;
+		}
+		c_o_arena.release(c_o_chunk, c_i_len);
+	}
+
+//		Map		\\
+	@Override
+	public int size() {
+		return c_i_size;
+	}
+
+	@Override
+	public boolean containsKey(Object p_o_key) {
+		return p_o_key instanceof String && this.find((String) p_o_key) >= 0;
+	}
+
+	@Override
+	public Object get(Object p_o_key) {
+		if (!(p_o_key instanceof String))
+			return null;
+		final int l_i_pos = this.find((String) p_o_key);
+		return l_i_pos < 0? null : this.valueAt(this.kindOf(l_i_pos));
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new AbstractSet<Entry<String, Object>>() {
+			@Override
+			public Iterator<Entry<String, Object>> iterator() {
+				return new FieldIterator();
+			}
+
+			@Override
+			public int size() {
+				return c_i_size;
+			}
+		};
+	}
+
+//		Block		\\
+	/** @return position of the field of the key, -1 if not found */
+	private int find(String p_s_key){
+		final ByteBuffer l_o_mem = this.memory();
+		final int l_i_end = c_i_off + c_i_len;
+		for (int l_i_pos = c_i_off; l_i_pos < l_i_end;) {
+			final int l_i_keyLen = l_o_mem.getShort(l_i_pos) & 0xFFFF;
+			if (matches(l_o_mem, l_i_pos + 2, l_i_keyLen, p_s_key))
+				return l_i_pos;
+			l_i_pos += 2 + l_i_keyLen + 1;
+			l_i_pos += 4 + l_o_mem.getInt(l_i_pos);
+		}
+		return -1;
+	}
+
+	/** Compare ASCII keys without decoding, other keys by their decoded string */
+	private static boolean matches(ByteBuffer p_o_mem, int p_i_off, int p_i_len, String p_s_key){
+		if (p_i_len < p_s_key.length())
+			return false;
+		for (int i = 0; i < p_i_len; i++) {
+			final byte l_b_byte = p_o_mem.get(p_i_off + i);
+			if (l_b_byte < 0)
+				return decode(p_o_mem, p_i_off, p_i_len).equals(p_s_key);
+			if (i >= p_s_key.length() || l_b_byte != p_s_key.charAt(i))
+				return false;
+		}
+		return p_i_len == p_s_key.length();
+	}
+
+	/** @return position of the kind of the field */
+	private int kindOf(int p_i_pos){
+		return p_i_pos + 2 + (this.memory().getShort(p_i_pos) & 0xFFFF);
+	}
+
+	/** Materialize the value of the kind at the position */
+	private Object valueAt(int p_i_pos){
+		final ByteBuffer l_o_mem = this.memory();
+		final int l_i_val = p_i_pos + 5;
+		switch (l_o_mem.get(p_i_pos)) {
+		case K_NULL:
+			return null;
+		case K_INT:
+			return l_o_mem.getInt(l_i_val);
+		case K_LONG:
+			return l_o_mem.getLong(l_i_val);
+		case K_DOUBLE:
+			return l_o_mem.getDouble(l_i_val);
+		case K_BOOLEAN:
+			return l_o_mem.get(l_i_val) != 0;
+		case K_STRING:
+			return decode(l_o_mem, l_i_val, l_o_mem.getInt(p_i_pos + 1));
+		case K_NUMBER:
+			final String l_s_num = decode(l_o_mem, l_i_val, l_o_mem.getInt(p_i_pos + 1));
+			return l_s_num.indexOf('.') >= 0 || l_s_num.indexOf('e') >= 0 || l_s_num.indexOf('E') >= 0? new BigDecimal(l_s_num) : new BigInteger(l_s_num);
+		default:
+			final byte[] l_a_buf = copy(l_o_mem, l_i_val, l_o_mem.getInt(p_i_pos + 1));
+			return new RawElement(l_a_buf, 0, l_a_buf.length);
+		}
+	}
+
+	private static byte[] copy(ByteBuffer p_o_mem, int p_i_off, int p_i_len){
+		final ByteBuffer l_o_mem = p_o_mem.duplicate();
+		l_o_mem.position(p_i_off);
+		final byte[] r_a_buf = new byte[p_i_len];
+		l_o_mem.get(r_a_buf);
+		return r_a_buf;
+	}
+
+	private static String decode(ByteBuffer p_o_mem, int p_i_off, int p_i_len){
+		return new String(copy(p_o_mem, p_i_off, p_i_len), RawElement.UTF_8);
+	}
+
+	private ByteBuffer memory(){
+		if (c_fl_released)
+			throw new IllegalStateException("OffHeapCore is released");
+		return c_o_chunk.c_o_mem;
+	}
+
+	/** Fields in block order, each key and value decoded once per iteration */
+	private final class FieldIterator implements Iterator<Entry<String, Object>> {
+		private int c_i_pos = c_i_off;
+
+		@Override
+		public boolean hasNext() {
+			return c_i_pos < c_i_off + c_i_len;
+		}
+
+		@Override
+		public Entry<String, Object> next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException();
+			final ByteBuffer l_o_mem = OffHeapCore.this.memory();
+			final int l_i_keyLen = l_o_mem.getShort(c_i_pos) & 0xFFFF;
+			final String l_s_key = decode(l_o_mem, c_i_pos + 2, l_i_keyLen);
+			final int l_i_kind = c_i_pos + 2 + l_i_keyLen;
+			c_i_pos = l_i_kind + 5 + l_o_mem.getInt(l_i_kind + 1);
+			return new SimpleImmutableEntry<String, Object>(l_s_key, OffHeapCore.this.valueAt(l_i_kind));
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("OffHeapCore is read-only");
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package evo;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Optional fallback to org.json.<br/>
+ * Packet parses with Jackson, org.json is only used for lenient documents which Jackson rejects (single quotes, unquoted keys...),
+ * and for JSONObject/JSONArray values put by the user. Every method is a no-op when org.json is not on the classpath.
+ */
+final class OrgJson {
+
+	/** true if org.json is on the classpath */
+	static final boolean AVAILABLE = isAvailable();
+
+	private OrgJson(){
+	}
+
+	private static boolean isAvailable(){
+		try {
+			Class.forName("org.json.JSONObject", false, OrgJson.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/** Determine the Object is an org.json JSONObject/Array */
+	static boolean isJSON(Object p_o_val){
+		return AVAILABLE && (p_o_val instanceof JSONObject || p_o_val instanceof JSONArray);
+	}
+
+	/**
+	 * Parse the json string by org.json then put all collections to the Packet.
+	 * @return false if org.json is not available or syntax-error
+	 */
+	static boolean deserialize(String p_s_json, Packet p_o_pack){
+		if (!AVAILABLE)
+			return false;
+		try {
+			JSONObject l_o_json = new JSONObject(p_s_json);
+			//	Looping of the keys
+			for (Iterator<?> l_itr_key = l_o_json.keys(); l_itr_key.hasNext();) {
+				String l_s_key = (String)l_itr_key.next();
+				p_o_pack.putElement(l_s_key, l_o_json.get(l_s_key));	// transfer the JSON object to Map.
+			}
+			return true;
+		} catch (JSONException e) {
+			return false;	// the caller reports the error of the primary parser
+		}
+	}
+
+	/** @return null if org.json is not available */
+	static String toString(Map<String, Object> pm_o_core){
+		return AVAILABLE? new JSONObject(pm_o_core).toString() : null;
+	}
+}
@@ -1,18 +1,29 @@
 package evo;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -20,8 +31,8 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.SerializationFeature;
+
+import evo.metrics.PacketMetrics;
 
 /**
  * A Map which use String as key and accept any type of value .<br/>
@@ -56,19 +67,34 @@ public class Packet implements Map<String, Object>{
 
 	/** Map core, storage of all values */
 	private Map<String, Object> cm_o_core;
-	/** Jackson ObjectMapper, configuration is accepted. */
-	private final ObjectMapper c_o_mapper = onCreateObjectMapper(
-			new ObjectMapper()
-//			.enable(com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT)					// enable String indentation
-//			.setSerializationInclusion(com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL)	// Hide fields when null
-			);
+	/** Shared Jackson codec registry of this Packet class, configuration is accepted by {@link #onCreateObjectMapper(ObjectMapper)}. */
+	private final PacketMapper c_o_mapper = PacketMapper.forPacket(this);
+	/** Instrumentation of all Packets, null while disabled */
+	private static volatile PacketMetrics c_o_metrics;
+	
+	/** Keys decoded from the source and keys changed since, null if the Packet is not projected */
+	private Set<String> c_o_projection;
+	/** true while {@link #expand()} decodes the keys outside the projection */
+	private boolean c_fl_expanding;
+	/** Encoded document the Packet was last decoded from, null if it was not decoded */
+	private byte[] c_a_source;
+	private int c_i_sourceOff, c_i_sourceLen;
+	private PacketCodec c_o_sourceCodec;
+	/** true once a key is put or removed after decoding, or the Packet was decoded over other values; the source is no longer the whole Packet */
+	private boolean c_fl_modified = true;
+	/** Pooling state, null if the Packet was not acquired from a {@link PacketPool} */
+	PacketPool.Handle c_o_handle;
 
 //		GETTER - Fields		\\
 	public Map<String, Object> getCore(){
 		return this.cm_o_core;
 	}
-	/** Jackson ObjectMapper, configuration is accepted. */
+	/** Jackson ObjectMapper, shared by all Packets of the same class. See {@link PacketMapper} before configuring it. */
 	public ObjectMapper getObjectMapper(){
+		return this.c_o_mapper.getObjectMapper();
+	}
+	/** Shared codec registry, caching readers, writers and types */
+	public PacketMapper getMapper(){
 		return this.c_o_mapper;
 	}
 //
@@ -78,7 +104,8 @@ public class Packet implements Map<String, Object>{
 	}
 	/**
 	 * Construct an instance by a customized Map. 
-	 * Therefore you can use different Map such as {@link java.util.concurrent.ConcurrentHashMap ConcurrentHashMap} for synchronized, or
+	 * Therefore you can use different Map such as {@link java.util.concurrent.ConcurrentHashMap ConcurrentHashMap} for synchronized
+	 * (any {@link ConcurrentMap} core deserializes each element exactly once, without blocking the getters of other elements), or
 	 * {@link java.util.LinkedHashMap LinkedHashMap} to have ordered collection.
 	 * @param pm_o_core Customized Map with string as key.
 	 */
@@ -87,12 +114,81 @@ public class Packet implements Map<String, Object>{
 		this.cm_o_core = (Map<String, Object>) pm_o_core;
 	}
 	
-	/** Override this method for configuring Jackson ObjectMapper */
+	/**
+	 * Override this method for configuring Jackson ObjectMapper.<br/>
+	 * Called once per Packet class, the result is shared by all instances of the class, so it must not depend on instance state.
+	 */
 	protected ObjectMapper onCreateObjectMapper(ObjectMapper objectMapper) {
 		return objectMapper;
 	}
 
 //		Static Methods		\\
+	/**
+	 * Take an empty Packet from the {@link PacketPool#getDefault() default pool}, call {@link #release()} when it is done.
+	 * See {@link PacketPool} for the rules of pooled Packets.
+	 */
+	public static Packet acquire(){
+		return PacketPool.getDefault().acquire();
+	}
+	
+	/** Same as {@link #decodeAll(List, Executor)} on the {@link ForkJoinPool#commonPool() common pool} */
+	public static List<Packet> decodeAll(List<byte[]> pl_a_docs){
+		return decodeAll(pl_a_docs, ForkJoinPool.commonPool());
+	}
+	/**
+	 * Decode the documents in parallel, same as {@link #fromBytes(byte[])} for each of them.
+	 * The calling thread works on the batch too and returns when all are done.
+	 * @param p_o_executor threads to use, such as a ForkJoinPool or an Executor of virtual threads
+	 * @return the Packets in the order of the documents
+	 */
+	public static List<Packet> decodeAll(List<byte[]> pl_a_docs, Executor p_o_executor){
+		return PacketBatch.decodeAll(pl_a_docs, p_o_executor);
+	}
+	/** Same as {@link #encodeAll(Collection, PacketCodec, Executor)} to JSON on the {@link ForkJoinPool#commonPool() common pool} */
+	public static List<byte[]> encodeAll(Collection<? extends Packet> pl_o_packs){
+		return encodeAll(pl_o_packs, PacketCodec.JSON, ForkJoinPool.commonPool());
+	}
+	/**
+	 * Encode the Packets in parallel, same as {@link #toByteArray(PacketCodec)} for each of them.
+	 * A Packet must not be modified meanwhile, nor appear twice in the batch.
+	 * @param p_o_executor threads to use, such as a ForkJoinPool or an Executor of virtual threads
+	 * @return the documents in the iteration order of the Packets
+	 * @throws IllegalStateException if a Packet failed on encoding, after the whole batch is done
+	 */
+	public static List<byte[]> encodeAll(Collection<? extends Packet> pl_o_packs, PacketCodec p_o_codec, Executor p_o_executor){
+		return PacketBatch.encodeAll(pl_o_packs, p_o_codec, p_o_executor);
+	}
+	
+	/**
+	 * Build the binders of the value classes now, at boot, instead of on the first get of a user request.
+	 * Their getters and setters are then called without reflection, see {@link PacketMapper#register(Class...)}.
+	 * Applies to plain Packets, a subclass with its own mapper registers by {@link #getMapper()}.
+	 * @throws IllegalArgumentException if a class cannot be bound by Jackson
+	 */
+	public static void register(Class<?>... p_a_classes){
+		PacketMapper.getDefault().register(p_a_classes);
+	}
+	
+	
+	/**
+	 * Install the instrumentation of all Packets, see {@link PacketMetrics}.
+	 * @param p_o_metrics null to disable, nothing is measured while disabled
+	 */
+	public static void setMetrics(PacketMetrics p_o_metrics){
+		c_o_metrics = p_o_metrics;
+	}
+	/** @return null if disabled */
+	public static PacketMetrics getMetrics(){
+		return c_o_metrics;
+	}
+	/** Report a recovered failure to the metrics, or print it while the metrics is disabled */
+	private static void onFailure(String p_s_operation, String p_s_key, Throwable p_o_error){
+		final PacketMetrics l_o_metrics = c_o_metrics;
+		if (l_o_metrics != null)
+			l_o_metrics.onFailure(p_s_operation, p_s_key, p_o_error);
+		else
+			p_o_error.printStackTrace();
+	}
 	/**
 	 * Same as {@link #fromString(String, Map)} but use the default Map core - HashMap.
 	 * @param p_s_json json string
@@ -112,24 +208,370 @@ public class Packet implements Map<String, Object>{
 		r_o_pack.deserialize(p_s_json);
 		return r_o_pack;
 	}
+	/**
+	 * Same as {@link #fromBytes(byte[], int, int, Map)} but use the whole array and the default Map core - HashMap.
+	 */
+	public static Packet fromBytes(byte[] p_a_buf){
+		return fromBytes(p_a_buf, 0, p_a_buf.length, new HashMap<String, Object>());
+	}
+	/**
+	 * Same as {@link #fromBytes(byte[], int, int, Map)} but use the default Map core - HashMap.
+	 */
+	public static Packet fromBytes(byte[] p_a_buf, int p_i_off, int p_i_len){
+		return fromBytes(p_a_buf, p_i_off, p_i_len, new HashMap<String, Object>());
+	}
+	/**
+	 * Deserialize from UTF-8 encoded json or any format registered to {@link PacketCodec}, without copying.<br/>
+	 * The Packet keeps referencing the array, it must not be modified or reused afterwards.
+	 * @param p_a_buf UTF-8 encoded json
+	 * @param p_i_off start of the document
+	 * @param p_i_len length of the document
+	 * @param pm_o_core customized Map
+	 * @return {@link #Packet()} never null, empty if failed.
+	 */
+	public static Packet fromBytes(byte[] p_a_buf, int p_i_off, int p_i_len, Map<String, Object> pm_o_core){
+		Packet r_o_pack = new Packet(pm_o_core);
+		r_o_pack.deserialize(p_a_buf, p_i_off, p_i_len);
+		return r_o_pack;
+	}
+	/**
+	 * Same as {@link #fromStream(InputStream, Map)} but use the default Map core - HashMap.
+	 */
+	public static Packet fromStream(InputStream p_o_in) throws IOException {
+		return fromStream(p_o_in, new HashMap<String, Object>());
+	}
+	/**
+	 * Deserialize from UTF-8 encoded json or any format registered to {@link PacketCodec}, reading the stream to the end.
+	 * The stream is not closed.<br/>
+	 * The stream is read through a buffer reused by the thread, then copied once to an array owned by the Packet.
+	 * @param pm_o_core customized Map
+	 * @return {@link #Packet()} never null, empty if failed.
+	 * @throws IOException failed on reading the stream
+	 */
+	public static Packet fromStream(InputStream p_o_in, Map<String, Object> pm_o_core) throws IOException {
+		final byte[] l_a_buf = PacketIO.readFully(p_o_in);
+		return fromBytes(l_a_buf, 0, l_a_buf.length, pm_o_core);
+	}
+	/**
+	 * Same as {@link #fromByteBuffer(ByteBuffer, Map)} but use the default Map core - HashMap.
+	 */
+	public static Packet fromByteBuffer(ByteBuffer p_o_buf){
+		return fromByteBuffer(p_o_buf, new HashMap<String, Object>());
+	}
+	/**
+	 * Deserialize from the remaining bytes of a heap or direct buffer, UTF-8 encoded json or any format registered to {@link PacketCodec}.
+	 * The remaining bytes are consumed.<br/>
+	 * The bytes are copied once, so the buffer can be reused by the caller immediately.
+	 * @param pm_o_core customized Map
+	 * @return {@link #Packet()} never null, empty if failed.
+	 */
+	public static Packet fromByteBuffer(ByteBuffer p_o_buf, Map<String, Object> pm_o_core){
+		final byte[] l_a_buf = PacketIO.readFully(p_o_buf);
+		return fromBytes(l_a_buf, 0, l_a_buf.length, pm_o_core);
+	}
+	/**
+	 * Same as {@link #fromBytes(byte[], int, int, Map, Set)} but read a json string and use the default Map core - HashMap.
+	 */
+	public static Packet fromString(String p_s_json, Set<String> p_o_keys){
+		final byte[] l_a_buf = p_s_json.getBytes(RawElement.UTF_8);
+		return fromBytes(l_a_buf, 0, l_a_buf.length, new HashMap<String, Object>(), p_o_keys);
+	}
+	/**
+	 * Same as {@link #fromBytes(byte[], int, int, Map, Set)} but use the default Map core - HashMap.
+	 */
+	public static Packet fromBytes(byte[] p_a_buf, int p_i_off, int p_i_len, Set<String> p_o_keys){
+		return fromBytes(p_a_buf, p_i_off, p_i_len, new HashMap<String, Object>(), p_o_keys);
+	}
+	/**
+	 * Projected deserialization, only the requested keys are decoded.<br/>
+	 * The values of other keys are skipped at token level without being allocated, and decoding stops once all requested keys
+	 * were found. The Packet keeps the document, so serializing it still writes every field, see {@link #expand()}.
+	 * @usage
+	 * <PRE>
+	 * {@code
+	 * Packet packet = Packet.fromBytes(bytes, 0, bytes.length, new HashSet<String>(Arrays.asList("error", "message", "route")));
+	 * if (!packet.isError())
+	 * 	forward(packet.getString("route"), packet.toByteArray());	// the payload is forwarded intact
+	 * }
+	 * </PRE>
+	 * @param p_o_keys keys to decode, copied
+	 * @return {@link #Packet()} never null, empty if failed.
+	 */
+	public static Packet fromBytes(byte[] p_a_buf, int p_i_off, int p_i_len, Map<String, Object> pm_o_core, Set<String> p_o_keys){
+		Packet r_o_pack = new Packet(pm_o_core);
+		r_o_pack.deserialize(p_a_buf, p_i_off, p_i_len, p_o_keys);
+		return r_o_pack;
+	}
 		
 //		Methods		\\
 	/**
-	 * Read json string then put all collections to core. Failed if syntax-error.
+	 * Read json string then put all collections to core. Failed if syntax-error.<br/>
+	 * Basic type values are put as is, objects and arrays are put as {@link RawElement} until they are requested by the get methods.
+	 * Documents rejected by Jackson are retried by the lenient org.json parser if it is on the classpath.
 	 * @param p_s_json
 	 */
 	public void deserialize(String p_s_json){
+		if (c_o_handle != null && cm_o_core.isEmpty()) {	// pooled, the document buffer is reused
+			final int l_i_len = PacketIO.utf8Length(p_s_json);
+			this.deserialize(c_o_handle.encode(p_s_json, l_i_len), 0, l_i_len);
+			return;
+		}
+		final byte[] l_a_buf = p_s_json.getBytes(RawElement.UTF_8);
+		this.deserialize(l_a_buf, 0, l_a_buf.length);
+	}
+	
+	/**
+	 * Same as {@link #deserialize(String)} but read an encoded document, the format is detected by {@link PacketCodec#detect(byte[], int, int)}.
+	 * The Packet keeps referencing the array, it must not be modified or reused afterwards.
+	 */
+	public void deserialize(byte[] p_a_buf, int p_i_off, int p_i_len){
+		this.deserialize(p_a_buf, p_i_off, p_i_len, PacketCodec.detect(p_a_buf, p_i_off, p_i_len));
+	}
+	
+	/**
+	 * Same as {@link #deserialize(byte[], int, int)} but the format is known.
+	 * @param p_o_codec format of the document
+	 */
+	public void deserialize(byte[] p_a_buf, int p_i_off, int p_i_len, PacketCodec p_o_codec){
+		this.deserialize(p_a_buf, p_i_off, p_i_len, p_o_codec, null);
+	}
+	
+	/**
+	 * Same as {@link #deserialize(byte[], int, int)} but only the keys are decoded, see {@link #fromBytes(byte[], int, int, Map, Set)}.
+	 * @param p_o_keys keys to decode, copied
+	 */
+	public void deserialize(byte[] p_a_buf, int p_i_off, int p_i_len, Set<String> p_o_keys){
+		this.deserialize(p_a_buf, p_i_off, p_i_len, PacketCodec.detect(p_a_buf, p_i_off, p_i_len), new HashSet<String>(p_o_keys));
+	}
+	
+	/**
+	 * Decode the document and keep it as the source, see {@link #isIntact(PacketCodec)}.
+	 * @param p_o_projection keys to decode, null for all
+	 */
+	private void deserialize(byte[] p_a_buf, int p_i_off, int p_i_len, PacketCodec p_o_codec, Set<String> p_o_projection){
+		final boolean l_fl_merge = !cm_o_core.isEmpty();
+		if (l_fl_merge)
+			this.expand();	// the previous source is replaced
+		final Map<String, Object> lm_o_before = l_fl_merge? new HashMap<String, Object>(cm_o_core) : null;
+		this.c_o_projection = p_o_projection;
+		this.c_a_source = p_a_buf;
+		this.c_i_sourceOff = p_i_off;
+		this.c_i_sourceLen = p_i_len;
+		this.c_o_sourceCodec = p_o_codec;
+		final PacketMetrics l_o_metrics = c_o_metrics;
+		final long l_l_start = l_o_metrics!=null? System.nanoTime() : 0;
+		try {
+			p_o_codec.decode(this, p_a_buf, p_i_off, p_i_len);
+			this.c_fl_modified = l_fl_merge;
+		} catch (IOException e) {
+			this.c_o_projection = null;	// the lenient fallback reads all keys
+			this.c_a_source = null;
+			this.c_o_sourceCodec = null;
+			cm_o_core.clear();	// drop the keys decoded before the error
+			if (lm_o_before != null)
+				cm_o_core.putAll(lm_o_before);
+			if (p_o_codec != PacketCodec.JSON || !OrgJson.deserialize(new String(p_a_buf, p_i_off, p_i_len, RawElement.UTF_8), this))
+				onFailure("decode", null, e);
+		}
+		if (l_o_metrics != null)
+			l_o_metrics.onDecode(p_o_codec, p_i_len, System.nanoTime() - l_l_start);
+	}
+	
+	/**
+	 * Put an element decoded by {@link PacketCodec}, null is dropped if the core does not accept null.
+	 * Objects and arrays should be put as {@link RawElement} to be deserialized by the get methods.
+	 * Keys outside the projection of a projected Packet are dropped, see {@link #isSelected(String)}.
+	 */
+	public void putElement(String p_s_key, Object p_o_val){
+		if (c_o_projection != null && !this.isSelected(p_s_key))
+			return;
+		if (p_o_val != null || !(cm_o_core instanceof ConcurrentMap))	// concurrent maps do not accept null
+			this.put(p_s_key, p_o_val);
+	}
+	
+//		Projection		\\
+	/** true if the Packet was decoded with a projection and not expanded yet */
+	public boolean isProjected(){
+		return c_o_projection != null;
+	}
+	
+	/**
+	 * Determine a decoded key should be put, codecs may skip the value of unselected keys without decoding it.
+	 * @return true if the Packet is not projected
+	 */
+	public boolean isSelected(String p_s_key){
+		return c_o_projection == null || c_o_projection.contains(p_s_key) != c_fl_expanding;
+	}
+	
+	/**
+	 * Number of selected keys, a codec may stop decoding after putting this many keys.
+	 * @return -1 if all keys are selected
+	 */
+	int countSelected(){
+		return c_o_projection == null || c_fl_expanding? -1 : c_o_projection.size();
+	}
+	
+	/**
+	 * Decode the keys skipped by the projection, then the Packet is a normal complete Packet.<br/>
+	 * Called by the serialize methods. Keys put or removed meanwhile keep their current state.
+	 */
+	public void expand(){
+		if (c_o_projection == null)
+			return;
+		final boolean l_fl_modified = c_fl_modified;
+		c_fl_expanding = true;
 		try {
-			JSONObject l_o_json = new JSONObject(p_s_json);
-			//	Looping of the keys
-			for (Iterator<?> l_itr_key = l_o_json.keys(); l_itr_key.hasNext();) {
-				String l_s_key = (String)l_itr_key.next();
-				this.put(l_s_key, l_o_json.get(l_s_key));	// transfer the JSON object to Map.
+			c_o_sourceCodec.decode(this, c_a_source, c_i_sourceOff, c_i_sourceLen);
+			c_fl_modified = l_fl_modified;
+		} catch (IOException e) {
+			onFailure("expand", null, e);
+		} finally {
+			c_fl_expanding = false;
+			c_o_projection = null;
+		}
+	}
+	
+	/**
+	 * Copy of a decoded Packet with a HashMap core, for {@link PacketCache}.
+	 * The core is copied, the elements and the source are shared, they are immutable while the Packet is intact.
+	 */
+	Packet copyDecoded(){
+		final Packet r_o_pack = new Packet(new HashMap<String, Object>(cm_o_core));
+		r_o_pack.c_a_source = c_a_source;
+		r_o_pack.c_i_sourceOff = c_i_sourceOff;
+		r_o_pack.c_i_sourceLen = c_i_sourceLen;
+		r_o_pack.c_o_sourceCodec = c_o_sourceCodec;
+		r_o_pack.c_fl_modified = c_fl_modified;
+		return r_o_pack;
+	}
+
+	/**
+	 * Immutable copy of the Packet, to be read by many threads without locks, see {@link FrozenCore}.<br/>
+	 * A projected Packet is expanded first. Objects and arrays are written to JSON unless they are still raw elements,
+	 * each typed get binds them again, so the frozen Packet is never written by a getter.
+	 * The source is kept if the Packet is intact, so it is still written as is. The source and the raw elements of a pooled Packet
+	 * are copied, since the pool reuses its document buffer.
+	 * @usage
+	 * <PRE>
+	 * {@code
+	 * this.config = Packet.fromBytes(bytes).freeze();	// a final or volatile field
+	 * }
+	 * </PRE>
+	 * @rule
+	 * <PRE>
+	 * 1) Putting or removing a key of the frozen Packet throws UnsupportedOperationException.
+	 * 2) Publish the frozen Packet safely, such as by a final or volatile field or a concurrent collection, like any object shared by threads.
+	 * </PRE>
+	 * @return this if already frozen
+	 * @throws IllegalArgumentException if a value cannot be serialized
+	 */
+	public Packet freeze(){
+		if (cm_o_core instanceof FrozenCore)
+			return this;
+		this.expand();
+		final boolean l_fl_intact = c_a_source != null && this.isIntact(c_o_sourceCodec);
+		if (c_o_handle == null) {
+			final Packet r_o_pack = new Packet(new FrozenCore(cm_o_core, c_o_mapper));
+			if (l_fl_intact)
+				r_o_pack.setSource(c_a_source, c_i_sourceOff, c_i_sourceLen, c_o_sourceCodec);
+			return r_o_pack;
+		}
+		// pooled, the document buffer of the handle is reused by the next deserialize, so the source and the raw elements are copied
+		final byte[] l_a_source = c_a_source != null? Arrays.copyOfRange(c_a_source, c_i_sourceOff, c_i_sourceOff + c_i_sourceLen) : null;
+		final Map<String, Object> lm_o_copy = new HashMap<String, Object>(cm_o_core);
+		for (Map.Entry<String, Object> l_o_entry : lm_o_copy.entrySet()) {
+			if (l_o_entry.getValue() instanceof RawElement) {
+				final RawElement l_o_raw = (RawElement) l_o_entry.getValue();
+				l_o_entry.setValue(l_o_raw.getBuffer() == c_a_source?
+						new RawElement(l_o_raw.getCodec(), l_a_source, l_o_raw.getOffset() - c_i_sourceOff, l_o_raw.getLength())
+						: new RawElement(l_o_raw.getCodec(), Arrays.copyOfRange(l_o_raw.getBuffer(), l_o_raw.getOffset(), l_o_raw.getOffset() + l_o_raw.getLength()), 0, l_o_raw.getLength()));
 			}
-		} catch (JSONException e) {
-			e.printStackTrace();
 		}
+		final Packet r_o_pack = new Packet(new FrozenCore(lm_o_copy, c_o_mapper));
+		if (l_fl_intact)
+			r_o_pack.setSource(l_a_source, 0, l_a_source.length, c_o_sourceCodec);
+		return r_o_pack;
+	}
+
+	/** Source of a frozen Packet, written as is while the Packet is intact */
+	private void setSource(byte[] p_a_buf, int p_i_off, int p_i_len, PacketCodec p_o_codec){
+		this.c_a_source = p_a_buf;
+		this.c_i_sourceOff = p_i_off;
+		this.c_i_sourceLen = p_i_len;
+		this.c_o_sourceCodec = p_o_codec;
+		this.c_fl_modified = false;
+	}
+
+	/** true if the Packet was made by {@link #freeze()} */
+	public boolean isFrozen(){
+		return cm_o_core instanceof FrozenCore;
+	}
+
+	/** true if the core is never written by the getters, which materialize their result on every get instead */
+	private boolean isReadOnly(){
+		return cm_o_core instanceof OffHeapCore || cm_o_core instanceof FrozenCore;
+	}
+	
+	/**
+	 * Give the Packet back to the {@link PacketPool} it was acquired from, or its {@link OffHeapCore} back to its {@link PacketArena},
+	 * it must not be used afterwards. Nothing is done if the Packet is neither pooled nor off-heap.
+	 * @throws IllegalStateException if the Packet is already released
+	 */
+	public void release(){
+		if (c_o_handle != null)
+			c_o_handle.getPool().release(this);
+		else if (cm_o_core instanceof OffHeapCore)
+			((OffHeapCore) cm_o_core).release();
 	}
+	
+	/**
+	 * Make the Packet empty for reuse. Same as {@link #clear()}: the core is cleared keeping its capacity,
+	 * and the source, projection and change tracking are dropped.
+	 */
+	public void reset(){
+		this.clear();
+	}
+	
+	/** Remember a key changed by the user, so {@link #expand()} does not overwrite it and the source is not written as is */
+	private void touch(String p_s_key){
+		if (c_fl_expanding)
+			return;
+		c_fl_modified = true;
+		if (c_o_projection != null)
+			c_o_projection.add(p_s_key);
+	}
+	
+//		Passthrough		\\
+	/**
+	 * Determine the source document is still the whole Packet, then the serialize methods write it as is, without encoding.<br/>
+	 * It is false once any key is put or removed, or any object or array is got by the typed get methods,
+	 * since a deserialized value may be mutated by the caller. Changes made to the core directly are not tracked.
+	 * Otherwise untouched objects and arrays are still spliced from the source by the codec, only the changed values are encoded.
+	 * @param p_o_codec format to serialize by
+	 */
+	public boolean isIntact(PacketCodec p_o_codec){
+		if (c_fl_modified || c_a_source == null || p_o_codec != c_o_sourceCodec)
+			return false;
+		if (cm_o_core instanceof PrimitiveCore) {	// without boxing the primitives
+			final PrimitiveCore l_o_prims = (PrimitiveCore) cm_o_core;
+			for (int i = 0, l_i_slots = l_o_prims.slots(); i < l_i_slots; i++) {
+				if (!isDecoded(l_o_prims.refAt(i)))
+					return false;
+			}
+			return true;
+		}
+		for (Object l_o_val : cm_o_core.values()) {
+			if (!isDecoded(l_o_val))
+				return false;
+		}
+		return true;
+	}
+	
+	/** true if the value is in the form put by the codec, not deserialized or cast by the get methods */
+	private static boolean isDecoded(Object p_o_val){
+		return p_o_val == null || p_o_val instanceof RawElement || p_o_val instanceof String || p_o_val instanceof Number || p_o_val instanceof Boolean;
+	}
+	
 	/**
 	 * Same as {@link #serialize()}
 	 */
@@ -142,10 +584,124 @@ public class Packet implements Map<String, Object>{
 	 * @return json string
 	 */
 	public String serialize(){		
+		final PacketMetrics l_o_metrics = c_o_metrics;
+		final long l_l_start = l_o_metrics!=null? System.nanoTime() : 0;
+		String r_s_json;
 		try {
-			return c_o_mapper.writeValueAsString(cm_o_core);
+			if (this.isIntact(PacketCodec.JSON)) {
+				r_s_json = new String(c_a_source, c_i_sourceOff, c_i_sourceLen, RawElement.UTF_8);
+			} else {
+				this.expand();
+				r_s_json = c_o_mapper.writer().writeValueAsString(cm_o_core);
+			}
 		} catch (JsonProcessingException e) {
-			return new JSONObject(cm_o_core).toString();
+			r_s_json = OrgJson.toString(cm_o_core);
+			if (r_s_json == null)
+				throw new IllegalStateException("Packet.serialize() failed", e);
+			if (l_o_metrics != null)	// recovered by org.json
+				l_o_metrics.onFailure("serialize", null, e);
+		}
+		if (l_o_metrics != null)
+			l_o_metrics.onEncode(PacketCodec.JSON, r_s_json.length(), System.nanoTime() - l_l_start);
+		return r_s_json;
+	}
+	/**
+	 * Serialize to UTF-8 encoded json
+	 * @return json bytes
+	 */
+	public byte[] toByteArray(){
+		return this.toByteArray(PacketCodec.JSON);
+	}
+	/**
+	 * Serialize by the codec
+	 * @return encoded bytes
+	 */
+	public byte[] toByteArray(PacketCodec p_o_codec){
+		final PacketMetrics l_o_metrics = c_o_metrics;
+		final long l_l_start = l_o_metrics!=null? System.nanoTime() : 0;
+		final byte[] r_a_buf;
+		try {
+			if (this.isIntact(p_o_codec)) {
+				r_a_buf = Arrays.copyOfRange(c_a_source, c_i_sourceOff, c_i_sourceOff + c_i_sourceLen);
+			} else {
+				this.expand();
+				r_a_buf = p_o_codec.encode(this);
+			}
+		} catch (IOException e) {
+			if (p_o_codec == PacketCodec.JSON)
+				return this.serialize().getBytes(RawElement.UTF_8);	// fallback of serialize()
+			throw new IllegalStateException("Packet.toByteArray() failed", e);
+		}
+		if (l_o_metrics != null)
+			l_o_metrics.onEncode(p_o_codec, r_a_buf.length, System.nanoTime() - l_l_start);
+		return r_a_buf;
+	}
+	/**
+	 * Serialize UTF-8 encoded json straight to the stream, through the generator buffers recycled by Jackson.
+	 * The stream is flushed but not closed.
+	 */
+	public void writeTo(OutputStream p_o_out) throws IOException {
+		this.writeTo(p_o_out, PacketCodec.JSON);
+	}
+	/**
+	 * Serialize by the codec straight to the stream. The stream is not closed.
+	 */
+	public void writeTo(OutputStream p_o_out, PacketCodec p_o_codec) throws IOException {
+		final PacketMetrics l_o_metrics = c_o_metrics;
+		final long l_l_start = l_o_metrics!=null? System.nanoTime() : 0;
+		if (this.isIntact(p_o_codec)) {
+			p_o_out.write(c_a_source, c_i_sourceOff, c_i_sourceLen);
+			if (l_o_metrics != null)
+				l_o_metrics.onEncode(p_o_codec, c_i_sourceLen, System.nanoTime() - l_l_start);
+			return;
+		}
+		this.expand();
+		if (l_o_metrics == null) {
+			p_o_codec.encode(this, p_o_out);
+			return;
+		}
+		final PacketIO.CountingOutputStream l_o_out = new PacketIO.CountingOutputStream(p_o_out);
+		p_o_codec.encode(this, l_o_out);
+		l_o_metrics.onEncode(p_o_codec, l_o_out.getCount(), System.nanoTime() - l_l_start);
+	}
+	/**
+	 * Serialize UTF-8 encoded json straight into the buffer, heap or direct, from its position.
+	 * @return number of bytes written
+	 * @throws BufferOverflowException when the remaining space is not enough, the position of the buffer is restored.
+	 */
+	public int writeTo(ByteBuffer p_o_buf) throws IOException {
+		return this.writeTo(p_o_buf, PacketCodec.JSON);
+	}
+	/**
+	 * Serialize by the codec straight into the buffer, heap or direct, from its position.
+	 * @return number of bytes written
+	 * @throws BufferOverflowException when the remaining space is not enough, the position of the buffer is restored.
+	 * @throws IOException if the encoding failed otherwise, the position of the buffer is restored too.
+	 */
+	public int writeTo(ByteBuffer p_o_buf, PacketCodec p_o_codec) throws IOException {
+		final int l_i_start = p_o_buf.position();
+		boolean l_fl_written = false;
+		try {
+			this.writeTo(new PacketIO.ByteBufferOutputStream(p_o_buf), p_o_codec);
+			l_fl_written = true;
+		} catch (IOException e) {
+			rethrowOverflow(e);
+			throw e;
+		} catch (RuntimeException e) {
+			rethrowOverflow(e);
+			throw e;
+		} finally {
+			if (!l_fl_written)
+				p_o_buf.position(l_i_start);
+		}
+		return p_o_buf.position() - l_i_start;
+	}
+
+	/** Jackson wraps the overflow of an output larger than its buffer, such as into a JsonMappingException, unwrap it */
+	private static void rethrowOverflow(Exception p_o_failure){
+		for (Throwable l_o_cause = p_o_failure.getCause(); l_o_cause != null; l_o_cause = l_o_cause.getCause()) {
+			if (l_o_cause instanceof BufferOverflowException)
+				throw (BufferOverflowException) l_o_cause;
 		}
 	}
 
@@ -159,14 +715,67 @@ public class Packet implements Map<String, Object>{
 	public void setMessage(String p_s_msg)		{this.put(KEY_MESSAGE, p_s_msg);}
 
 //		put - basic data type		\\
-	public Object put(String p_s_key, boolean p_val)			{return this.put(p_s_key, (Object) p_val);}
-	public Object put(String p_s_key, int p_val)				{return this.put(p_s_key, (Object) p_val);}
-	public Object put(String p_s_key, double p_val)				{return this.put(p_s_key, (Object) p_val);}
+	/*
+	 * With a PrimitiveCore the value is stored unboxed and the previous value is not returned (always null), to stay allocation-free.
+	 */
+	public Object put(String p_s_key, boolean p_val){
+		if (!(cm_o_core instanceof PrimitiveCore))
+			return this.put(p_s_key, (Object) p_val);
+		this.touch(p_s_key);
+		((PrimitiveCore) cm_o_core).putBoolean(p_s_key, p_val);
+		return null;
+	}
+	public Object put(String p_s_key, int p_val){
+		if (!(cm_o_core instanceof PrimitiveCore))
+			return this.put(p_s_key, (Object) p_val);
+		this.touch(p_s_key);
+		((PrimitiveCore) cm_o_core).putInt(p_s_key, p_val);
+		return null;
+	}
+	public Object put(String p_s_key, long p_val){
+		if (!(cm_o_core instanceof PrimitiveCore))
+			return this.put(p_s_key, (Object) p_val);
+		this.touch(p_s_key);
+		((PrimitiveCore) cm_o_core).putLong(p_s_key, p_val);
+		return null;
+	}
+	public Object put(String p_s_key, double p_val){
+		if (!(cm_o_core instanceof PrimitiveCore))
+			return this.put(p_s_key, (Object) p_val);
+		this.touch(p_s_key);
+		((PrimitiveCore) cm_o_core).putDouble(p_s_key, p_val);
+		return null;
+	}
 	
 //		get - basic data type		\\
-	public boolean getBoolean(String p_s_key, boolean p_def)	{return this.get(p_s_key, Boolean.class, p_def);}
-	public int getInt(String p_s_key, int p_def)				{return this.get(p_s_key, Integer.class, p_def);}
-	public double getDouble(String p_s_key, double p_def)		{return this.get(p_s_key, Double.class, p_def);}
+	/*
+	 * Any Number is converted like Number.intValue(), so int widens to long and double whatever parser decoded it.
+	 * The default is returned if the value is absent or not a number.
+	 */
+	public boolean getBoolean(String p_s_key, boolean p_def){
+		if (cm_o_core instanceof PrimitiveCore)
+			return ((PrimitiveCore) cm_o_core).getBoolean(p_s_key, p_def);
+		final Object l_o_val = cm_o_core.get(p_s_key);
+		return l_o_val instanceof Boolean? (Boolean) l_o_val : p_def;
+	}
+	public int getInt(String p_s_key, int p_def){
+		if (cm_o_core instanceof PrimitiveCore)
+			return ((PrimitiveCore) cm_o_core).getInt(p_s_key, p_def);
+		final Object l_o_val = cm_o_core.get(p_s_key);
+		return l_o_val instanceof Number? ((Number) l_o_val).intValue() : p_def;
+	}
+	public long getLong(String p_s_key, long p_def){
+		if (cm_o_core instanceof PrimitiveCore)
+			return ((PrimitiveCore) cm_o_core).getLong(p_s_key, p_def);
+		final Object l_o_val = cm_o_core.get(p_s_key);
+		return l_o_val instanceof Number? ((Number) l_o_val).longValue() : p_def;
+	}
+	public double getDouble(String p_s_key, double p_def){
+		if (cm_o_core instanceof PrimitiveCore)
+			return ((PrimitiveCore) cm_o_core).getDouble(p_s_key, p_def);
+		final Object l_o_val = cm_o_core.get(p_s_key);
+		return l_o_val instanceof Number? ((Number) l_o_val).doubleValue() : p_def;
+	}
 	/**
 	 * @param p_s_key
 	 * @return null if not found
@@ -195,36 +804,50 @@ public class Packet implements Map<String, Object>{
 //	}
 
 	public Calendar getCalendar(String p_s_key){
-		return this.getBasicAndCast(p_s_key, Long.class, Calendar.class, new ElementCaster<Long, Calendar>(){
-
-			@Override
-			public Calendar doCast(Long p_o_from) {
-				final Calendar calendar = Calendar.getInstance();
-				calendar.setTimeInMillis(p_o_from);
-				return calendar;
-			}});
+		return this.getBasicAndCast(p_s_key, Long.class, Calendar.class, CALENDAR_CASTER);
 	}
+	/** Calendar was serialized as milliseconds, stateless so shared by all calls */
+	private static final ElementCaster<Long, Calendar> CALENDAR_CASTER = new ElementCaster<Long, Calendar>(){
+		private final PacketConverters.Converter<Object, Calendar> c_o_conv = PacketConverters.find(Long.class, Calendar.class);
+		@Override
+		public Calendar doCast(Long p_o_from) {
+			return c_o_conv.convert(p_o_from);
+		}
+	};
 	 
 	/**
-	 * Handle basic type element casting such as Calendar was serialized as long
+	 * Handle basic type element casting such as Calendar was serialized as long.
+	 * A basic value with a converter of {@link PacketConverters} to the class is converted by it, without the caster.
 	 * @param p_s_key Element key
 	 * @param p_clss_from cast from
 	 * @param p_clss_to cast to
 	 * @param elementCaster used to initialize the object 
 	 * @return the object returned by {@link ElementCaster}, or the original element if not serialized; null if not found
 	 */
+	@SuppressWarnings("unchecked")
 	protected <F,T> T getBasicAndCast(String p_s_key, Class<F> p_clss_from, Class<T> p_clss_to, ElementCaster<F,T> elementCaster){
 		T r_o_to = null;
-		if (p_clss_to.isInstance(cm_o_core.get(p_s_key))) {	// if the value is not serialized(instance of to Object)
-			r_o_to = p_clss_to.cast(cm_o_core.get(p_s_key));
+		final Object l_o_val = cm_o_core.get(p_s_key);
+		if (p_clss_to.isInstance(l_o_val)) {	// if the value is not serialized(instance of to Object)
+			r_o_to = p_clss_to.cast(l_o_val);
 		} else {
 			// casting is required
-			final F p_o_from = this.get(p_s_key, p_clss_from);
+			final PacketConverters.Converter<Object, T> l_o_conv = l_o_val != null && !this.checkIsJSON(l_o_val)?
+					PacketConverters.find(l_o_val.getClass(), p_clss_to) : null;
+			final Object p_o_from = l_o_conv != null? l_o_val : this.get(p_s_key, p_clss_from);
 			if (p_o_from != null) {
-				r_o_to = elementCaster.doCast(p_o_from);
+				r_o_to = l_o_conv != null? l_o_conv.convert(p_o_from) : elementCaster.doCast((F) p_o_from);
 				
-				// Replace
-				cm_o_core.put(p_s_key, r_o_to);
+				// Replace, a read-only core converts on every get instead
+				if (this.isReadOnly())
+					return r_o_to;
+				if (!(cm_o_core instanceof ConcurrentMap))
+					cm_o_core.put(p_s_key, r_o_to);
+				else if (!((ConcurrentMap<String, Object>) cm_o_core).replace(p_s_key, p_o_from, r_o_to)) {
+					final Object l_o_cur = cm_o_core.get(p_s_key);	// cast by another getter first, share its result
+					if (p_clss_to.isInstance(l_o_cur))
+						r_o_to = p_clss_to.cast(l_o_cur);
+				}
 			}
 		}
 		return r_o_to;
@@ -244,16 +867,8 @@ public class Packet implements Map<String, Object>{
 	 * }
 	 * </PRE>
 	 */
-	public <T> List<T> getList(String p_s_key, final Class<T> p_cls_component) {
-		return this.get(p_s_key, new ElementDeserializer() {
-			
-			@Override
-			public Object deserialize(ObjectMapper p_mapper, String p_s_json)
-					throws JsonParseException, JsonMappingException, IOException {
-				final JavaType l_jtype = p_mapper.getTypeFactory().constructCollectionType(List.class, p_cls_component);
-				return p_mapper.readValue(p_s_json, l_jtype);
-			}
-		});
+	public <T> List<T> getList(String p_s_key, Class<T> p_cls_component) {
+		return this.get(p_s_key, c_o_mapper.listType(p_cls_component));
 	}
 	
 	/**
@@ -264,14 +879,47 @@ public class Packet implements Map<String, Object>{
 	 * }
 	 * </PRE>
 	 */
-	public <K,V> Map<K, V> getMap(String p_s_key, final Class<K> p_cls_key, final Class<V> p_cls_val){
-		return this.get(p_s_key, new ElementDeserializer() {
-			
+	public <K,V> Map<K, V> getMap(String p_s_key, Class<K> p_cls_key, Class<V> p_cls_val){
+		return this.get(p_s_key, c_o_mapper.mapType(p_cls_key, p_cls_val));
+	}
+
+	/**
+	 * Bind the elements of an array one at a time, for arrays too large to be held as a List, see {@link #stream(String, Class)}.
+	 * The parser is released at the end of the array.
+	 * @throws IllegalArgumentException if the value is not an array, or an element cannot be bound
+	 */
+	public <T> Iterator<T> iterator(String p_s_key, Class<T> p_cls_elem){
+		return Spliterators.iterator(PacketElements.<T>spliterator(this, p_s_key, c_o_mapper.type(p_cls_elem)));
+	}
+
+	/**
+	 * Stream of the elements of an array, each bound when it is consumed and dropped afterwards, so only the elements
+	 * in flight are on the heap, not the List of {@link #getList(String, Class)}. Nothing is put back into the Packet.
+	 * A parallel stream splits a JSON array into batches of elements bound on all threads.
+	 * An array already deserialized is streamed as it is, its elements converted to the class if they are not instances of it.
+	 * <PRE>
+	 * {@code
+	 * try (Stream<Event> events = packet.stream("events", Event.class)) {
+	 * 	Event first = events.filter(e -> e.isError()).findFirst().orElse(null);	// stops binding at the first error
+	 * }
+	 * }
+	 * </PRE>
+	 * @return an empty stream if the key is absent or null
+	 * @throws IllegalArgumentException if the value is not an array, or an element cannot be bound
+	 */
+	public <T> Stream<T> stream(String p_s_key, Class<T> p_cls_elem){
+		return this.stream(p_s_key, c_o_mapper.type(p_cls_elem));
+	}
+	/** Same as {@link #stream(String, Class)} for generic elements, such as the lists of a list of lists */
+	public <T> Stream<T> stream(String p_s_key, TypeReference<T> p_type){
+		return this.stream(p_s_key, c_o_mapper.type(p_type));
+	}
+	private <T> Stream<T> stream(String p_s_key, JavaType p_o_type){
+		final Spliterator<T> l_o_split = PacketElements.spliterator(this, p_s_key, p_o_type);
+		return StreamSupport.stream(l_o_split, false).onClose(new Runnable() {
 			@Override
-			public Object deserialize(ObjectMapper p_mapper, String p_s_json)
-					throws JsonParseException, JsonMappingException, IOException {
-				final JavaType l_jtype = p_mapper.getTypeFactory().constructMapType(Map.class, p_cls_key, p_cls_val);
-				return p_mapper.readValue(p_s_json, l_jtype);
+			public void run() {
+				PacketElements.close(l_o_split);
 			}
 		});
 	}
@@ -298,15 +946,8 @@ public class Packet implements Map<String, Object>{
 	 * @param p_clss Class of the object
 	 * @return null if object is not found
 	 */
-	public <T> T get(String p_s_key, final Class<T> p_clss){
-		return this.get(p_s_key, new ElementDeserializer() {
-			
-			@Override
-			public Object deserialize(ObjectMapper p_mapper, String p_s_json)
-					throws JsonParseException, JsonMappingException, IOException {
-				return p_mapper.readValue(p_s_json, p_clss);
-			}
-		});
+	public <T> T get(String p_s_key, Class<T> p_clss){
+		return this.get(p_s_key, c_o_mapper.type(p_clss));
 	}
 	
 	/**
@@ -317,53 +958,154 @@ public class Packet implements Map<String, Object>{
 	 * }
 	 * </PRE>
 	 */
-	public <T> T get(String p_s_key, final TypeReference<T> p_type){
-		return this.get(p_s_key, new ElementDeserializer() {
-			
-			@Override
-			public Object deserialize(ObjectMapper p_mapper, String p_s_json)
-					throws JsonParseException, JsonMappingException,
-					IOException {
-				return p_mapper.readValue(p_s_json, p_type);
-			}
-		});
+	public <T> T get(String p_s_key, TypeReference<T> p_type){
+		return this.get(p_s_key, c_o_mapper.type(p_type));
+	}
+	
+	/**
+	 * This get method can handle a resolved type, the reader of the type is cached by {@link PacketMapper}
+	 * <PRE>
+	 * {@code
+	 * JavaType type = packet.getMapper().type(new TypeReference<List<MyObject>>() {});
+	 * List<MyObject> list = packet.get("key", type);
+	 * }
+	 * </PRE>
+	 */
+	public <T> T get(String p_s_key, JavaType p_o_type){
+		return this.getElement(p_s_key, p_o_type, null);
 	}
 	
-	@SuppressWarnings("unchecked")
 	protected <T> T get(String p_s_key, ElementDeserializer deserializer){
+		return this.getElement(p_s_key, null, deserializer);
+	}
+	
+	/**
+	 * Deserialize the element by the cached reader of the type, or by the deserializer if the type is null.
+	 * With a concurrent core the element is deserialized exactly once, see {@link #materialize(ConcurrentMap, String, Object, JavaType, ElementDeserializer)}.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T getElement(String p_s_key, JavaType p_o_type, ElementDeserializer deserializer){
 		Object r_o_val = cm_o_core.get(p_s_key);
 		if (this.checkIsJSON(r_o_val)) {
-			final String l_s_json = r_o_val.toString();
-			try {
-				r_o_val = deserializer.deserialize(c_o_mapper, l_s_json);	// dynamic code
-				System.out.println(String.format("Packet.get(): deserialized ELEMENT: %s_ KEY: %s_ VALUE: %s_", r_o_val.getClass(), p_s_key, r_o_val.toString()));
-			} catch (JsonParseException e) {
-				e.printStackTrace();
-			} catch (JsonMappingException e) {
-				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			if (cm_o_core instanceof ConcurrentMap)
+				return (T) this.materialize((ConcurrentMap<String, Object>) cm_o_core, p_s_key, r_o_val, p_o_type, deserializer);
+			r_o_val = this.deserializeElement(p_s_key, r_o_val, p_o_type, deserializer);
 			
-			// Replace
-			cm_o_core.put(p_s_key, r_o_val);
+			// Replace, a read-only core materializes on every get instead
+			if (!this.isReadOnly())
+				cm_o_core.put(p_s_key, r_o_val);
+		} else if (r_o_val != null && p_o_type != null && !p_o_type.getRawClass().isInstance(r_o_val)) {
+			final PacketConverters.Converter<Object, ?> l_o_conv = PacketConverters.find(r_o_val.getClass(), p_o_type.getRawClass());
+			if (l_o_conv != null)	// a basic value, such as epoch milliseconds for an Instant
+				r_o_val = l_o_conv.convert(r_o_val);
+			else if (r_o_val instanceof Number)
+				r_o_val = convertNumber((Number) r_o_val, p_o_type.getRawClass());
 		}
 		
 		return (T) r_o_val;
 	}
 	
+	/** Convert between boxed number types, since a decoder may choose another type, such as Integer for a requested Double */
+	private static Object convertNumber(Number p_o_num, Class<?> p_cls_to){
+		if (p_cls_to == Double.class)	return p_o_num.doubleValue();
+		if (p_cls_to == Long.class)		return p_o_num.longValue();
+		if (p_cls_to == Integer.class)	return p_o_num.intValue();
+		if (p_cls_to == Float.class)	return p_o_num.floatValue();
+		if (p_cls_to == Short.class)	return p_o_num.shortValue();
+		if (p_cls_to == Byte.class)		return p_o_num.byteValue();
+		return p_o_num;
+	}
+	
+	/**
+	 * Deserialize the element of a concurrent core exactly once.<br/>
+	 * The getters of the same element wait for the first one holding the lock of the raw element, then read its result;
+	 * getters of other elements and of materialized elements never wait.
+	 * The result replaces the raw element only if it was not replaced meanwhile.
+	 */
+	private Object materialize(ConcurrentMap<String, Object> pm_o_core, String p_s_key, Object p_o_raw, JavaType p_o_type, ElementDeserializer deserializer){
+		Object l_o_raw = p_o_raw;
+		while (true) {
+			synchronized (l_o_raw) {
+				final Object l_o_cur = pm_o_core.get(p_s_key);
+				if (l_o_cur == l_o_raw) {
+					final Object r_o_val = this.deserializeElement(p_s_key, l_o_raw, p_o_type, deserializer);
+					if (r_o_val != null && r_o_val != l_o_raw)	// concurrent maps do not accept null, a failed element stays raw
+						pm_o_core.replace(p_s_key, l_o_raw, r_o_val);
+					return r_o_val;
+				}
+				if (!this.checkIsJSON(l_o_cur))	// materialized by another getter, or removed
+					return l_o_cur;
+				l_o_raw = l_o_cur;	// replaced by another raw element
+			}
+		}
+	}
+	
+	/** @return the deserialized element, or the raw element if failed */
+	private Object deserializeElement(String p_s_key, Object p_o_raw, JavaType p_o_type, ElementDeserializer deserializer){
+		Object r_o_val = p_o_raw;
+		final PacketMetrics l_o_metrics = c_o_metrics;
+		final long l_l_start = l_o_metrics!=null? System.nanoTime() : 0;
+		try {
+			if (p_o_type == null)
+				r_o_val = deserializer.deserialize(c_o_mapper.getObjectMapper(), r_o_val.toString());	// dynamic code
+			else if (r_o_val instanceof RawElement)
+				r_o_val = ((RawElement) r_o_val).readValue(c_o_mapper, p_o_type);	// bind straight from the bytes
+			else
+				r_o_val = c_o_mapper.reader(p_o_type).readValue(r_o_val.toString());
+			if (l_o_metrics != null)
+				l_o_metrics.onDeserialize(p_s_key,
+						p_o_type!=null? p_o_type.getRawClass() : r_o_val!=null? r_o_val.getClass() : Object.class,
+						System.nanoTime() - l_l_start);
+		} catch (IOException e) {	// JsonParseException, JsonMappingException
+			onFailure("get", p_s_key, e);
+		}
+		return r_o_val;
+	}
+	
 	protected interface ElementDeserializer{
-		/** Called by {@link Packet #get(String, ElementDeserializer)}, when an object was deserailized to an JSONObject/Array */
+		/** Called by {@link Packet #get(String, ElementDeserializer)}, when an object was not deserialized yet, p_s_json is its JSON text */
 		Object deserialize(ObjectMapper p_mapper, String p_s_json) throws JsonParseException, JsonMappingException, IOException;
 	}
 	
-	/** Determine the Object was deserialized to JSON. */
+	/** Determine the Object was not deserialized yet, a {@link RawElement} or an org.json JSONObject/Array. */
 	private boolean checkIsJSON(Object p_o_val){
-		return p_o_val instanceof JSONObject || p_o_val instanceof JSONArray;
+		return p_o_val instanceof RawElement || OrgJson.isJSON(p_o_val);
 	}
 	
 	
 //		Utilize		\\
+	/**
+	 * JSON Merge Patch (RFC 7386) turning this Packet into the target, to send the delta instead of the whole target.<br/>
+	 * Changed keys hold their new value, nested objects hold the patch of their changed fields, removed keys and fields hold null.
+	 * Raw elements of the same bytes are equal without being parsed.
+	 * @usage
+	 * <PRE>
+	 * {@code
+	 * byte[] delta = last.diff(current).toByteArray();	// sender
+	 * replica.applyPatch(Packet.fromBytes(delta));		// receiver
+	 * }
+	 * </PRE>
+	 * @rule
+	 * <PRE>
+	 * 1) Arrays are replaced as a whole.
+	 * 2) A key or field holding null in the target is removed by the patch, as RFC 7386 cannot tell null from removed.
+	 * </PRE>
+	 * @throws IllegalArgumentException if a value cannot be converted to JSON
+	 */
+	public Packet diff(Packet p_o_target){
+		return PacketPatch.diff(this, p_o_target);
+	}
+
+	/**
+	 * Merge a JSON Merge Patch (RFC 7386) into the core, only the keys of the patch are changed.<br/>
+	 * Null removes a key, an object is merged into the object of the key, which is parsed for this and put back as a raw element
+	 * bound again by the next typed get. Any other value replaces the value of the key as is, raw elements of the patch are not parsed.
+	 * @throws IllegalArgumentException if a value of the patch or an object it is merged into is not valid JSON
+	 */
+	public void applyPatch(Packet p_o_patch){
+		PacketPatch.apply(this, p_o_patch);
+	}
+
 	/**
 	 * Transform the Map core to another Map, 
 	 * for example: You constructed a Packet using HashMap, and want to transform to ConcurrentHashMap to be synchronized.
@@ -375,24 +1117,24 @@ public class Packet implements Map<String, Object>{
 		if (cm_o_core.getClass() == p_cls_map)
 			return true;
 		if (p_cls_map.isInterface()) {
-			(new Exception("Packet.transformCore(Class) discarded: Class must be extends from Map.")).printStackTrace();
+			onFailure("transformCore", null, new Exception("Packet.transformCore(Class) discarded: Class must be extends from Map."));
 			return false;
 		}
 		try {
 			this.cm_o_core = p_cls_map.getConstructor(Map.class).newInstance(this.cm_o_core);
 			return true;
 		} catch (InstantiationException e) {
-			e.printStackTrace();
+			onFailure("transformCore", null, e);
 		} catch (IllegalAccessException e) {
-			e.printStackTrace();
+			onFailure("transformCore", null, e);
 		} catch (IllegalArgumentException e) {
-			e.printStackTrace();
+			onFailure("transformCore", null, e);
 		} catch (InvocationTargetException e) {
-			e.printStackTrace();
+			onFailure("transformCore", null, e);
 		} catch (NoSuchMethodException e) {
-			e.printStackTrace();
+			onFailure("transformCore", null, e);
 		} catch (SecurityException e) {
-			e.printStackTrace();
+			onFailure("transformCore", null, e);
 		}
 		
 		return false;
@@ -402,9 +1144,8 @@ public class Packet implements Map<String, Object>{
 	public void printStackTrace(){
 		String l_s_json = this.serialize();
 		try {
-			final Object l_o_json = c_o_mapper.readValue(l_s_json, Object.class);
-			final ObjectWriter writer = c_o_mapper.writer(SerializationFeature.INDENT_OUTPUT);
-			l_s_json = writer.writeValueAsString(l_o_json);
+			final Object l_o_json = c_o_mapper.reader(Object.class).readValue(l_s_json);
+			l_s_json = c_o_mapper.prettyWriter().writeValueAsString(l_o_json);
 			System.out.println(l_s_json);
 			return;
 		} catch (JsonParseException e) {
@@ -422,6 +1163,10 @@ public class Packet implements Map<String, Object>{
 //		Map Methods		\\
 	@Override
 	public void clear() {
+		this.c_o_projection = null;	// the skipped keys are cleared too
+		this.c_a_source = null;
+		this.c_o_sourceCodec = null;
+		this.c_fl_modified = true;
 		this.cm_o_core.clear();
 	}
 	@Override
@@ -434,23 +1179,56 @@ public class Packet implements Map<String, Object>{
 		return this.cm_o_core.isEmpty();
 	}
 
+	/** Removing a key through the view or its iterator is a change of the Packet, like {@link #remove(Object)} */
 	@Override
 	public Set<String> keySet() {
-		return this.cm_o_core.keySet();
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new ViewIterator<String>(cm_o_core.keySet().iterator(), ViewIterator.KEYS);
+			}
+
+			@Override
+			public int size() {
+				return cm_o_core.size();
+			}
+
+			@Override
+			public boolean contains(Object p_o_key) {
+				return cm_o_core.containsKey(p_o_key);
+			}
+
+			@Override
+			public boolean remove(Object p_o_key) {
+				if (!cm_o_core.containsKey(p_o_key))
+					return false;
+				Packet.this.remove(p_o_key);
+				return true;
+			}
+		};
 	}
 
 	@Override
 	public Object put(String key, Object value) {
+		this.touch(key);
 		return this.cm_o_core.put(key, value);
 	}
 
 	@Override
 	public void putAll(Map<? extends String, ? extends Object> m) {
+		if (c_o_projection != null) {
+			for (String l_s_key : m.keySet())
+				this.touch(l_s_key);
+		} else if (!c_fl_expanding) {
+			c_fl_modified = true;
+		}
 		this.cm_o_core.putAll(m);
 	}
 
 	@Override
 	public Object remove(Object key) {
+		if (key instanceof String)
+			this.touch((String) key);
 		return this.cm_o_core.remove(key);
 	}
 
@@ -476,7 +1254,17 @@ public class Packet implements Map<String, Object>{
 	 */
 	@Override @Deprecated
 	public Set<java.util.Map.Entry<String, Object>> entrySet() {
-		return this.cm_o_core.entrySet();
+		return new AbstractSet<Map.Entry<String, Object>>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new ViewIterator<Map.Entry<String, Object>>(cm_o_core.entrySet().iterator(), ViewIterator.ENTRIES);
+			}
+
+			@Override
+			public int size() {
+				return cm_o_core.size();
+			}
+		};
 	}
 
 	/**
@@ -484,7 +1272,17 @@ public class Packet implements Map<String, Object>{
 	 */
 	@Override @Deprecated
 	public Collection<Object> values() {
-		return this.cm_o_core.values();
+		return new AbstractCollection<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				return new ViewIterator<Object>(cm_o_core.entrySet().iterator(), ViewIterator.VALUES);
+			}
+
+			@Override
+			public int size() {
+				return cm_o_core.size();
+			}
+		};
 	}
 
 	/**
@@ -494,5 +1292,80 @@ public class Packet implements Map<String, Object>{
 	public boolean containsValue(Object value) {
 		return this.cm_o_core.containsValue(value);
 	}
-	
+
+	/**
+	 * Iterator of the key, entry and value views of the core.
+	 * A removal, or a value set to an entry, is a change of the Packet, see {@link #touch(String)}, so the source is not written any more.
+	 */
+	private final class ViewIterator<T> implements Iterator<T> {
+		/** Views, the keys iterate the key set of the core, the entries and the values its entry set */
+		static final int KEYS = 0, ENTRIES = 1, VALUES = 2;
+
+		private final Iterator<?> c_o_it;
+		private final int c_i_view;
+		private String c_s_last;
+
+		ViewIterator(Iterator<?> p_o_it, int p_i_view){
+			this.c_o_it = p_o_it;
+			this.c_i_view = p_i_view;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return c_o_it.hasNext();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			final Object l_o_next = c_o_it.next();
+			if (c_i_view == KEYS) {
+				c_s_last = (String) l_o_next;
+				return (T) l_o_next;
+			}
+			final Map.Entry<String, Object> l_o_entry = (Map.Entry<String, Object>) l_o_next;
+			c_s_last = l_o_entry.getKey();
+			if (c_i_view == VALUES)
+				return (T) l_o_entry.getValue();
+			return (T) new Map.Entry<String, Object>() {
+				@Override
+				public String getKey() {
+					return l_o_entry.getKey();
+				}
+
+				@Override
+				public Object getValue() {
+					return l_o_entry.getValue();
+				}
+
+				@Override
+				public Object setValue(Object p_o_val) {
+					final Object r_o_old = l_o_entry.setValue(p_o_val);
+					Packet.this.touch(l_o_entry.getKey());
+					return r_o_old;
+				}
+
+				@Override
+				public boolean equals(Object p_o_other) {
+					return l_o_entry.equals(p_o_other);
+				}
+
+				@Override
+				public int hashCode() {
+					return l_o_entry.hashCode();
+				}
+
+				@Override
+				public String toString() {
+					return l_o_entry.toString();
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			c_o_it.remove();
+			Packet.this.touch(c_s_last);
+		}
+	}
 }
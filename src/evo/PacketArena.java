@@ -0,0 +1,275 @@
+package evo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap memory for Packets kept long, such as the entries of a large cache.<br/>
+ * {@link #copyOf(Packet)} encodes every field of a Packet into a block of a direct chunk and returns a Packet of an {@link OffHeapCore},
+ * so the heap keeps a small handle per Packet instead of its object graph, and the garbage collector has nothing to trace inside.
+ * Fields are materialized on the heap each time they are read, objects and arrays by the typed get methods.<br/>
+ * Blocks are allocated by bumping a pointer in the current chunk. Each chunk counts its live blocks,
+ * a chunk whose blocks are all {@link Packet#release() released} is reused for new blocks.
+ * @usage
+ * <PRE>
+ * {@code
+ * PacketArena arena = new PacketArena();
+ * Packet cached = arena.copyOf(Packet.fromBytes(bytes));
+ * cache.put(id, cached);
+ * ...
+ * List<MyObject> list = cached.get("key", new TypeReference<List<MyObject>>() {});	// decoded from the off-heap bytes
+ * ...
+ * cache.remove(id).release();	// on eviction
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) The copied Packet is read-only, putting or removing a key throws UnsupportedOperationException.
+ * 2) Reading a released Packet throws IllegalStateException, and releasing it twice too.
+ * 3) The arena is thread-safe, a copied Packet may be read by many threads, but must not be read while it is released.
+ * 4) Memory of unreleased blocks is freed with their chunk, once it is not reachable any more.
+ * </PRE>
+ */
+public class PacketArena implements Closeable {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	private static final ThreadLocal<BlockBuffer> C_O_SCRATCH = new ThreadLocal<BlockBuffer>(){
+		@Override
+		protected BlockBuffer initialValue() {
+			return new BlockBuffer();
+		}
+	};
+
+	private final int c_i_chunkSize;
+	private Chunk c_o_current;
+	private final ArrayDeque<Chunk> c_o_free = new ArrayDeque<Chunk>();
+	private int c_i_chunks;
+	private final AtomicLong c_o_used = new AtomicLong();
+	private boolean c_fl_closed;
+
+	public PacketArena(){
+		this(DEFAULT_CHUNK_SIZE);
+	}
+	/**
+	 * @param p_i_chunkSize bytes of a direct chunk, larger blocks get a chunk of their own
+	 */
+	public PacketArena(int p_i_chunkSize){
+		this.c_i_chunkSize = p_i_chunkSize;
+	}
+
+//		GETTER		\\
+	public int getChunkSize()			{return this.c_i_chunkSize;}
+	/** Direct chunks allocated and not dropped, excluding the chunks of single large blocks */
+	public synchronized int getChunkCount()	{return this.c_i_chunks;}
+	/** Bytes of the live blocks */
+	public long getUsedBytes()			{return c_o_used.get();}
+
+//		Methods		\\
+	/**
+	 * Encode the fields of the Packet off-heap, a projected Packet is expanded first. Objects and arrays are written as JSON,
+	 * raw JSON elements are copied as is, Float, Short and Byte values are read back as Double and Integer.
+	 * @return a read-only Packet of an {@link OffHeapCore}, using the mapper of the Packet
+	 * @throws IllegalArgumentException if a value cannot be serialized, or a key is longer than 65535 bytes
+	 * @throws IllegalStateException if the arena is closed
+	 */
+	public Packet copyOf(Packet p_o_pack){
+		p_o_pack.expand();	// a projected Packet holds only some keys of its source
+		return new Packet(this.store(p_o_pack.getCore(), p_o_pack.getMapper()));
+	}
+
+	/** Same as {@link #copyOf(Packet)} for a Map, the mapper serializes its objects and arrays */
+	public OffHeapCore store(Map<String, ? extends Object> pm_o_map, PacketMapper p_o_mapper){
+		final BlockBuffer l_o_buf = C_O_SCRATCH.get();
+		l_o_buf.reset();
+		try {
+			for (Entry<String, ? extends Object> l_o_entry : pm_o_map.entrySet())
+				l_o_buf.writeField(l_o_entry.getKey(), l_o_entry.getValue(), p_o_mapper);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Cannot encode the Packet off-heap", e);
+		} finally {
+			l_o_buf.trim();
+		}
+		final int l_i_len = l_o_buf.size();
+		final OffHeapCore r_o_core = this.allocate(l_i_len, pm_o_map.size());
+		r_o_core.fill(l_o_buf.array());
+		c_o_used.addAndGet(l_i_len);
+		return r_o_core;
+	}
+
+	/** Drop the chunks kept for reuse, the live blocks stay readable until they are released */
+	@Override
+	public synchronized void close() {
+		c_fl_closed = true;
+		c_i_chunks -= c_o_free.size();
+		c_o_free.clear();
+		c_o_current = null;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PacketArena[chunks=%d x %d bytes, used=%d bytes]", this.getChunkCount(), c_i_chunkSize, this.getUsedBytes());
+	}
+
+//		Chunks		\\
+	/**
+	 * Bump the top of the current chunk, only under the lock of the arena.
+	 * @return the core of the new block, its offset taken under the lock, to be filled by the caller
+	 */
+	private synchronized OffHeapCore allocate(int p_i_len, int p_i_size){
+		if (c_fl_closed)
+			throw new IllegalStateException("PacketArena is closed");
+		if (p_i_len > c_i_chunkSize) {	// a chunk of its own, freed with the block
+			final Chunk l_o_chunk = new Chunk(p_i_len, false);
+			l_o_chunk.c_i_top = p_i_len;
+			l_o_chunk.c_o_refs.set(1);
+			return new OffHeapCore(this, l_o_chunk, 0, p_i_len, p_i_size);
+		}
+		if (c_o_current == null || c_i_chunkSize - c_o_current.c_i_top < p_i_len) {
+			if (c_o_current != null)
+				this.retire(c_o_current);
+			c_o_current = c_o_free.pollLast();
+			if (c_o_current == null) {
+				c_o_current = new Chunk(c_i_chunkSize, true);
+				c_i_chunks++;
+			}
+			c_o_current.c_i_top = 0;
+			c_o_current.c_o_refs.set(1);	// held by the arena while current
+		}
+		final int l_i_off = c_o_current.c_i_top;
+		c_o_current.c_i_top += p_i_len;
+		c_o_current.c_o_refs.incrementAndGet();
+		return new OffHeapCore(this, c_o_current, l_i_off, p_i_len, p_i_size);
+	}
+
+	/** Drop a reference of the chunk, the last one makes it free */
+	private void retire(Chunk p_o_chunk){
+		if (p_o_chunk.c_o_refs.decrementAndGet() == 0 && p_o_chunk.c_fl_reusable)
+			this.recycle(p_o_chunk);
+	}
+
+	private synchronized void recycle(Chunk p_o_chunk){
+		if (c_fl_closed)
+			c_i_chunks--;
+		else
+			c_o_free.addLast(p_o_chunk);
+	}
+
+	/** Called once by {@link OffHeapCore#release()} */
+	void release(Chunk p_o_chunk, int p_i_len){
+		c_o_used.addAndGet(-p_i_len);
+		this.retire(p_o_chunk);
+	}
+
+	/** Direct memory holding blocks from 0 to the top */
+	static final class Chunk {
+		final ByteBuffer c_o_mem;
+		private final boolean c_fl_reusable;
+		/** End of the last block, read and written under the lock of the arena only */
+		private int c_i_top;
+		/** Live blocks, plus one while the chunk is the current chunk */
+		private final AtomicInteger c_o_refs = new AtomicInteger();
+
+		Chunk(int p_i_size, boolean p_fl_reusable){
+			this.c_o_mem = ByteBuffer.allocateDirect(p_i_size);
+			this.c_fl_reusable = p_fl_reusable;
+		}
+	}
+
+	/** Heap buffer a block is encoded into before it is copied to its chunk, reused per thread */
+	private static final class BlockBuffer extends ByteArrayOutputStream {
+		/** Buffers grown larger than this by a large Packet are not kept */
+		private static final int MAX_KEPT_BUFFER = 1024 * 1024;
+
+		BlockBuffer(){
+			super(1024);
+		}
+
+		byte[] array()	{return this.buf;}
+
+		void trim(){
+			if (buf.length > MAX_KEPT_BUFFER)
+				buf = new byte[1024];
+		}
+
+		/** Key length and UTF-8 key, kind, value length and value, see {@link OffHeapCore} */
+		void writeField(String p_s_key, Object p_o_val, PacketMapper p_o_mapper) throws IOException {
+			final byte[] l_a_key = p_s_key.getBytes(RawElement.UTF_8);
+			if (l_a_key.length > 0xFFFF)
+				throw new IllegalArgumentException("Key too long: " + p_s_key.substring(0, 64) + "...");
+			this.writeShort(l_a_key.length);
+			this.write(l_a_key, 0, l_a_key.length);
+			if (p_o_val == null) {
+				this.writeHeader(OffHeapCore.K_NULL, 0);
+			} else if (p_o_val instanceof Integer || p_o_val instanceof Short || p_o_val instanceof Byte) {
+				this.writeHeader(OffHeapCore.K_INT, 4);
+				this.writeInt(((Number) p_o_val).intValue());
+			} else if (p_o_val instanceof Long) {
+				this.writeHeader(OffHeapCore.K_LONG, 8);
+				this.writeLong((Long) p_o_val);
+			} else if (p_o_val instanceof Double || p_o_val instanceof Float) {
+				this.writeHeader(OffHeapCore.K_DOUBLE, 8);
+				this.writeLong(Double.doubleToRawLongBits(((Number) p_o_val).doubleValue()));
+			} else if (p_o_val instanceof Boolean) {
+				this.writeHeader(OffHeapCore.K_BOOLEAN, 1);
+				this.write((Boolean) p_o_val? 1 : 0);
+			} else if (p_o_val instanceof String) {
+				final byte[] l_a_str = ((String) p_o_val).getBytes(RawElement.UTF_8);
+				this.writeHeader(OffHeapCore.K_STRING, l_a_str.length);
+				this.write(l_a_str, 0, l_a_str.length);
+			} else if (p_o_val instanceof RawElement && ((RawElement) p_o_val).getCodec() == PacketCodec.JSON) {
+				final RawElement l_o_raw = (RawElement) p_o_val;
+				this.writeHeader(OffHeapCore.K_RAW, l_o_raw.getLength());
+				this.write(l_o_raw.getBuffer(), l_o_raw.getOffset(), l_o_raw.getLength());
+			} else {	// objects, arrays, big numbers, elements of other codecs, as JSON
+				this.writeHeader(p_o_val instanceof BigInteger || p_o_val instanceof BigDecimal? OffHeapCore.K_NUMBER : OffHeapCore.K_RAW, 0);
+				final int l_i_start = count;
+				p_o_mapper.writer().writeValue(this, p_o_val);
+				this.putInt(l_i_start - 4, count - l_i_start);
+			}
+		}
+
+		private void writeHeader(byte p_b_kind, int p_i_len){
+			this.write(p_b_kind);
+			this.writeInt(p_i_len);
+		}
+
+		private void writeShort(int p_i_val){
+			this.write(p_i_val >>> 8);
+			this.write(p_i_val);
+		}
+
+		private void writeInt(int p_i_val){
+			this.write(p_i_val >>> 24);
+			this.write(p_i_val >>> 16);
+			this.write(p_i_val >>> 8);
+			this.write(p_i_val);
+		}
+
+		private void writeLong(long p_l_val){
+			this.writeInt((int) (p_l_val >>> 32));
+			this.writeInt((int) p_l_val);
+		}
+
+		private void putInt(int p_i_index, int p_i_val){
+			buf[p_i_index] = (byte) (p_i_val >>> 24);
+			buf[p_i_index + 1] = (byte) (p_i_val >>> 16);
+			buf[p_i_index + 2] = (byte) (p_i_val >>> 8);
+			buf[p_i_index + 3] = (byte) p_i_val;
+		}
+
+		/** The mapper closes its target, the buffer stays usable */
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package evo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Batch decoding and encoding of many Packets across the threads of an Executor, see {@link Packet#decodeAll(List, Executor)}.<br/>
+ * The batch is cut into chunks claimed by the workers from a shared cursor, the calling thread works too,
+ * so a busy or saturated Executor slows the batch down but never deadlocks it. Results are stored by index, in input order.
+ * Codec state is per thread already: the mapper and its readers are shared, parser buffers are recycled per thread by Jackson.
+ */
+final class PacketBatch {
+
+	/** Chunks per worker, so the workers finishing early steal the rest */
+	private static final int CHUNKS_PER_WORKER = 4;
+
+	private PacketBatch(){
+	}
+
+	/** Work on one element of the batch */
+	interface Body{
+		void run(int p_i_index) throws Exception;
+	}
+
+	static List<Packet> decodeAll(List<byte[]> pl_a_docs, Executor p_o_executor){
+		final byte[][] l_a_docs = pl_a_docs.toArray(new byte[pl_a_docs.size()][]);
+		final Packet[] r_a_packs = new Packet[l_a_docs.length];
+		run(l_a_docs.length, p_o_executor, new Body() {
+			@Override
+			public void run(int p_i_index) {
+				r_a_packs[p_i_index] = Packet.fromBytes(l_a_docs[p_i_index]);
+			}
+		});
+		return new ArrayList<Packet>(Arrays.asList(r_a_packs));
+	}
+
+	static List<byte[]> encodeAll(Collection<? extends Packet> pl_o_packs, final PacketCodec p_o_codec, Executor p_o_executor){
+		final Packet[] l_a_packs = pl_o_packs.toArray(new Packet[pl_o_packs.size()]);
+		final byte[][] r_a_docs = new byte[l_a_packs.length][];
+		run(l_a_packs.length, p_o_executor, new Body() {
+			@Override
+			public void run(int p_i_index) {
+				r_a_docs[p_i_index] = l_a_packs[p_i_index].toByteArray(p_o_codec);
+			}
+		});
+		return new ArrayList<byte[]>(Arrays.asList(r_a_docs));
+	}
+
+	/**
+	 * Run the body for indexes 0 to count - 1 on the Executor and the calling thread, and wait for all of them.
+	 * The first failure is thrown after the whole batch is done, checked exceptions wrapped by IllegalStateException.
+	 */
+	static void run(int p_i_count, Executor p_o_executor, final Body p_o_body){
+		if (p_i_count == 0)
+			return;
+		final int l_i_workers = Math.min(parallelism(p_o_executor), p_i_count);
+		final int l_i_chunk = Math.max(1, p_i_count / (l_i_workers * CHUNKS_PER_WORKER));
+		final int l_i_chunks = (p_i_count + l_i_chunk - 1) / l_i_chunk;
+		final int l_i_count = p_i_count;
+		final AtomicInteger l_o_cursor = new AtomicInteger();
+		final CountDownLatch l_o_done = new CountDownLatch(l_i_chunks);
+		final AtomicReference<Throwable> l_o_error = new AtomicReference<Throwable>();
+		final Runnable l_o_worker = new Runnable() {
+			@Override
+			public void run() {
+				for (int l_i_next; (l_i_next = l_o_cursor.getAndIncrement()) < l_i_chunks;) {
+					try {
+						for (int i = l_i_next * l_i_chunk, l_i_end = Math.min(i + l_i_chunk, l_i_count); i < l_i_end; i++)
+							p_o_body.run(i);
+					} catch (Throwable e) {
+						l_o_error.compareAndSet(null, e);
+					} finally {
+						l_o_done.countDown();
+					}
+				}
+			}
+		};
+		for (int i = 1; i < Math.min(l_i_workers, l_i_chunks); i++) {
+			try {
+				p_o_executor.execute(l_o_worker);
+			} catch (RejectedExecutionException e) {
+				break;	// the calling thread takes the rest
+			}
+		}
+		l_o_worker.run();
+		boolean l_fl_interrupted = false;
+		while (true) {
+			try {
+				l_o_done.await();
+				break;
+			} catch (InterruptedException e) {	// the chunks claimed by the workers are still running
+				l_fl_interrupted = true;
+			}
+		}
+		if (l_fl_interrupted)
+			Thread.currentThread().interrupt();
+		final Throwable l_o_failure = l_o_error.get();
+		if (l_o_failure instanceof RuntimeException)
+			throw (RuntimeException) l_o_failure;
+		if (l_o_failure instanceof Error)
+			throw (Error) l_o_failure;
+		if (l_o_failure != null)
+			throw new IllegalStateException("Batch failed", l_o_failure);
+	}
+
+	/** Threads of the Executor, the number of processors if unknown */
+	private static int parallelism(Executor p_o_executor){
+		if (p_o_executor instanceof ForkJoinPool)
+			return ((ForkJoinPool) p_o_executor).getParallelism() + 1;	// with the calling thread
+		if (p_o_executor instanceof ThreadPoolExecutor)
+			return ((ThreadPoolExecutor) p_o_executor).getMaximumPoolSize() + 1;
+		return Runtime.getRuntime().availableProcessors();
+	}
+}
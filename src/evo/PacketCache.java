@@ -0,0 +1,210 @@
+package evo;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of decoded Packets for repeated documents, such as heartbeats, configuration pushes and repeated error Packets.<br/>
+ * Documents are looked up by a 64 bits hash of their bytes and compared byte by byte, so a hash collision is a miss.
+ * A hit returns a new Packet over a copy of the cached core: the elements and the source are shared with the cached Packet,
+ * objects and arrays are still decoded on demand, and the caller may modify its Packet freely.<br/>
+ * Eviction is least recently used, bounded by the total length of the cached documents.
+ * The cache is split into segments locked independently, each bounded by its share of the weight.
+ * @usage
+ * <PRE>
+ * {@code
+ * static final PacketCache CACHE = new PacketCache(16 * 1024 * 1024);
+ * Packet packet = CACHE.fromBytes(bytes, 0, bytes.length);
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) The cache is thread-safe, a returned Packet is not shared.
+ * 2) Documents longer than the maximum document length, or not decoded intact (lenient fallback), are decoded without caching.
+ * 3) The cache copies the document, the caller may reuse its buffer.
+ * </PRE>
+ */
+public class PacketCache {
+
+	public static final long DEFAULT_MAX_WEIGHT = 16 * 1024 * 1024;
+	public static final int DEFAULT_MAX_DOCUMENT = 4 * 1024;
+	private static final int SEGMENTS = 16;
+
+	private final long c_l_maxWeight;
+	private final int c_i_maxDocument;
+	private final Segment[] c_a_segments = new Segment[SEGMENTS];
+
+	private final LongAdder c_o_hits = new LongAdder();
+	private final LongAdder c_o_misses = new LongAdder();
+	private final LongAdder c_o_bypasses = new LongAdder();
+	private final LongAdder c_o_evictions = new LongAdder();
+	private final AtomicLong c_o_weight = new AtomicLong();
+
+	public PacketCache(){
+		this(DEFAULT_MAX_WEIGHT, DEFAULT_MAX_DOCUMENT);
+	}
+	public PacketCache(long p_l_maxWeight){
+		this(p_l_maxWeight, DEFAULT_MAX_DOCUMENT);
+	}
+	/**
+	 * @param p_l_maxWeight total bytes of the cached documents
+	 * @param p_i_maxDocument bytes of the longest cached document
+	 */
+	public PacketCache(long p_l_maxWeight, int p_i_maxDocument){
+		this.c_l_maxWeight = p_l_maxWeight;
+		this.c_i_maxDocument = p_i_maxDocument;
+		for (int i = 0; i < SEGMENTS; i++)
+			c_a_segments[i] = new Segment(p_l_maxWeight / SEGMENTS);
+	}
+
+//		Methods		\\
+	/** Same as {@link Packet#fromString(String)} through the cache */
+	public Packet fromString(String p_s_json){
+		final byte[] l_a_buf = p_s_json.getBytes(RawElement.UTF_8);
+		return this.fromBytes(l_a_buf, 0, l_a_buf.length);
+	}
+	/** Same as {@link Packet#fromBytes(byte[])} through the cache */
+	public Packet fromBytes(byte[] p_a_buf){
+		return this.fromBytes(p_a_buf, 0, p_a_buf.length);
+	}
+	/**
+	 * Same as {@link Packet#fromBytes(byte[], int, int)} through the cache.
+	 * @return a new Packet with a HashMap core, never null, empty if failed.
+	 */
+	public Packet fromBytes(byte[] p_a_buf, int p_i_off, int p_i_len){
+		if (p_i_len > c_i_maxDocument) {
+			c_o_bypasses.increment();
+			return Packet.fromBytes(p_a_buf, p_i_off, p_i_len);
+		}
+		final long l_l_hash = hash(p_a_buf, p_i_off, p_i_len);
+		final Segment l_o_seg = c_a_segments[(int) (l_l_hash >>> 60)];
+		CachedDoc l_o_entry;
+		synchronized (l_o_seg) {
+			l_o_entry = l_o_seg.get(l_l_hash);
+		}
+		if (l_o_entry != null && l_o_entry.matches(p_a_buf, p_i_off, p_i_len)) {
+			c_o_hits.increment();
+			return l_o_entry.c_o_pack.copyDecoded();
+		}
+		c_o_misses.increment();
+		final byte[] l_a_doc = new byte[p_i_len];
+		System.arraycopy(p_a_buf, p_i_off, l_a_doc, 0, p_i_len);
+		final Packet l_o_pack = Packet.fromBytes(l_a_doc, 0, p_i_len);
+		if (!l_o_pack.isIntact(PacketCodec.detect(l_a_doc, 0, p_i_len))) {	// decoded leniently, its values may be mutable
+			c_o_bypasses.increment();
+			return l_o_pack;
+		}
+		synchronized (l_o_seg) {
+			l_o_seg.add(l_l_hash, new CachedDoc(l_a_doc, l_o_pack));
+		}
+		return l_o_pack.copyDecoded();	// the cached Packet is never handed out
+	}
+
+	/** Remove all documents */
+	public void clear(){
+		for (Segment l_o_seg : c_a_segments) {
+			synchronized (l_o_seg) {
+				l_o_seg.clear();
+				c_o_weight.addAndGet(-l_o_seg.c_l_weight);
+				l_o_seg.c_l_weight = 0;
+			}
+		}
+	}
+
+	/** 64 bits FNV-1a hash */
+	static long hash(byte[] p_a_buf, int p_i_off, int p_i_len){
+		long r_l_hash = 0xcbf29ce484222325L;
+		for (int i = p_i_off, l_i_end = p_i_off + p_i_len; i < l_i_end; i++)
+			r_l_hash = (r_l_hash ^ (p_a_buf[i] & 0xFF)) * 0x100000001b3L;
+		return r_l_hash;
+	}
+
+//		Stats		\\
+	public long getHits()		{return c_o_hits.sum();}
+	public long getMisses()		{return c_o_misses.sum();}
+	/** Documents decoded without caching, too long or not intact */
+	public long getBypasses()	{return c_o_bypasses.sum();}
+	public long getEvictions()	{return c_o_evictions.sum();}
+	/** Total bytes of the cached documents */
+	public long getWeight()		{return c_o_weight.get();}
+	public long getMaxWeight()	{return c_l_maxWeight;}
+	/** Number of cached documents */
+	public int size(){
+		int r_i_size = 0;
+		for (Segment l_o_seg : c_a_segments) {
+			synchronized (l_o_seg) {
+				r_i_size += l_o_seg.size();
+			}
+		}
+		return r_i_size;
+	}
+
+	/** Zero the counters, the cached documents are kept */
+	public void resetStats(){
+		c_o_hits.reset();
+		c_o_misses.reset();
+		c_o_bypasses.reset();
+		c_o_evictions.reset();
+	}
+
+	@Override
+	public String toString() {
+		final long l_l_hits = this.getHits(), l_l_misses = this.getMisses();
+		return String.format("PacketCache[size=%d, weight=%d/%d, hits=%d (%.1f%%), misses=%d, bypasses=%d, evictions=%d]",
+				this.size(), this.getWeight(), c_l_maxWeight,
+				l_l_hits, l_l_hits + l_l_misses > 0? 100d * l_l_hits / (l_l_hits + l_l_misses) : 0d,
+				l_l_misses, this.getBypasses(), this.getEvictions());
+	}
+
+	/** Cached document and its decoded Packet */
+	private static final class CachedDoc {
+		private final byte[] c_a_doc;
+		private final Packet c_o_pack;
+
+		CachedDoc(byte[] p_a_doc, Packet p_o_pack){
+			this.c_a_doc = p_a_doc;
+			this.c_o_pack = p_o_pack;
+		}
+
+		boolean matches(byte[] p_a_buf, int p_i_off, int p_i_len){
+			if (c_a_doc.length != p_i_len)
+				return false;
+			for (int i = 0; i < p_i_len; i++) {
+				if (c_a_doc[i] != p_a_buf[p_i_off + i])
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/** Entries in access order, guarded by its own lock */
+	private final class Segment extends LinkedHashMap<Long, CachedDoc> {
+		private static final long serialVersionUID = 1L;
+		private final long c_l_maxWeight;
+		private long c_l_weight;
+
+		Segment(long p_l_maxWeight){
+			super(16, 0.75f, true);
+			this.c_l_maxWeight = p_l_maxWeight;
+		}
+
+		/** Put the entry then evict the least recently used entries over the weight */
+		void add(long p_l_hash, CachedDoc p_o_entry){
+			final CachedDoc l_o_old = this.put(p_l_hash, p_o_entry);
+			long l_l_delta = p_o_entry.c_a_doc.length - (l_o_old != null? l_o_old.c_a_doc.length : 0);
+			c_l_weight += l_l_delta;
+			for (Iterator<CachedDoc> l_o_it = this.values().iterator(); c_l_weight > c_l_maxWeight && l_o_it.hasNext();) {
+				final CachedDoc l_o_eldest = l_o_it.next();
+				if (l_o_eldest == p_o_entry)
+					break;
+				l_o_it.remove();
+				c_l_weight -= l_o_eldest.c_a_doc.length;
+				l_l_delta -= l_o_eldest.c_a_doc.length;
+				c_o_evictions.increment();
+			}
+			c_o_weight.addAndGet(l_l_delta);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package evo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Wire format of {@link Packet}.<br/>
+ * A codec decodes the top level of a document into the Packet, keeping objects and arrays as {@link RawElement} of the codec,
+ * and presents any element as Jackson tokens, so the lazy typed get methods work the same on every format.
+ * @usage
+ * <PRE>
+ * {@code
+ * byte[] bytes = packet.toByteArray(PacketCodec.BINARY);
+ * Packet packet = Packet.fromBytes(bytes);	// format is detected
+ * MyObject object = packet.get("key", MyObject.class);
+ * }
+ * </PRE>
+ */
+public abstract class PacketCodec {
+
+	/** Textual JSON, the default format */
+	public static final PacketCodec JSON = new JsonPacketCodec();
+	/** Compact binary format, see {@link BinaryPacketCodec} */
+	public static final PacketCodec BINARY = new BinaryPacketCodec();
+
+	/** Codecs in the order of detection, JSON is not included since it accepts anything */
+	private static final CopyOnWriteArrayList<PacketCodec> CL_CODECS = new CopyOnWriteArrayList<PacketCodec>(new PacketCodec[]{BINARY});
+
+	/**
+	 * Register a codec for {@link #detect(byte[], int, int)}, it is asked before the registered ones.
+	 * The codec must not accept textual JSON.
+	 */
+	public static void register(PacketCodec p_o_codec){
+		CL_CODECS.addIfAbsent(p_o_codec);
+		if (CL_CODECS.remove(p_o_codec))
+			CL_CODECS.add(0, p_o_codec);
+	}
+
+	/**
+	 * Detect the format of the document.
+	 * @return the first registered codec accepting the bytes, {@link #JSON} if none
+	 */
+	public static PacketCodec detect(byte[] p_a_buf, int p_i_off, int p_i_len){
+		for (PacketCodec l_o_codec : CL_CODECS) {
+			if (l_o_codec.accept(p_a_buf, p_i_off, p_i_len))
+				return l_o_codec;
+		}
+		return JSON;
+	}
+
+//		Codec		\\
+	/** Name of the format, for diagnostics */
+	public abstract String getName();
+
+	/** Determine the document is encoded by this codec, usually by a leading magic number. */
+	public abstract boolean accept(byte[] p_a_buf, int p_i_off, int p_i_len);
+
+	/**
+	 * Decode the top level of the document, then put all collections to the Packet by {@link Packet#putElement(String, Object)}.
+	 * Objects and arrays must be put as {@link RawElement} of this codec, referencing the buffer.
+	 */
+	protected abstract void decode(Packet p_o_pack, byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException;
+
+	/** Encode the whole Packet to the stream, the stream must not be closed. */
+	protected abstract void encode(Packet p_o_pack, OutputStream p_o_out) throws IOException;
+
+	/** Encode the whole Packet to a new array */
+	protected byte[] encode(Packet p_o_pack) throws IOException {
+		final ByteArrayOutputStream l_o_out = new ByteArrayOutputStream();
+		this.encode(p_o_pack, l_o_out);
+		return l_o_out.toByteArray();
+	}
+
+	/**
+	 * Create a parser over an element encoded by this codec, used to bind {@link RawElement}. The caller must close it.
+	 * @param p_o_mapper the ObjectMapper binding the element
+	 */
+	public abstract JsonParser createParser(ObjectMapper p_o_mapper, byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException;
+
+	/** Determine the element starting at the offset is an array */
+	public abstract boolean isArray(byte[] p_a_buf, int p_i_off);
+
+	@Override
+	public String toString() {
+		return this.getName();
+	}
+}
@@ -0,0 +1,528 @@
+package evo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Batch of Packets encoded column by column, for many Packets sharing the same keys, such as the rows of an export.<br/>
+ * Each key is written once with the kind of its column: booleans as bits, int, long and double values as fixed-width numbers,
+ * strings as UTF-8 and other values as JSON, each behind an offset table. A row missing the key or holding null is marked in a bitmap.
+ * A decoded batch reads a single {@link Column} without materializing the rows,
+ * or each row as a Packet of a {@link PrimitiveCore} whose objects and arrays are {@link RawElement}s bound by the typed get methods.
+ * <br/>Layout, big-endian:
+ * <PRE>
+ * magic, version, rows as 4 bytes, columns as 4 bytes
+ * per column: key length as 2 bytes, UTF-8 key, kind, flags, data length as 4 bytes
+ * per column data: absent bitmap and null bitmap if flagged, then the values
+ * </PRE>
+ * @usage
+ * <PRE>
+ * {@code
+ * byte[] bytes = PacketColumns.encode(rows);
+ * ...
+ * PacketColumns batch = PacketColumns.wrap(bytes);
+ * PacketColumns.Column price = batch.getColumn("price");
+ * double total = 0;
+ * for (int i = 0; i < batch.size(); i++)
+ * 	total += price.getDouble(i, 0);	// no Packet, no boxing
+ * Packet row = batch.getPacket(3);
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) Columns keep the order the keys were first seen. A column of mixed kinds, such as int and string, is written as JSON.
+ * 2) Calendars are written as epoch milliseconds, the same as JSON, and read back as Long.
+ *    Long values are read back as Long, Float as Double, Short and Byte as Integer.
+ * 3) The decoded batch and its rows keep a reference to the bytes, which must not be modified afterwards.
+ * 4) A decoded batch is thread-safe, a row Packet is not.
+ * </PRE>
+ */
+public final class PacketColumns {
+
+	public static final byte MAGIC = (byte) 0xB9;
+	public static final byte VERSION = 1;
+
+	/** Kinds of column */
+	public enum Kind { BOOLEAN, INT, LONG, DOUBLE, STRING, RAW }
+
+	/** Flags of a column */
+	private static final byte F_ABSENT = 1, F_NULL = 2;
+
+	private final byte[] c_a_buf;
+	private final int c_i_len;
+	private final ByteBuffer c_o_mem;
+	private final int c_i_rows;
+	private final List<Column> cl_o_columns;
+	private final Map<String, Column> cm_o_columns;
+
+	private PacketColumns(byte[] p_a_buf, int p_i_off, int p_i_len){
+		this.c_a_buf = p_a_buf;
+		this.c_i_len = p_i_len;
+		this.c_o_mem = ByteBuffer.wrap(p_a_buf);
+		try {
+			if (p_i_len < 10 || p_a_buf[p_i_off] != MAGIC)
+				throw new IllegalArgumentException("Not a columnar batch");
+			if (p_a_buf[p_i_off + 1] != VERSION)
+				throw new IllegalArgumentException("Unsupported columnar batch version: " + p_a_buf[p_i_off + 1]);
+			final int l_i_end = p_i_off + p_i_len;
+			c_i_rows = c_o_mem.getInt(p_i_off + 2);
+			final int l_i_cols = c_o_mem.getInt(p_i_off + 6);
+			if (c_i_rows < 0 || l_i_cols < 0)
+				throw new IllegalArgumentException("Malformed columnar batch");
+			cl_o_columns = new ArrayList<Column>(Math.min(l_i_cols, p_i_len));
+			cm_o_columns = new HashMap<String, Column>();
+			final int[] l_a_lens = new int[Math.min(l_i_cols, p_i_len)];
+			int l_i_pos = p_i_off + 10;
+			for (int i = 0; i < l_i_cols; i++) {
+				final int l_i_keyLen = c_o_mem.getShort(l_i_pos) & 0xFFFF;
+				final String l_s_key = new String(p_a_buf, l_i_pos + 2, l_i_keyLen, RawElement.UTF_8);
+				l_i_pos += 2 + l_i_keyLen;
+				final Column l_o_col = new Column(l_s_key, Kind.values()[p_a_buf[l_i_pos]], p_a_buf[l_i_pos + 1]);
+				l_a_lens[i] = c_o_mem.getInt(l_i_pos + 2);
+				l_i_pos += 6;
+				cl_o_columns.add(l_o_col);
+				cm_o_columns.put(l_s_key, l_o_col);
+			}
+			for (int i = 0; i < l_i_cols; i++) {
+				if (l_a_lens[i] < 0 || l_a_lens[i] > l_i_end - l_i_pos)
+					throw new IllegalArgumentException("Truncated columnar batch");
+				cl_o_columns.get(i).locate(l_i_pos, l_a_lens[i]);
+				l_i_pos += l_a_lens[i];
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Truncated columnar batch", e);
+		}
+	}
+
+//		GETTER		\\
+	/** Rows of the batch */
+	public int size()					{return this.c_i_rows;}
+	/** Bytes of the batch */
+	public int getLength()				{return this.c_i_len;}
+	public List<Column> getColumns()	{return Collections.unmodifiableList(this.cl_o_columns);}
+	/** @return null if no row has the key */
+	public Column getColumn(String p_s_key)	{return this.cm_o_columns.get(p_s_key);}
+
+//		Static Methods		\\
+	/**
+	 * Encode the Packets column by column, objects and arrays are written by the mapper of their Packet.
+	 * Projected Packets are expanded first.
+	 * @throws IllegalArgumentException if a value cannot be serialized, or a key is longer than 65535 bytes
+	 */
+	public static byte[] encode(Collection<? extends Packet> pl_o_packs){
+		final Map<String, ColumnBuffer> lm_o_columns = new LinkedHashMap<String, ColumnBuffer>();
+		for (Packet l_o_pack : pl_o_packs) {
+			l_o_pack.expand();	// a projected Packet holds only some keys of its source
+			for (Entry<String, Object> l_o_entry : l_o_pack.getCore().entrySet()) {
+				ColumnBuffer l_o_col = lm_o_columns.get(l_o_entry.getKey());
+				if (l_o_col == null) {
+					l_o_col = new ColumnBuffer(l_o_entry.getKey(), pl_o_packs.size());
+					lm_o_columns.put(l_o_entry.getKey(), l_o_col);
+				}
+				l_o_col.classify(l_o_entry.getValue());
+			}
+		}
+		int l_i_size = 10;
+		try {
+			int l_i_row = 0;
+			for (Packet l_o_pack : pl_o_packs) {
+				final Map<String, Object> lm_o_core = l_o_pack.getCore();
+				for (ColumnBuffer l_o_col : lm_o_columns.values()) {
+					final Object l_o_val = lm_o_core.get(l_o_col.c_s_key);
+					l_o_col.write(l_i_row, l_o_val, l_o_val != null || lm_o_core.containsKey(l_o_col.c_s_key), l_o_pack.getMapper());
+				}
+				l_i_row++;
+			}
+			for (ColumnBuffer l_o_col : lm_o_columns.values()) {
+				l_o_col.finish();
+				l_i_size += 8 + l_o_col.c_a_key.length + l_o_col.size();
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Cannot encode the columns", e);
+		}
+		final ByteBuffer l_o_out = ByteBuffer.allocate(l_i_size);
+		l_o_out.put(MAGIC).put(VERSION).putInt(pl_o_packs.size()).putInt(lm_o_columns.size());
+		for (ColumnBuffer l_o_col : lm_o_columns.values()) {
+			l_o_out.putShort((short) l_o_col.c_a_key.length).put(l_o_col.c_a_key);
+			l_o_out.put((byte) l_o_col.c_o_kind.ordinal()).put(l_o_col.c_b_flags).putInt(l_o_col.size());
+		}
+		for (ColumnBuffer l_o_col : lm_o_columns.values())
+			l_o_col.writeTo(l_o_out);
+		return l_o_out.array();
+	}
+
+	/**
+	 * Read the batch, the columns are located without decoding any value.
+	 * @throws IllegalArgumentException if the bytes are not a columnar batch or are truncated
+	 */
+	public static PacketColumns wrap(byte[] p_a_buf){
+		return wrap(p_a_buf, 0, p_a_buf.length);
+	}
+	public static PacketColumns wrap(byte[] p_a_buf, int p_i_off, int p_i_len){
+		return new PacketColumns(p_a_buf, p_i_off, p_i_len);
+	}
+
+//		Methods		\\
+	/**
+	 * Decode a row, numbers and booleans unboxed in a {@link PrimitiveCore}, objects and arrays as {@link RawElement}s of the bytes.
+	 * @throws IndexOutOfBoundsException if the row is not in the batch
+	 */
+	public Packet getPacket(int p_i_row){
+		this.checkRow(p_i_row);
+		final PrimitiveCore l_o_core = new PrimitiveCore(cl_o_columns.size());
+		for (Column l_o_col : cl_o_columns) {
+			if (!l_o_col.isPresent(p_i_row))
+				continue;
+			if (l_o_col.isNull(p_i_row)) {
+				l_o_core.put(l_o_col.c_s_key, null);
+				continue;
+			}
+			switch (l_o_col.c_o_kind) {
+			case BOOLEAN:
+				l_o_core.putBoolean(l_o_col.c_s_key, l_o_col.bit(l_o_col.c_i_values, p_i_row));
+				break;
+			case INT:
+				l_o_core.putInt(l_o_col.c_s_key, c_o_mem.getInt(l_o_col.c_i_values + (p_i_row << 2)));
+				break;
+			case LONG:
+				l_o_core.putLong(l_o_col.c_s_key, c_o_mem.getLong(l_o_col.c_i_values + (p_i_row << 3)));
+				break;
+			case DOUBLE:
+				l_o_core.putDouble(l_o_col.c_s_key, c_o_mem.getDouble(l_o_col.c_i_values + (p_i_row << 3)));
+				break;
+			default:
+				l_o_core.put(l_o_col.c_s_key, l_o_col.get(p_i_row));
+			}
+		}
+		return new Packet(l_o_core);
+	}
+
+	/** Decode every row, see {@link #getPacket(int)} */
+	public List<Packet> toPackets(){
+		final List<Packet> rl_o_packs = new ArrayList<Packet>(c_i_rows);
+		for (int i = 0; i < c_i_rows; i++)
+			rl_o_packs.add(this.getPacket(i));
+		return rl_o_packs;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PacketColumns[rows=%d, columns=%d, %d bytes]", c_i_rows, cl_o_columns.size(), c_i_len);
+	}
+
+	private void checkRow(int p_i_row){
+		if (p_i_row < 0 || p_i_row >= c_i_rows)
+			throw new IndexOutOfBoundsException("Row " + p_i_row + " of " + c_i_rows);
+	}
+
+	/**
+	 * Values of a key in every row, read straight from the bytes.<br/>
+	 * The getters of a row missing the key or holding null return the default,
+	 * the numeric getters return the default for a value that is not a number, the same as the getters of Packet.
+	 */
+	public final class Column {
+		private final String c_s_key;
+		private final Kind c_o_kind;
+		private final byte c_b_flags;
+		/** Positions of the bitmaps, -1 if not flagged, and of the values */
+		private int c_i_absent = -1, c_i_null = -1, c_i_values;
+
+		private Column(String p_s_key, Kind p_o_kind, byte p_b_flags){
+			this.c_s_key = p_s_key;
+			this.c_o_kind = p_o_kind;
+			this.c_b_flags = p_b_flags;
+		}
+
+		private void locate(int p_i_pos, int p_i_len){
+			final int l_i_bitmap = (c_i_rows + 7) >>> 3;
+			int l_i_pos = p_i_pos;
+			if ((c_b_flags & F_ABSENT) != 0) {
+				c_i_absent = l_i_pos;
+				l_i_pos += l_i_bitmap;
+			}
+			if ((c_b_flags & F_NULL) != 0) {
+				c_i_null = l_i_pos;
+				l_i_pos += l_i_bitmap;
+			}
+			c_i_values = l_i_pos;
+			final long l_l_values;
+			switch (c_o_kind) {
+			case BOOLEAN:	l_l_values = l_i_bitmap; break;
+			case INT:		l_l_values = 4L * c_i_rows; break;
+			case LONG:
+			case DOUBLE:	l_l_values = 8L * c_i_rows; break;
+			default:		l_l_values = 4L * (c_i_rows + 1) + c_o_mem.getInt(l_i_pos + (c_i_rows << 2));
+			}
+			if (l_i_pos - p_i_pos + l_l_values != p_i_len)
+				throw new IllegalArgumentException("Malformed column: " + c_s_key);
+		}
+
+	//		GETTER		\\
+		public String getKey()		{return this.c_s_key;}
+		public Kind getKind()		{return this.c_o_kind;}
+
+		/** @return true if the row has the key, even if its value is null */
+		public boolean isPresent(int p_i_row){
+			checkRow(p_i_row);
+			return c_i_absent < 0 || !this.bit(c_i_absent, p_i_row);
+		}
+		/** @return true if the row has no value for the key */
+		public boolean isNull(int p_i_row){
+			return !this.isPresent(p_i_row) || c_i_null >= 0 && this.bit(c_i_null, p_i_row);
+		}
+
+		public boolean getBoolean(int p_i_row, boolean p_def){
+			if (this.isNull(p_i_row))
+				return p_def;
+			if (c_o_kind == Kind.BOOLEAN)
+				return this.bit(c_i_values, p_i_row);
+			final Object l_o_val = c_o_kind == Kind.RAW? this.get(p_i_row) : null;
+			return l_o_val instanceof Boolean? (Boolean) l_o_val : p_def;
+		}
+		public int getInt(int p_i_row, int p_def){
+			if (this.isNull(p_i_row))
+				return p_def;
+			switch (c_o_kind) {
+			case INT:		return c_o_mem.getInt(c_i_values + (p_i_row << 2));
+			case LONG:		return (int) c_o_mem.getLong(c_i_values + (p_i_row << 3));
+			case DOUBLE:	return (int) c_o_mem.getDouble(c_i_values + (p_i_row << 3));
+			default:
+				final Object l_o_val = c_o_kind == Kind.RAW? this.get(p_i_row) : null;
+				return l_o_val instanceof Number? ((Number) l_o_val).intValue() : p_def;
+			}
+		}
+		public long getLong(int p_i_row, long p_def){
+			if (this.isNull(p_i_row))
+				return p_def;
+			switch (c_o_kind) {
+			case INT:		return c_o_mem.getInt(c_i_values + (p_i_row << 2));
+			case LONG:		return c_o_mem.getLong(c_i_values + (p_i_row << 3));
+			case DOUBLE:	return (long) c_o_mem.getDouble(c_i_values + (p_i_row << 3));
+			default:
+				final Object l_o_val = c_o_kind == Kind.RAW? this.get(p_i_row) : null;
+				return l_o_val instanceof Number? ((Number) l_o_val).longValue() : p_def;
+			}
+		}
+		public double getDouble(int p_i_row, double p_def){
+			if (this.isNull(p_i_row))
+				return p_def;
+			switch (c_o_kind) {
+			case INT:		return c_o_mem.getInt(c_i_values + (p_i_row << 2));
+			case LONG:		return c_o_mem.getLong(c_i_values + (p_i_row << 3));
+			case DOUBLE:	return c_o_mem.getDouble(c_i_values + (p_i_row << 3));
+			default:
+				final Object l_o_val = c_o_kind == Kind.RAW? this.get(p_i_row) : null;
+				return l_o_val instanceof Number? ((Number) l_o_val).doubleValue() : p_def;
+			}
+		}
+		/** @return null if the row has no value, or the value is not a string */
+		public String getString(int p_i_row){
+			if (this.isNull(p_i_row))
+				return null;
+			final Object l_o_val = c_o_kind == Kind.STRING || c_o_kind == Kind.RAW? this.get(p_i_row) : null;
+			return l_o_val instanceof String? (String) l_o_val : null;
+		}
+
+		/**
+		 * Value of the row, as in the row Packet: boxed numbers and booleans, strings,
+		 * objects and arrays as {@link RawElement}s of the bytes.
+		 * @return null if the row has no value
+		 * @throws IllegalArgumentException if a JSON value is malformed
+		 */
+		public Object get(int p_i_row){
+			if (this.isNull(p_i_row))
+				return null;
+			switch (c_o_kind) {
+			case BOOLEAN:	return this.bit(c_i_values, p_i_row);
+			case INT:		return c_o_mem.getInt(c_i_values + (p_i_row << 2));
+			case LONG:		return c_o_mem.getLong(c_i_values + (p_i_row << 3));
+			case DOUBLE:	return c_o_mem.getDouble(c_i_values + (p_i_row << 3));
+			default:
+			}
+			final int l_i_bytes = c_i_values + ((c_i_rows + 1) << 2);
+			final int l_i_off = l_i_bytes + c_o_mem.getInt(c_i_values + (p_i_row << 2));
+			final int l_i_len = l_i_bytes + c_o_mem.getInt(c_i_values + ((p_i_row + 1) << 2)) - l_i_off;
+			if (c_o_kind == Kind.STRING)
+				return new String(c_a_buf, l_i_off, l_i_len, RawElement.UTF_8);
+			if (c_a_buf[l_i_off] == '{' || c_a_buf[l_i_off] == '[')
+				return new RawElement(c_a_buf, l_i_off, l_i_len);
+			try {	// a number, string or boolean of a column of mixed kinds
+				return PacketMapper.getDefault().getObjectMapper().readValue(c_a_buf, l_i_off, l_i_len, Object.class);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Malformed value of column " + c_s_key + " at row " + p_i_row, e);
+			}
+		}
+
+		private boolean bit(int p_i_bitmap, int p_i_row){
+			return (c_a_buf[p_i_bitmap + (p_i_row >>> 3)] & (1 << (p_i_row & 7))) != 0;
+		}
+
+		@Override
+		public String toString() {
+			return c_s_key + ":" + c_o_kind;
+		}
+	}
+
+	/** Values of a column while encoding */
+	private static final class ColumnBuffer {
+		private final String c_s_key;
+		private final byte[] c_a_key;
+		private final int c_i_rows;
+		/** null until a value is classified */
+		private Kind c_o_kind;
+		private byte c_b_flags;
+		private final byte[] c_a_absent, c_a_null;
+		private byte[] c_a_values;
+		private int[] c_a_offsets;
+		private ByteArrayOutputStream c_o_bytes;
+
+		ColumnBuffer(String p_s_key, int p_i_rows){
+			this.c_s_key = p_s_key;
+			this.c_a_key = p_s_key.getBytes(RawElement.UTF_8);
+			if (c_a_key.length > 0xFFFF)
+				throw new IllegalArgumentException("Key too long: " + p_s_key.substring(0, 64) + "...");
+			this.c_i_rows = p_i_rows;
+			this.c_a_absent = new byte[(p_i_rows + 7) >>> 3];
+			this.c_a_null = new byte[c_a_absent.length];
+		}
+
+		private static Kind kindOf(Object p_o_val){
+			if (p_o_val instanceof Integer || p_o_val instanceof Short || p_o_val instanceof Byte)
+				return Kind.INT;
+			if (p_o_val instanceof Long || p_o_val instanceof Calendar)
+				return Kind.LONG;
+			if (p_o_val instanceof Double || p_o_val instanceof Float)
+				return Kind.DOUBLE;
+			if (p_o_val instanceof Boolean)
+				return Kind.BOOLEAN;
+			if (p_o_val instanceof String)
+				return Kind.STRING;
+			return Kind.RAW;
+		}
+
+		/** Widen the kind of the column to hold the value, int to long, anything else mixed to JSON */
+		void classify(Object p_o_val){
+			if (p_o_val == null || c_o_kind == Kind.RAW)
+				return;
+			final Kind l_o_kind = kindOf(p_o_val);
+			if (c_o_kind == null || c_o_kind == l_o_kind)
+				c_o_kind = l_o_kind;
+			else if (c_o_kind == Kind.INT && l_o_kind == Kind.LONG || c_o_kind == Kind.LONG && l_o_kind == Kind.INT)
+				c_o_kind = Kind.LONG;
+			else
+				c_o_kind = Kind.RAW;
+		}
+
+		void write(int p_i_row, Object p_o_val, boolean p_fl_present, PacketMapper p_o_mapper) throws IOException {
+			if (c_o_kind == null)	// no value in any row
+				c_o_kind = Kind.RAW;
+			if (c_a_values == null && c_o_bytes == null)
+				this.allocate();
+			if (!p_fl_present) {
+				c_b_flags |= F_ABSENT;
+				c_a_absent[p_i_row >>> 3] |= 1 << (p_i_row & 7);
+			} else if (p_o_val == null) {
+				c_b_flags |= F_NULL;
+				c_a_null[p_i_row >>> 3] |= 1 << (p_i_row & 7);
+			}
+			switch (c_o_kind) {
+			case BOOLEAN:
+				if (p_o_val != null && (Boolean) p_o_val)
+					c_a_values[p_i_row >>> 3] |= 1 << (p_i_row & 7);
+				break;
+			case INT:
+				if (p_o_val != null)
+					putInt(c_a_values, p_i_row << 2, ((Number) p_o_val).intValue());
+				break;
+			case LONG:
+				if (p_o_val != null)
+					putLong(c_a_values, p_i_row << 3, p_o_val instanceof Calendar? ((Calendar) p_o_val).getTimeInMillis() : ((Number) p_o_val).longValue());
+				break;
+			case DOUBLE:
+				if (p_o_val != null)	// a Float as it is printed in JSON, not widened
+					putLong(c_a_values, p_i_row << 3, Double.doubleToRawLongBits(p_o_val instanceof Float? Double.parseDouble(p_o_val.toString()) : (Double) p_o_val));
+				break;
+			case STRING:
+				c_a_offsets[p_i_row] = c_o_bytes.size();
+				if (p_o_val != null) {
+					final byte[] l_a_str = ((String) p_o_val).getBytes(RawElement.UTF_8);
+					c_o_bytes.write(l_a_str, 0, l_a_str.length);
+				}
+				break;
+			default:
+				c_a_offsets[p_i_row] = c_o_bytes.size();
+				if (p_o_val instanceof RawElement && ((RawElement) p_o_val).getCodec() == PacketCodec.JSON) {
+					final RawElement l_o_raw = (RawElement) p_o_val;
+					c_o_bytes.write(l_o_raw.getBuffer(), l_o_raw.getOffset(), l_o_raw.getLength());
+				} else if (p_o_val != null) {
+					p_o_mapper.writer().writeValue(c_o_bytes, p_o_val);
+				}
+			}
+		}
+
+		private void allocate(){
+			switch (c_o_kind) {
+			case BOOLEAN:	c_a_values = new byte[c_a_absent.length]; break;
+			case INT:		c_a_values = new byte[c_i_rows << 2]; break;
+			case LONG:
+			case DOUBLE:	c_a_values = new byte[c_i_rows << 3]; break;
+			default:
+				c_a_offsets = new int[c_i_rows + 1];
+				c_o_bytes = new ByteArrayOutputStream();
+			}
+		}
+
+		/** Append the offset table to the values of strings and JSON, called once after the last row */
+		void finish(){
+			if (c_a_offsets == null)
+				return;
+			c_a_offsets[c_i_rows] = c_o_bytes.size();
+			final int l_i_table = (c_i_rows + 1) << 2;
+			c_a_values = new byte[l_i_table + c_o_bytes.size()];
+			for (int i = 0; i <= c_i_rows; i++)
+				putInt(c_a_values, i << 2, c_a_offsets[i]);
+			System.arraycopy(c_o_bytes.toByteArray(), 0, c_a_values, l_i_table, c_o_bytes.size());
+			c_o_bytes = null;
+		}
+
+		/** Bytes of the column data */
+		int size(){
+			int r_i_size = c_a_values.length;
+			if ((c_b_flags & F_ABSENT) != 0)
+				r_i_size += c_a_absent.length;
+			if ((c_b_flags & F_NULL) != 0)
+				r_i_size += c_a_null.length;
+			return r_i_size;
+		}
+
+		void writeTo(ByteBuffer p_o_out){
+			if ((c_b_flags & F_ABSENT) != 0)
+				p_o_out.put(c_a_absent);
+			if ((c_b_flags & F_NULL) != 0)
+				p_o_out.put(c_a_null);
+			p_o_out.put(c_a_values);
+		}
+
+		private static void putInt(byte[] p_a_buf, int p_i_index, int p_i_val){
+			p_a_buf[p_i_index] = (byte) (p_i_val >>> 24);
+			p_a_buf[p_i_index + 1] = (byte) (p_i_val >>> 16);
+			p_a_buf[p_i_index + 2] = (byte) (p_i_val >>> 8);
+			p_a_buf[p_i_index + 3] = (byte) p_i_val;
+		}
+
+		private static void putLong(byte[] p_a_buf, int p_i_index, long p_l_val){
+			putInt(p_a_buf, p_i_index, (int) (p_l_val >>> 32));
+			putInt(p_a_buf, p_i_index + 4, (int) p_l_val);
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package evo;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Static registry of the conversions from a decoded value, such as a number or a string, to a requested type.<br/>
+ * Consulted by {@link Packet#get(String, Class)} and {@link Packet#getCalendar(String)} before Jackson,
+ * when the value is a basic type that is not an instance of the requested type. A converter is found by the class of the value
+ * then its superclasses, so a converter from Number serves Integer and Long. The resolved converter of each pair of classes is cached.
+ * <br/>Built in:
+ * <PRE>
+ * Number (epoch milliseconds)	to Calendar, Date, Instant
+ * Number			to BigDecimal, BigInteger
+ * String (ISO-8601)		to Instant, LocalDate, LocalDateTime, LocalTime, OffsetDateTime, ZonedDateTime, Duration
+ * String			to UUID, BigDecimal, BigInteger, and any enum by its constant name
+ * </PRE>
+ * @usage
+ * <PRE>
+ * {@code
+ * Instant time = packet.get("time", Instant.class);	// from epoch milliseconds, no Calendar, no Jackson
+ * PacketConverters.register(String.class, Currency.class, new PacketConverters.Converter<String, Currency>() {
+ * 	public Currency convert(String code) {
+ * 		return Currency.getInstance(code);
+ * 	}
+ * });
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) Converters must be thread-safe and must not return null.
+ * 2) A failed conversion throws its exception to the getter, such as DateTimeParseException or IllegalArgumentException.
+ * 3) Calendars are in the default time zone and locale of the JVM when this class was initialized, cloned from a prototype.
+ * </PRE>
+ */
+public final class PacketConverters {
+
+	/** Conversion of a value to another type */
+	public interface Converter<F, T>{
+		T convert(F p_o_from);
+	}
+
+	/** Cached result of a pair of classes without converter */
+	private static final Converter<Object, Object> NONE = new Converter<Object, Object>() {
+		@Override
+		public Object convert(Object p_o_from) {
+			throw new UnsupportedOperationException();
+		}
+	};
+
+	/** Registered converters, by target then source class */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Converter<?, ?>>> CM_O_REGISTERED = new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, Converter<?, ?>>>();
+	/** Converters resolved along the superclasses, by target then source class, cleared by {@link #register(Class, Class, Converter)} */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Converter<?, ?>>> CM_O_RESOLVED = new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, Converter<?, ?>>>();
+
+	private static final Calendar CALENDAR_PROTOTYPE = Calendar.getInstance();
+
+	static {
+		register(Number.class, Calendar.class, new Converter<Number, Calendar>() {
+			@Override
+			public Calendar convert(Number p_o_from) {
+				final Calendar r_o_cal = (Calendar) CALENDAR_PROTOTYPE.clone();	// no time zone and locale lookup
+				r_o_cal.setTimeInMillis(p_o_from.longValue());
+				return r_o_cal;
+			}
+		});
+		register(Number.class, Date.class, new Converter<Number, Date>() {
+			@Override
+			public Date convert(Number p_o_from) {
+				return new Date(p_o_from.longValue());
+			}
+		});
+		register(Number.class, Instant.class, new Converter<Number, Instant>() {
+			@Override
+			public Instant convert(Number p_o_from) {
+				return Instant.ofEpochMilli(p_o_from.longValue());
+			}
+		});
+		register(Number.class, BigDecimal.class, new Converter<Number, BigDecimal>() {
+			@Override
+			public BigDecimal convert(Number p_o_from) {
+				if (p_o_from instanceof BigInteger)
+					return new BigDecimal((BigInteger) p_o_from);
+				if (p_o_from instanceof Double || p_o_from instanceof Float)
+					return BigDecimal.valueOf(p_o_from.doubleValue());
+				return BigDecimal.valueOf(p_o_from.longValue());
+			}
+		});
+		register(Number.class, BigInteger.class, new Converter<Number, BigInteger>() {
+			@Override
+			public BigInteger convert(Number p_o_from) {
+				return p_o_from instanceof BigDecimal? ((BigDecimal) p_o_from).toBigInteger() : BigInteger.valueOf(p_o_from.longValue());
+			}
+		});
+		register(String.class, Instant.class, new Converter<String, Instant>() {
+			@Override
+			public Instant convert(String p_o_from) {
+				return Instant.parse(p_o_from);
+			}
+		});
+		register(String.class, LocalDate.class, new Converter<String, LocalDate>() {
+			@Override
+			public LocalDate convert(String p_o_from) {
+				return LocalDate.parse(p_o_from);
+			}
+		});
+		register(String.class, LocalDateTime.class, new Converter<String, LocalDateTime>() {
+			@Override
+			public LocalDateTime convert(String p_o_from) {
+				return LocalDateTime.parse(p_o_from);
+			}
+		});
+		register(String.class, LocalTime.class, new Converter<String, LocalTime>() {
+			@Override
+			public LocalTime convert(String p_o_from) {
+				return LocalTime.parse(p_o_from);
+			}
+		});
+		register(String.class, OffsetDateTime.class, new Converter<String, OffsetDateTime>() {
+			@Override
+			public OffsetDateTime convert(String p_o_from) {
+				return OffsetDateTime.parse(p_o_from);
+			}
+		});
+		register(String.class, ZonedDateTime.class, new Converter<String, ZonedDateTime>() {
+			@Override
+			public ZonedDateTime convert(String p_o_from) {
+				return ZonedDateTime.parse(p_o_from);
+			}
+		});
+		register(String.class, Duration.class, new Converter<String, Duration>() {
+			@Override
+			public Duration convert(String p_o_from) {
+				return Duration.parse(p_o_from);
+			}
+		});
+		register(String.class, UUID.class, new Converter<String, UUID>() {
+			@Override
+			public UUID convert(String p_o_from) {
+				return UUID.fromString(p_o_from);
+			}
+		});
+		register(String.class, BigDecimal.class, new Converter<String, BigDecimal>() {
+			@Override
+			public BigDecimal convert(String p_o_from) {
+				return new BigDecimal(p_o_from);
+			}
+		});
+		register(String.class, BigInteger.class, new Converter<String, BigInteger>() {
+			@Override
+			public BigInteger convert(String p_o_from) {
+				return new BigInteger(p_o_from);
+			}
+		});
+	}
+
+	private PacketConverters(){
+	}
+
+	/**
+	 * Register or replace the converter of a pair of classes, it applies to the subclasses of the source class
+	 * that have no converter of their own.
+	 */
+	public static <F, T> void register(Class<F> p_cls_from, Class<T> p_cls_to, Converter<? super F, ? extends T> p_o_converter){
+		ConcurrentMap<Class<?>, Converter<?, ?>> lm_o_from = CM_O_REGISTERED.get(p_cls_to);
+		if (lm_o_from == null) {
+			final ConcurrentMap<Class<?>, Converter<?, ?>> lm_o_new = new ConcurrentHashMap<Class<?>, Converter<?, ?>>();
+			lm_o_from = CM_O_REGISTERED.putIfAbsent(p_cls_to, lm_o_new);
+			if (lm_o_from == null)
+				lm_o_from = lm_o_new;
+		}
+		lm_o_from.put(p_cls_from, p_o_converter);
+		CM_O_RESOLVED.clear();
+	}
+
+	/**
+	 * Converter of a value of the source class to the target class, from the source class or its nearest superclass.
+	 * Strings are converted to enums by their constant name without registration.
+	 * @return null if none
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Converter<Object, T> find(Class<?> p_cls_from, Class<T> p_cls_to){
+		ConcurrentMap<Class<?>, Converter<?, ?>> lm_o_from = CM_O_RESOLVED.get(p_cls_to);
+		if (lm_o_from == null) {
+			final ConcurrentMap<Class<?>, Converter<?, ?>> lm_o_new = new ConcurrentHashMap<Class<?>, Converter<?, ?>>();
+			lm_o_from = CM_O_RESOLVED.putIfAbsent(p_cls_to, lm_o_new);
+			if (lm_o_from == null)
+				lm_o_from = lm_o_new;
+		}
+		Converter<?, ?> r_o_conv = lm_o_from.get(p_cls_from);
+		if (r_o_conv == null) {
+			r_o_conv = resolve(p_cls_from, p_cls_to);
+			lm_o_from.put(p_cls_from, r_o_conv);
+		}
+		return r_o_conv != NONE? (Converter<Object, T>) r_o_conv : null;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Converter<?, ?> resolve(Class<?> p_cls_from, final Class<?> p_cls_to){
+		final ConcurrentMap<Class<?>, Converter<?, ?>> lm_o_from = CM_O_REGISTERED.get(p_cls_to);
+		if (lm_o_from != null) {
+			for (Class<?> l_cls_from = p_cls_from; l_cls_from != null; l_cls_from = l_cls_from.getSuperclass()) {
+				final Converter<?, ?> r_o_conv = lm_o_from.get(l_cls_from);
+				if (r_o_conv != null)
+					return r_o_conv;
+			}
+		}
+		if (p_cls_from == String.class && p_cls_to.isEnum()) {
+			return new Converter<String, Enum>() {
+				@Override
+				public Enum convert(String p_o_from) {
+					return Enum.valueOf((Class<Enum>) p_cls_to, p_o_from);
+				}
+			};
+		}
+		return NONE;
+	}
+}
@@ -0,0 +1,304 @@
+package evo;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Element by element binding of the array of a key, see {@link Packet#stream(String, Class)}.<br/>
+ * A raw array is read by one parser, each element is bound when it is requested and never kept,
+ * nothing is put back into the core. A split tokenizes the next batch of elements without binding them and hands out
+ * their offsets, then the batch is copied between brackets and bound by a parser of its own, so a parallel stream binds on all threads.
+ * Batches double from 1024 elements, like {@link Spliterators#spliterator(java.util.Iterator, long, int)}.
+ * An array that is not a JSON element, such as a binary one, is not split.
+ */
+final class PacketElements {
+
+	private static final int FIRST_BATCH = 1 << 10;
+	private static final int MAX_BATCH = 1 << 16;
+
+	private PacketElements(){
+	}
+
+	/**
+	 * @return an empty spliterator if the key is absent or null
+	 * @throws IllegalArgumentException if the value is not an array
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Spliterator<T> spliterator(Packet p_o_pack, String p_s_key, JavaType p_o_type){
+		Object l_o_val = p_o_pack.getCore().get(p_s_key);
+		if (l_o_val == null)
+			return Spliterators.emptySpliterator();
+		if (OrgJson.isJSON(l_o_val)) {
+			final byte[] l_a_json = l_o_val.toString().getBytes(RawElement.UTF_8);
+			l_o_val = new RawElement(l_a_json, 0, l_a_json.length);
+		}
+		if (l_o_val instanceof RawElement && ((RawElement) l_o_val).isArray())
+			return new ArraySpliterator<T>(p_o_pack.getMapper(), p_o_type, p_s_key, (RawElement) l_o_val);
+		if (l_o_val instanceof Collection)
+			return new ConvertSpliterator<T>(p_o_pack.getMapper(), p_o_type, ((Collection<Object>) l_o_val).spliterator());
+		if (l_o_val instanceof Object[])
+			return new ConvertSpliterator<T>(p_o_pack.getMapper(), p_o_type, Arrays.asList((Object[]) l_o_val).spliterator());
+		throw new IllegalArgumentException("Not an array: " + p_s_key);
+	}
+
+	/** Close the parser of a spliterator stopped early, nothing to do for the others */
+	static void close(Spliterator<?> p_o_split){
+		if (p_o_split instanceof ArraySpliterator)
+			((ArraySpliterator<?>) p_o_split).close();
+	}
+
+	/** Skip the separator before an element, since the token location of a byte parser is the end of the previous token */
+	private static int skipSeparator(byte[] p_a_buf, int p_i_pos){
+		int r_i_pos = p_i_pos;
+		while (isSeparator(p_a_buf[r_i_pos]))
+			r_i_pos++;
+		return r_i_pos;
+	}
+
+	/** Trim the separator after the last element of a batch */
+	private static int trimSeparator(byte[] p_a_buf, int p_i_end){
+		int r_i_end = p_i_end;
+		while (isSeparator(p_a_buf[r_i_end - 1]))
+			r_i_end--;
+		return r_i_end;
+	}
+
+	private static boolean isSeparator(byte p_b_char){
+		return p_b_char == ',' || p_b_char == ' ' || p_b_char == '\n' || p_b_char == '\r' || p_b_char == '\t';
+	}
+
+	/** The elements of a raw array, in order, by one parser */
+	private static final class ArraySpliterator<T> implements Spliterator<T> {
+		private final PacketMapper c_o_mapper;
+		private final ObjectReader c_o_reader;
+		private final String c_s_key;
+		private final RawElement c_o_raw;
+		private JsonParser c_o_parser;
+		/** First token of the next element, read by a split to find the end of its batch */
+		private JsonToken c_o_next;
+		/** Where the parser started the last token it read, past the element before it */
+		private int c_i_end;
+		private boolean c_fl_done;
+		private int c_i_index;
+		private int c_i_batch = FIRST_BATCH;
+
+		ArraySpliterator(PacketMapper p_o_mapper, JavaType p_o_type, String p_s_key, RawElement p_o_raw){
+			this.c_o_mapper = p_o_mapper;
+			this.c_o_reader = p_o_mapper.reader(p_o_type);
+			this.c_s_key = p_s_key;
+			this.c_o_raw = p_o_raw;
+		}
+
+		/** @return the token of the next element, null at the end of the array */
+		private JsonToken next() throws IOException {
+			if (c_fl_done)
+				return null;
+			if (c_o_next != null) {
+				final JsonToken r_o_token = c_o_next;
+				c_o_next = null;
+				return r_o_token;
+			}
+			if (c_o_parser == null) {
+				c_o_parser = c_o_raw.createParser(c_o_mapper.getObjectMapper());
+				c_o_parser.nextToken();	// START_ARRAY
+			}
+			final JsonToken r_o_token = c_o_parser.nextToken();
+			c_i_end = (int) c_o_parser.getTokenLocation().getCharOffset();
+			if (r_o_token == null || r_o_token == JsonToken.END_ARRAY) {
+				this.close();
+				return null;
+			}
+			return r_o_token;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> p_o_action) {
+			final T l_o_elem;
+			try {
+				if (this.next() == null)
+					return false;
+				l_o_elem = c_o_reader.readValue(c_o_parser);
+				c_i_index++;
+			} catch (IOException e) {
+				this.close();
+				throw new IllegalArgumentException("Cannot bind element " + c_i_index + " of " + c_s_key, e);
+			}
+			p_o_action.accept(l_o_elem);
+			return true;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			if (c_o_raw.getCodec() != PacketCodec.JSON)
+				return null;
+			// one more offset, the end of the batch, where the token after its last element starts
+			final int[] l_a_starts = new int[c_i_batch + 1];
+			int l_i_count = 0;
+			try {
+				for (JsonToken l_o_token; l_i_count < c_i_batch && (l_o_token = this.next()) != null; l_i_count++) {
+					l_a_starts[l_i_count] = skipSeparator(c_o_raw.getBuffer(), (int) c_o_parser.getTokenLocation().getCharOffset());
+					if (l_o_token == JsonToken.START_OBJECT || l_o_token == JsonToken.START_ARRAY)
+						c_o_parser.skipChildren();
+				}
+				if (l_i_count == 0)
+					return null;
+				c_o_next = this.next();	// bound by the next advance, from the current token
+				l_a_starts[l_i_count] = trimSeparator(c_o_raw.getBuffer(), c_i_end);
+			} catch (IOException e) {
+				this.close();
+				throw new IllegalArgumentException("Malformed array of " + c_s_key, e);
+			}
+			final Spliterator<T> r_o_split = new RangeSpliterator<T>(c_o_mapper, c_o_reader, c_s_key, c_o_raw, l_a_starts, c_i_index, l_i_count);
+			c_i_index += l_i_count;
+			c_i_batch = Math.min(c_i_batch << 1, MAX_BATCH);
+			return r_o_split;
+		}
+
+		@Override
+		public long estimateSize() {
+			return c_fl_done? 0 : Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED;
+		}
+
+		void close(){
+			c_fl_done = true;
+			if (c_o_parser != null) {
+				try {
+					c_o_parser.close();
+				} catch (IOException e) {	// nothing to release for a byte array
+				}
+				c_o_parser = null;
+			}
+			c_o_next = null;
+		}
+	}
+
+	/** A batch of elements split from an {@link ArraySpliterator}, copied as an array of its own when the first element is requested */
+	private static final class RangeSpliterator<T> implements Spliterator<T> {
+		private final PacketMapper c_o_mapper;
+		private final ObjectReader c_o_reader;
+		private final String c_s_key;
+		private final RawElement c_o_raw;
+		/** Start offset of each element of the batch, then the end of the batch */
+		private final int[] c_a_starts;
+		/** Index of the first element of the batch in the array */
+		private final int c_i_base;
+		private int c_i_from;
+		private int c_i_to;
+		/** Parser of the copy of the elements from the first to the last, split no more once set */
+		private JsonParser c_o_parser;
+
+		RangeSpliterator(PacketMapper p_o_mapper, ObjectReader p_o_reader, String p_s_key, RawElement p_o_raw, int[] p_a_starts, int p_i_base, int p_i_to){
+			this.c_o_mapper = p_o_mapper;
+			this.c_o_reader = p_o_reader;
+			this.c_s_key = p_s_key;
+			this.c_o_raw = p_o_raw;
+			this.c_a_starts = p_a_starts;
+			this.c_i_base = p_i_base;
+			this.c_i_to = p_i_to;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> p_o_action) {
+			if (c_i_from >= c_i_to)
+				return false;
+			final T l_o_elem;
+			try {
+				if (c_o_parser == null) {
+					final int l_i_start = c_a_starts[c_i_from];
+					final int l_i_end = trimSeparator(c_o_raw.getBuffer(), c_a_starts[c_i_to]);
+					final byte[] l_a_batch = new byte[l_i_end - l_i_start + 2];
+					l_a_batch[0] = '[';
+					System.arraycopy(c_o_raw.getBuffer(), l_i_start, l_a_batch, 1, l_i_end - l_i_start);
+					l_a_batch[l_a_batch.length - 1] = ']';
+					c_o_parser = c_o_mapper.getFactory().createParser(l_a_batch);
+					c_o_parser.nextToken();	// START_ARRAY
+				}
+				c_i_from++;
+				c_o_parser.nextToken();
+				l_o_elem = c_o_reader.readValue(c_o_parser);
+				if (c_i_from == c_i_to)
+					c_o_parser.close();
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Cannot bind element " + (c_i_base + c_i_from - 1) + " of " + c_s_key, e);
+			}
+			p_o_action.accept(l_o_elem);
+			return true;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			final int l_i_mid = (c_i_from + c_i_to) >>> 1;
+			if (c_o_parser != null || l_i_mid <= c_i_from)
+				return null;
+			final RangeSpliterator<T> r_o_split = new RangeSpliterator<T>(c_o_mapper, c_o_reader, c_s_key, c_o_raw, c_a_starts, c_i_base, l_i_mid);
+			r_o_split.c_i_from = c_i_from;
+			c_i_from = l_i_mid;
+			return r_o_split;
+		}
+
+		@Override
+		public long estimateSize() {
+			return c_i_to - c_i_from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED;
+		}
+	}
+
+	/** The elements of an array already deserialized, converted to the type if they are not instances of it */
+	private static final class ConvertSpliterator<T> implements Spliterator<T> {
+		private final PacketMapper c_o_mapper;
+		private final JavaType c_o_type;
+		private final Spliterator<Object> c_o_split;
+
+		ConvertSpliterator(PacketMapper p_o_mapper, JavaType p_o_type, Spliterator<Object> p_o_split){
+			this.c_o_mapper = p_o_mapper;
+			this.c_o_type = p_o_type;
+			this.c_o_split = p_o_split;
+		}
+
+		@Override
+		public boolean tryAdvance(final Consumer<? super T> p_o_action) {
+			return c_o_split.tryAdvance(new Consumer<Object>() {
+				@Override
+				@SuppressWarnings("unchecked")
+				public void accept(Object p_o_elem) {
+					p_o_action.accept(p_o_elem == null || c_o_type.getRawClass().isInstance(p_o_elem)?
+							(T) p_o_elem : (T) c_o_mapper.getObjectMapper().convertValue(p_o_elem, c_o_type));
+				}
+			});
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			final Spliterator<Object> l_o_split = c_o_split.trySplit();
+			return l_o_split != null? new ConvertSpliterator<T>(c_o_mapper, c_o_type, l_o_split) : null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return c_o_split.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return c_o_split.characteristics() & (ORDERED | SIZED | SUBSIZED);
+		}
+	}
+}
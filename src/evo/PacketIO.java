@@ -0,0 +1,156 @@
+package evo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Byte level helpers of {@link Packet} I/O, reusing one scratch buffer per thread.
+ */
+final class PacketIO {
+
+	private static final int INITIAL_BUFFER = 4 * 1024;
+	/** Scratch buffers larger than this are not kept by the thread */
+	private static final int MAX_KEPT_BUFFER = 1024 * 1024;
+
+	private static final ThreadLocal<byte[]> C_O_SCRATCH = new ThreadLocal<byte[]>(){
+		@Override
+		protected byte[] initialValue() {
+			return new byte[INITIAL_BUFFER];
+		}
+	};
+
+	private PacketIO(){
+	}
+
+	/**
+	 * Read the stream to the end through the scratch buffer of the thread.
+	 * @return an array of exactly the read length, owned by the caller
+	 */
+	static byte[] readFully(InputStream p_o_in) throws IOException {
+		byte[] l_a_buf = C_O_SCRATCH.get();
+		int l_i_len = 0;
+		for (int l_i_read; (l_i_read = p_o_in.read(l_a_buf, l_i_len, l_a_buf.length - l_i_len)) != -1;) {
+			l_i_len += l_i_read;
+			if (l_i_len == l_a_buf.length)
+				l_a_buf = Arrays.copyOf(l_a_buf, l_a_buf.length << 1);
+		}
+		if (l_a_buf.length <= MAX_KEPT_BUFFER)
+			C_O_SCRATCH.set(l_a_buf);
+		return Arrays.copyOf(l_a_buf, l_i_len);
+	}
+
+	/** Copy the remaining bytes of the buffer, heap or direct, and consume them. */
+	static byte[] readFully(ByteBuffer p_o_buf){
+		final byte[] r_a_buf = new byte[p_o_buf.remaining()];
+		p_o_buf.get(r_a_buf);
+		return r_a_buf;
+	}
+
+	/** Length of the string encoded in UTF-8, unpaired surrogates count as one byte */
+	static int utf8Length(String p_s_str){
+		final int l_i_chars = p_s_str.length();
+		int r_i_len = l_i_chars;
+		for (int i = 0; i < l_i_chars; i++) {
+			final char l_c_char = p_s_str.charAt(i);
+			if (l_c_char < 0x80)
+				continue;
+			if (l_c_char < 0x800) {
+				r_i_len++;
+			} else if (Character.isHighSurrogate(l_c_char) && i + 1 < l_i_chars && Character.isLowSurrogate(p_s_str.charAt(i + 1))) {
+				r_i_len += 2;	// 4 bytes for 2 chars
+				i++;
+			} else if (!Character.isSurrogate(l_c_char)) {
+				r_i_len += 2;
+			}
+		}
+		return r_i_len;
+	}
+
+	/**
+	 * Encode the string in UTF-8 to the array from index 0, without allocating.
+	 * Unpaired surrogates are written as '?', same as {@link String#getBytes(java.nio.charset.Charset)}.
+	 * @param p_a_buf must hold {@link #utf8Length(String)} bytes
+	 * @return number of bytes written
+	 */
+	static int encodeUtf8(String p_s_str, byte[] p_a_buf){
+		final int l_i_chars = p_s_str.length();
+		int r_i_len = 0;
+		for (int i = 0; i < l_i_chars; i++) {
+			final char l_c_char = p_s_str.charAt(i);
+			if (l_c_char < 0x80) {
+				p_a_buf[r_i_len++] = (byte) l_c_char;
+			} else if (l_c_char < 0x800) {
+				p_a_buf[r_i_len++] = (byte) (0xC0 | l_c_char >> 6);
+				p_a_buf[r_i_len++] = (byte) (0x80 | l_c_char & 0x3F);
+			} else if (Character.isHighSurrogate(l_c_char) && i + 1 < l_i_chars && Character.isLowSurrogate(p_s_str.charAt(i + 1))) {
+				final int l_i_code = Character.toCodePoint(l_c_char, p_s_str.charAt(++i));
+				p_a_buf[r_i_len++] = (byte) (0xF0 | l_i_code >> 18);
+				p_a_buf[r_i_len++] = (byte) (0x80 | l_i_code >> 12 & 0x3F);
+				p_a_buf[r_i_len++] = (byte) (0x80 | l_i_code >> 6 & 0x3F);
+				p_a_buf[r_i_len++] = (byte) (0x80 | l_i_code & 0x3F);
+			} else if (Character.isSurrogate(l_c_char)) {
+				p_a_buf[r_i_len++] = '?';
+			} else {
+				p_a_buf[r_i_len++] = (byte) (0xE0 | l_c_char >> 12);
+				p_a_buf[r_i_len++] = (byte) (0x80 | l_c_char >> 6 & 0x3F);
+				p_a_buf[r_i_len++] = (byte) (0x80 | l_c_char & 0x3F);
+			}
+		}
+		return r_i_len;
+	}
+
+	/**
+	 * OutputStream writing straight into a ByteBuffer.
+	 * @throws BufferOverflowException when the buffer is full
+	 */
+	static final class ByteBufferOutputStream extends OutputStream {
+		private final ByteBuffer c_o_buf;
+
+		ByteBufferOutputStream(ByteBuffer p_o_buf){
+			this.c_o_buf = p_o_buf;
+		}
+
+		@Override
+		public void write(int p_i_byte) {
+			c_o_buf.put((byte) p_i_byte);
+		}
+
+		@Override
+		public void write(byte[] p_a_buf, int p_i_off, int p_i_len) {
+			c_o_buf.put(p_a_buf, p_i_off, p_i_len);
+		}
+	}
+
+	/** OutputStream counting the bytes written to another stream, used to measure encoded sizes. */
+	static final class CountingOutputStream extends OutputStream {
+		private final OutputStream c_o_out;
+		private int c_i_count;
+
+		CountingOutputStream(OutputStream p_o_out){
+			this.c_o_out = p_o_out;
+		}
+
+		int getCount()	{return this.c_i_count;}
+
+		@Override
+		public void write(int p_i_byte) throws IOException {
+			c_o_out.write(p_i_byte);
+			c_i_count++;
+		}
+
+		@Override
+		public void write(byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException {
+			c_o_out.write(p_a_buf, p_i_off, p_i_len);
+			c_i_count += p_i_len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			c_o_out.flush();
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package evo;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Shared, thread-safe codec registry of {@link Packet}.<br/>
+ * Holds one configured Jackson ObjectMapper per Packet class, and caches the prepared
+ * {@link ObjectReader ObjectReaders}, {@link ObjectWriter ObjectWriters} and resolved {@link JavaType JavaTypes}
+ * by target type, so a warmed up Packet never builds a mapper, a type or a reader again.
+ * @usage
+ * <PRE>
+ * {@code
+ * // configure every Packet created afterwards
+ * PacketMapper.setFactory(new PacketMapper.Factory() {
+ * 	public ObjectMapper create() {
+ * 		return new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+ * 	}
+ * });
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) The mapper is shared, configure it in {@link Factory#create()} or {@link Packet#onCreateObjectMapper(ObjectMapper)} only.
+ *    Readers and writers are cached, later changes on {@link #getObjectMapper()} may not be seen by them.
+ * 2) {@link Packet#onCreateObjectMapper(ObjectMapper)} is called once per Packet class, not once per instance.
+ * </PRE>
+ */
+public final class PacketMapper {
+
+	/** Create the base ObjectMapper, before {@link Packet#onCreateObjectMapper(ObjectMapper)} is applied. */
+	public interface Factory{
+		ObjectMapper create();
+	}
+
+	/** Default factory, a plain ObjectMapper */
+	public static final Factory DEFAULT_FACTORY = new Factory() {
+		@Override
+		public ObjectMapper create() {
+			return new ObjectMapper()
+//				.enable(com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT)					// enable String indentation
+//				.setSerializationInclusion(com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL)	// Hide fields when null
+				;
+		}
+	};
+
+	private static volatile Factory c_o_factory = DEFAULT_FACTORY;
+	/** Mappers by Packet class, since the subclasses may configure their own mapper */
+	private static final ConcurrentMap<Class<?>, PacketMapper> CM_MAPPERS = new ConcurrentHashMap<Class<?>, PacketMapper>();
+
+	/**
+	 * Replace the factory of base ObjectMapper. Packets created afterwards use the new configuration,
+	 * existing Packets keep their mapper.
+	 * @param p_o_factory null to restore {@link #DEFAULT_FACTORY}
+	 */
+	public static void setFactory(Factory p_o_factory){
+		c_o_factory = p_o_factory!=null? p_o_factory : DEFAULT_FACTORY;
+		CM_MAPPERS.clear();
+	}
+
+	/** The shared mapper of plain {@link Packet} */
+	public static PacketMapper getDefault(){
+		PacketMapper r_o_mapper = CM_MAPPERS.get(Packet.class);
+		if (r_o_mapper == null)
+			r_o_mapper = register(Packet.class, new PacketMapper(c_o_factory.create()));
+		return r_o_mapper;
+	}
+
+	/**
+	 * Lookup the shared mapper of the Packet's class, create it by {@link Packet#onCreateObjectMapper(ObjectMapper)} if absent.
+	 * Called while the Packet is being constructed.
+	 */
+	static PacketMapper forPacket(Packet p_o_packet){
+		final Class<?> l_cls_packet = p_o_packet.getClass();
+		PacketMapper r_o_mapper = CM_MAPPERS.get(l_cls_packet);
+		if (r_o_mapper == null)
+			r_o_mapper = register(l_cls_packet, new PacketMapper(p_o_packet.onCreateObjectMapper(c_o_factory.create())));
+		return r_o_mapper;
+	}
+
+	private static PacketMapper register(Class<?> p_cls_packet, PacketMapper p_o_mapper){
+		final PacketMapper l_o_exist = CM_MAPPERS.putIfAbsent(p_cls_packet, p_o_mapper);
+		return l_o_exist!=null? l_o_exist : p_o_mapper;
+	}
+
+//		Instance		\\
+	private final ObjectMapper c_o_mapper;
+	private final ObjectWriter c_o_writer;
+	private final ObjectWriter c_o_prettyWriter;
+	/** Resolved types by Class or {@link TypeReference#getType()} */
+	private final ConcurrentMap<Type, JavaType> cm_o_types = new ConcurrentHashMap<Type, JavaType>();
+	/** List types by component Class */
+	private final ConcurrentMap<Class<?>, JavaType> cm_o_listTypes = new ConcurrentHashMap<Class<?>, JavaType>();
+	/** Map types by key Class, then value Class */
+	private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, JavaType>> cm_o_mapTypes = new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, JavaType>>();
+	private final ConcurrentMap<JavaType, ObjectReader> cm_o_readers = new ConcurrentHashMap<JavaType, ObjectReader>();
+	private final ConcurrentMap<JavaType, ObjectWriter> cm_o_writers = new ConcurrentHashMap<JavaType, ObjectWriter>();
+	/** Lambda accessors of the registered classes */
+	private final BinderModule c_o_binders = new BinderModule();
+
+	/** The binder module of {@link #register(Class...)} is installed to the ObjectMapper */
+	public PacketMapper(ObjectMapper p_o_mapper){
+		this.c_o_mapper = p_o_mapper.registerModule(c_o_binders);
+		this.c_o_writer = p_o_mapper.writer();
+		this.c_o_prettyWriter = p_o_mapper.writer(SerializationFeature.INDENT_OUTPUT);
+	}
+
+	/** The shared ObjectMapper, see the rules of {@link PacketMapper} before configuring it. */
+	public ObjectMapper getObjectMapper(){
+		return this.c_o_mapper;
+	}
+	/** Factory of the shared ObjectMapper, for streaming parsers and generators */
+	public JsonFactory getFactory(){
+		return this.c_o_mapper.getFactory();
+	}
+
+//		Types		\\
+	public JavaType type(Class<?> p_clss){
+		JavaType r_o_type = cm_o_types.get(p_clss);
+		if (r_o_type == null)
+			r_o_type = cache(cm_o_types, p_clss, c_o_mapper.getTypeFactory().constructType(p_clss));
+		return r_o_type;
+	}
+	/** Keyed by {@link TypeReference#getType()}, so anonymous TypeReferences of the same type share one entry. */
+	public JavaType type(TypeReference<?> p_type){
+		final Type l_type = p_type.getType();
+		JavaType r_o_type = cm_o_types.get(l_type);
+		if (r_o_type == null)
+			r_o_type = cache(cm_o_types, l_type, c_o_mapper.getTypeFactory().constructType(p_type));
+		return r_o_type;
+	}
+	/** {@code List<component>} */
+	public JavaType listType(Class<?> p_cls_component){
+		JavaType r_o_type = cm_o_listTypes.get(p_cls_component);
+		if (r_o_type == null)
+			r_o_type = cache(cm_o_listTypes, p_cls_component, c_o_mapper.getTypeFactory().constructCollectionType(List.class, p_cls_component));
+		return r_o_type;
+	}
+	/** {@code Map<key, value>} */
+	public JavaType mapType(Class<?> p_cls_key, Class<?> p_cls_val){
+		ConcurrentMap<Class<?>, JavaType> lm_o_types = cm_o_mapTypes.get(p_cls_key);
+		if (lm_o_types == null)
+			lm_o_types = cache(cm_o_mapTypes, p_cls_key, new ConcurrentHashMap<Class<?>, JavaType>());
+		JavaType r_o_type = lm_o_types.get(p_cls_val);
+		if (r_o_type == null)
+			r_o_type = cache(lm_o_types, p_cls_val, c_o_mapper.getTypeFactory().constructMapType(Map.class, p_cls_key, p_cls_val));
+		return r_o_type;
+	}
+
+//		Readers & Writers		\\
+	public ObjectReader reader(JavaType p_o_type){
+		ObjectReader r_o_reader = cm_o_readers.get(p_o_type);
+		if (r_o_reader == null)
+			r_o_reader = cache(cm_o_readers, p_o_type, c_o_mapper.reader(p_o_type));
+		return r_o_reader;
+	}
+	public ObjectReader reader(Class<?> p_clss){
+		return this.reader(this.type(p_clss));
+	}
+	public ObjectReader reader(TypeReference<?> p_type){
+		return this.reader(this.type(p_type));
+	}
+
+	/** Writer of untyped values, used to serialize the Packet core */
+	public ObjectWriter writer(){
+		return this.c_o_writer;
+	}
+	/** Writer with indentation */
+	public ObjectWriter prettyWriter(){
+		return this.c_o_prettyWriter;
+	}
+	/** Writer of a known root type */
+	public ObjectWriter writer(JavaType p_o_type){
+		ObjectWriter r_o_writer = cm_o_writers.get(p_o_type);
+		if (r_o_writer == null)
+			r_o_writer = cache(cm_o_writers, p_o_type, c_o_mapper.writerWithType(p_o_type));
+		return r_o_writer;
+	}
+	public ObjectWriter writer(Class<?> p_clss){
+		return this.writer(this.type(p_clss));
+	}
+
+//		Registration		\\
+	/**
+	 * Build and cache the binders of the value classes now: the serializer and deserializer, with getters and setters
+	 * called through {@link java.lang.invoke.LambdaMetafactory LambdaMetafactory} lambdas instead of reflection,
+	 * the readers of the class and of its List, and the writer. Classes with a no-argument constructor are warmed up by
+	 * a round trip of a new instance.
+	 * Register a class before its first use, the binders already built by Jackson are not replaced.
+	 * Nested value classes are optimized only if they are registered too.
+	 * @throws IllegalArgumentException if a class cannot be bound by Jackson
+	 */
+	public void register(Class<?>... p_a_classes){
+		for (Class<?> l_cls_bean : p_a_classes)
+			c_o_binders.add(l_cls_bean);
+		for (Class<?> l_cls_bean : p_a_classes) {
+			final JavaType l_o_type = this.type(l_cls_bean);
+			if (!c_o_mapper.canDeserialize(l_o_type) || !c_o_mapper.canSerialize(l_cls_bean))
+				throw new IllegalArgumentException("Cannot bind " + l_cls_bean.getName());
+			cm_o_readers.put(l_o_type, c_o_mapper.reader(l_o_type));	// prefetch the deserializer
+			this.reader(this.listType(l_cls_bean));
+			this.writer(l_o_type);
+			final Object l_o_sample = newInstance(l_cls_bean);
+			if (l_o_sample != null) {
+				try {
+					this.reader(l_o_type).readValue(this.writer(l_o_type).writeValueAsBytes(l_o_sample));
+				} catch (IOException e) {
+					throw new IllegalArgumentException("Cannot bind " + l_cls_bean.getName(), e);
+				}
+			}
+		}
+	}
+
+	/** Instance by the no-argument constructor, null if there is none or it failed */
+	private static Object newInstance(Class<?> p_cls_bean){
+		try {
+			final Constructor<?> l_o_ctor = p_cls_bean.getDeclaredConstructor();
+			l_o_ctor.setAccessible(true);
+			return l_o_ctor.newInstance();
+		} catch (Exception e) {	// created by a creator, not warmed up
+			return null;
+		}
+	}
+
+	/** true if the class was registered by {@link #register(Class...)} */
+	public boolean isRegistered(Class<?> p_cls_bean){
+		return c_o_binders.contains(p_cls_bean);
+	}
+
+	private static <K,V> V cache(ConcurrentMap<K, V> pm_o_cache, K p_o_key, V p_o_val){
+		final V l_o_exist = pm_o_cache.putIfAbsent(p_o_key, p_o_val);
+		return l_o_exist!=null? l_o_exist : p_o_val;
+	}
+}
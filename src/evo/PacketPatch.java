@@ -0,0 +1,174 @@
+package evo;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * JSON Merge Patch (RFC 7386) between Packets, see {@link Packet#diff(Packet)} and {@link Packet#applyPatch(Packet)}.<br/>
+ * Only the keys of the patch are touched. A key whose patch is an object, merged into an object, is parsed to a tree with its patch,
+ * merged, and put back as a {@link RawElement}, so it is bound again by the next typed get;
+ * other patched keys take the value of the patch as is. Untouched raw elements are never parsed.
+ * Equal raw elements are found by comparing their bytes, other values by their tree.
+ */
+final class PacketPatch {
+
+	private PacketPatch(){
+	}
+
+	/**
+	 * Patch turning the source into the target, nested objects are diffed, arrays are replaced.
+	 * Projected Packets are expanded first.
+	 */
+	static Packet diff(Packet p_o_from, Packet p_o_to){
+		p_o_from.expand();
+		p_o_to.expand();
+		final Map<String, Object> lm_o_from = p_o_from.getCore();
+		final Map<String, Object> lm_o_to = p_o_to.getCore();
+		final PacketMapper l_o_mapper = p_o_to.getMapper();
+		final Packet r_o_patch = new Packet();
+		try {
+			for (Entry<String, Object> l_o_entry : lm_o_to.entrySet()) {
+				final String l_s_key = l_o_entry.getKey();
+				final Object l_o_to = l_o_entry.getValue();
+				final Object l_o_from = lm_o_from.get(l_s_key);
+				if (l_o_from == null || l_o_to == null || isBasic(l_o_from) || isBasic(l_o_to)) {
+					if (l_o_from == null? l_o_to != null || !lm_o_from.containsKey(l_s_key) : l_o_to == null || !sameBasic(l_o_from, l_o_to))
+						r_o_patch.put(l_s_key, l_o_to);
+				} else if (!sameRaw(l_o_from, l_o_to)) {
+					final JsonNode l_o_fromTree = toTree(l_o_from, l_o_mapper);
+					final JsonNode l_o_toTree = toTree(l_o_to, l_o_mapper);
+					if (!l_o_fromTree.equals(l_o_toTree))
+						r_o_patch.put(l_s_key, l_o_fromTree.isObject() && l_o_toTree.isObject()?
+								diff((ObjectNode) l_o_fromTree, (ObjectNode) l_o_toTree) : l_o_to);
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Cannot diff the Packets", e);
+		}
+		for (String l_s_key : lm_o_from.keySet()) {
+			if (!lm_o_to.containsKey(l_s_key))
+				r_o_patch.put(l_s_key, null);
+		}
+		return r_o_patch;
+	}
+
+	private static ObjectNode diff(ObjectNode p_o_from, ObjectNode p_o_to){
+		final ObjectNode r_o_patch = JsonNodeFactory.instance.objectNode();
+		for (Iterator<Entry<String, JsonNode>> l_o_it = p_o_to.fields(); l_o_it.hasNext();) {
+			final Entry<String, JsonNode> l_o_field = l_o_it.next();
+			final JsonNode l_o_from = p_o_from.get(l_o_field.getKey());
+			final JsonNode l_o_to = l_o_field.getValue();
+			if (l_o_from == null || !l_o_from.equals(l_o_to))
+				r_o_patch.set(l_o_field.getKey(), l_o_from != null && l_o_from.isObject() && l_o_to.isObject()?
+						diff((ObjectNode) l_o_from, (ObjectNode) l_o_to) : l_o_to);
+		}
+		for (Iterator<String> l_o_it = p_o_from.fieldNames(); l_o_it.hasNext();) {
+			final String l_s_name = l_o_it.next();
+			if (!p_o_to.has(l_s_name))
+				r_o_patch.putNull(l_s_name);
+		}
+		return r_o_patch;
+	}
+
+	/** Merge the patch into the keys of the Packet, a projected Packet is expanded first */
+	static void apply(Packet p_o_pack, Packet p_o_patch){
+		p_o_pack.expand();
+		final Map<String, Object> lm_o_core = p_o_pack.getCore();
+		final PacketMapper l_o_mapper = p_o_pack.getMapper();
+		try {
+			for (Entry<String, Object> l_o_entry : p_o_patch.getCore().entrySet()) {
+				final String l_s_key = l_o_entry.getKey();
+				final Object l_o_patch = l_o_entry.getValue();
+				if (l_o_patch == null || l_o_patch instanceof JsonNode && ((JsonNode) l_o_patch).isNull()) {
+					p_o_pack.remove(l_s_key);
+					continue;
+				}
+				// the patch of an array or a scalar replaces the value without being parsed
+				final JsonNode l_o_patchTree = isBasic(l_o_patch) || l_o_patch instanceof RawElement && ((RawElement) l_o_patch).isArray()?
+						null : toTree(l_o_patch, l_o_mapper);
+				if (l_o_patchTree != null && l_o_patchTree.isObject()) {
+					final Object l_o_cur = lm_o_core.get(l_s_key);
+					JsonNode l_o_tree = l_o_cur == null || isBasic(l_o_cur)? null : toTree(l_o_cur, l_o_mapper);
+					if (l_o_tree == null || !l_o_tree.isObject())
+						l_o_tree = JsonNodeFactory.instance.objectNode();
+					else if (l_o_tree == l_o_cur)	// never modify a tree put by the caller
+						l_o_tree = l_o_tree.deepCopy();
+					merge((ObjectNode) l_o_tree, l_o_patchTree);
+					p_o_pack.put(l_s_key, toRaw(l_o_tree, l_o_mapper));
+				} else {
+					p_o_pack.put(l_s_key, l_o_patch instanceof JsonNode? toRaw(l_o_patch, l_o_mapper) : l_o_patch);
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Cannot apply the patch", e);
+		}
+	}
+
+	private static void merge(ObjectNode p_o_target, JsonNode p_o_patch){
+		for (Iterator<Entry<String, JsonNode>> l_o_it = p_o_patch.fields(); l_o_it.hasNext();) {
+			final Entry<String, JsonNode> l_o_field = l_o_it.next();
+			final JsonNode l_o_patch = l_o_field.getValue();
+			if (l_o_patch.isNull()) {
+				p_o_target.remove(l_o_field.getKey());
+			} else if (l_o_patch.isObject()) {
+				final JsonNode l_o_cur = p_o_target.get(l_o_field.getKey());
+				final ObjectNode l_o_child = l_o_cur != null && l_o_cur.isObject()? (ObjectNode) l_o_cur : p_o_target.putObject(l_o_field.getKey());
+				merge(l_o_child, l_o_patch);
+			} else {
+				p_o_target.set(l_o_field.getKey(), l_o_patch);
+			}
+		}
+	}
+
+//		Values		\\
+	private static boolean isBasic(Object p_o_val){
+		return p_o_val instanceof String || p_o_val instanceof Number || p_o_val instanceof Boolean;
+	}
+
+	/** Numbers are equal by value whatever the decoder chose, such as Integer and Long */
+	private static boolean sameBasic(Object p_o_a, Object p_o_b){
+		if (p_o_a.equals(p_o_b))
+			return true;
+		if (!(p_o_a instanceof Number) || !(p_o_b instanceof Number))
+			return false;
+		final Number l_o_a = (Number) p_o_a, l_o_b = (Number) p_o_b;
+		return l_o_a.longValue() == l_o_b.longValue() && Double.compare(l_o_a.doubleValue(), l_o_b.doubleValue()) == 0;
+	}
+
+	/** Same bytes of two JSON elements, false if they may still be equal */
+	private static boolean sameRaw(Object p_o_a, Object p_o_b){
+		if (!(p_o_a instanceof RawElement) || !(p_o_b instanceof RawElement))
+			return false;
+		final RawElement l_o_a = (RawElement) p_o_a, l_o_b = (RawElement) p_o_b;
+		if (l_o_a.getCodec() != l_o_b.getCodec() || l_o_a.getLength() != l_o_b.getLength())
+			return false;
+		final byte[] l_a_a = l_o_a.getBuffer(), l_a_b = l_o_b.getBuffer();
+		for (int i = 0; i < l_o_a.getLength(); i++) {
+			if (l_a_a[l_o_a.getOffset() + i] != l_a_b[l_o_b.getOffset() + i])
+				return false;
+		}
+		return true;
+	}
+
+	/** A tree as a JSON element, bound by the next typed get like a decoded element */
+	private static RawElement toRaw(Object p_o_tree, PacketMapper p_o_mapper) throws IOException {
+		final byte[] l_a_json = p_o_mapper.writer().writeValueAsBytes(p_o_tree);
+		return new RawElement(l_a_json, 0, l_a_json.length);
+	}
+
+	private static JsonNode toTree(Object p_o_val, PacketMapper p_o_mapper) throws IOException {
+		if (p_o_val instanceof JsonNode)
+			return (JsonNode) p_o_val;
+		if (p_o_val instanceof RawElement)
+			return ((RawElement) p_o_val).readValue(p_o_mapper, p_o_mapper.type(JsonNode.class));
+		if (OrgJson.isJSON(p_o_val))
+			return p_o_mapper.getObjectMapper().readTree(p_o_val.toString());
+		return p_o_mapper.getObjectMapper().valueToTree(p_o_val);
+	}
+}
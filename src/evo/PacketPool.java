@@ -0,0 +1,219 @@
+package evo;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recycler of {@link Packet Packets}, opt-in lifecycle for allocation-free steady state.<br/>
+ * Released Packets are {@link Packet#reset() reset} and kept per thread, so the core keeps its capacity and
+ * the buffer {@link Packet#deserialize(String)} encodes the document into is reused by the next message.
+ * Override {@link #create()} to pool a subclass of Packet or another core, for example {@link PrimitiveCore}.
+ * @usage
+ * <PRE>
+ * {@code
+ * Packet packet = Packet.acquire();
+ * try {
+ * 	packet.deserialize(json);
+ * 	...
+ * 	packet.writeTo(out);
+ * } finally {
+ * 	packet.release();
+ * }
+ *
+ * PacketPool pool = new PacketPool(16){
+ * 	protected Packet create() {
+ * 		return new Packet(new PrimitiveCore());
+ * 	}
+ * };
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) A released Packet must not be used, neither anything got from its core, the decoded bytes are overwritten by the next message.
+ * 2) Packets may be released on any thread, they are kept by the pool of the releasing thread.
+ * 3) Releasing a Packet twice throws IllegalStateException.
+ * 4) A sample of the acquired Packets is tracked by weak references, those collected without being released are counted as leaks.
+ * </PRE>
+ */
+public class PacketPool {
+
+	public static final int DEFAULT_MAX_PER_THREAD = 64;
+	/** One of this many acquired Packets is tracked for leaks */
+	public static final int DEFAULT_LEAK_SAMPLING = 128;
+	/** Document buffers grown larger than this are not kept */
+	private static final int MAX_KEPT_BUFFER = 1024 * 1024;
+
+	private static final PacketPool DEFAULT = new PacketPool();
+
+	private final int c_i_maxPerThread;
+	private final int c_i_leakSampling;
+	private final ThreadLocal<ArrayDeque<Packet>> c_o_idle = new ThreadLocal<ArrayDeque<Packet>>(){
+		@Override
+		protected ArrayDeque<Packet> initialValue() {
+			return new ArrayDeque<Packet>();
+		}
+	};
+
+	private final LongAdder c_o_hits = new LongAdder();
+	private final LongAdder c_o_misses = new LongAdder();
+	private final LongAdder c_o_releases = new LongAdder();
+	private final LongAdder c_o_dropped = new LongAdder();
+	private final LongAdder c_o_leaks = new LongAdder();
+	/** Trackers of the sampled Packets, kept reachable until the Packet is released or collected */
+	private final Set<Reference<Packet>> c_o_tracked = Collections.newSetFromMap(new ConcurrentHashMap<Reference<Packet>, Boolean>());
+	private final ReferenceQueue<Packet> c_o_collected = new ReferenceQueue<Packet>();
+
+	/** Pool used by {@link Packet#acquire()}, pooling plain Packets with a HashMap core */
+	public static PacketPool getDefault(){
+		return DEFAULT;
+	}
+
+	public PacketPool(){
+		this(DEFAULT_MAX_PER_THREAD, DEFAULT_LEAK_SAMPLING);
+	}
+	public PacketPool(int p_i_maxPerThread){
+		this(p_i_maxPerThread, DEFAULT_LEAK_SAMPLING);
+	}
+	/**
+	 * @param p_i_maxPerThread idle Packets kept by each thread, more released Packets are dropped
+	 * @param p_i_leakSampling one of this many acquired Packets is tracked for leaks, 0 to disable leak detection
+	 */
+	public PacketPool(int p_i_maxPerThread, int p_i_leakSampling){
+		this.c_i_maxPerThread = p_i_maxPerThread;
+		this.c_i_leakSampling = p_i_leakSampling;
+	}
+
+	/** Create a new Packet when the pool of the thread is empty */
+	protected Packet create(){
+		return new Packet();
+	}
+
+//		Methods		\\
+	/** Take an idle Packet of the thread or create one, it is empty */
+	public Packet acquire(){
+		this.pollLeaks();
+		Packet r_o_pack = c_o_idle.get().pollLast();
+		if (r_o_pack != null) {
+			c_o_hits.increment();
+		} else {
+			c_o_misses.increment();
+			r_o_pack = this.create();
+			r_o_pack.c_o_handle = new Handle(this);
+		}
+		final Handle l_o_handle = r_o_pack.c_o_handle;
+		l_o_handle.c_fl_released = false;
+		if (c_i_leakSampling > 0 && ThreadLocalRandom.current().nextInt(c_i_leakSampling) == 0) {
+			l_o_handle.c_o_tracker = new WeakReference<Packet>(r_o_pack, c_o_collected);
+			c_o_tracked.add(l_o_handle.c_o_tracker);
+		}
+		return r_o_pack;
+	}
+
+	/**
+	 * Reset the Packet and keep it for the next {@link #acquire()} of the thread.
+	 * @throws IllegalArgumentException if the Packet was not acquired from this pool
+	 * @throws IllegalStateException if the Packet is already released
+	 */
+	public void release(Packet p_o_pack){
+		final Handle l_o_handle = p_o_pack.c_o_handle;
+		if (l_o_handle == null || l_o_handle.c_o_pool != this)
+			throw new IllegalArgumentException("Packet was not acquired from this pool");
+		if (l_o_handle.c_fl_released)
+			throw new IllegalStateException("Packet is already released");
+		l_o_handle.c_fl_released = true;
+		if (l_o_handle.c_o_tracker != null) {
+			c_o_tracked.remove(l_o_handle.c_o_tracker);
+			l_o_handle.c_o_tracker.clear();
+			l_o_handle.c_o_tracker = null;
+		}
+		p_o_pack.reset();
+		if (l_o_handle.c_a_buf != null && l_o_handle.c_a_buf.length > MAX_KEPT_BUFFER)
+			l_o_handle.c_a_buf = null;
+		c_o_releases.increment();
+		final ArrayDeque<Packet> l_o_idle = c_o_idle.get();
+		if (l_o_idle.size() < c_i_maxPerThread)
+			l_o_idle.addLast(p_o_pack);
+		else
+			c_o_dropped.increment();
+	}
+
+	/** Count the tracked Packets collected without being released */
+	private void pollLeaks(){
+		for (Reference<? extends Packet> l_o_ref; (l_o_ref = c_o_collected.poll()) != null;) {
+			if (c_o_tracked.remove(l_o_ref))
+				c_o_leaks.increment();
+		}
+	}
+
+//		Stats		\\
+	/** Acquired Packets taken from the pool */
+	public long getHits()		{return c_o_hits.sum();}
+	/** Acquired Packets created since the pool was empty */
+	public long getMisses()		{return c_o_misses.sum();}
+	public long getReleases()	{return c_o_releases.sum();}
+	/** Released Packets not kept since the pool of the thread was full */
+	public long getDropped()	{return c_o_dropped.sum();}
+	/**
+	 * Sampled Packets collected without being released, multiply by the sampling interval to estimate all leaks.
+	 * Only counted once the garbage collector has run.
+	 */
+	public long getLeaks(){
+		this.pollLeaks();
+		return c_o_leaks.sum();
+	}
+	public int getMaxPerThread()	{return c_i_maxPerThread;}
+	public int getLeakSampling()	{return c_i_leakSampling;}
+	/** Idle Packets of the current thread */
+	public int getIdle()			{return c_o_idle.get().size();}
+
+	/** Zero the counters, for sizing the pool between periods */
+	public void resetStats(){
+		c_o_hits.reset();
+		c_o_misses.reset();
+		c_o_releases.reset();
+		c_o_dropped.reset();
+		c_o_leaks.reset();
+	}
+
+	@Override
+	public String toString() {
+		final long l_l_hits = this.getHits(), l_l_misses = this.getMisses();
+		return String.format("PacketPool[hits=%d, misses=%d (%.1f%%), releases=%d, dropped=%d, leaks=%d (1/%d sampled)]",
+				l_l_hits, l_l_misses, l_l_hits + l_l_misses > 0? 100d * l_l_misses / (l_l_hits + l_l_misses) : 0d,
+				this.getReleases(), this.getDropped(), this.getLeaks(), c_i_leakSampling);
+	}
+
+	/** Pooling state of a Packet, created once per pooled Packet */
+	static final class Handle {
+		private final PacketPool c_o_pool;
+		private boolean c_fl_released;
+		private WeakReference<Packet> c_o_tracker;
+		/** Document buffer reused by {@link Packet#deserialize(String)} */
+		private byte[] c_a_buf;
+
+		Handle(PacketPool p_o_pool){
+			this.c_o_pool = p_o_pool;
+		}
+
+		PacketPool getPool()	{return this.c_o_pool;}
+
+		/**
+		 * Encode the string in UTF-8 to the reused buffer.
+		 * @param p_i_len {@link PacketIO#utf8Length(String)} of the string
+		 * @return the buffer, holding the string from index 0
+		 */
+		byte[] encode(String p_s_str, int p_i_len){
+			if (c_a_buf == null || c_a_buf.length < p_i_len)
+				c_a_buf = new byte[Math.max(p_i_len, 1024)];
+			PacketIO.encodeUtf8(p_s_str, c_a_buf);
+			return c_a_buf;
+		}
+	}
+}
@@ -0,0 +1,412 @@
+package evo;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * Map core of {@link Packet} storing int, long, double and boolean values unboxed.<br/>
+ * Values are kept in parallel slot arrays indexed by an open addressing table, primitives in a long[] and other values in an Object[].
+ * The primitive put and get methods of Packet, the codecs and the serializer use the slots directly,
+ * so a numeric Packet is filled, read and encoded without boxing. The Map methods box on demand.
+ * @usage
+ * <PRE>
+ * {@code
+ * Packet packet = new Packet(new PrimitiveCore());
+ * packet.put("count", 42L);			// no boxing
+ * double count = packet.getDouble("count", 0);	// widened from long, no boxing
+ * Packet decoded = Packet.fromBytes(bytes, 0, bytes.length, new PrimitiveCore());
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) Not thread-safe, same as HashMap.
+ * 2) Keys must not be null. The iteration order is not specified.
+ * 3) Boxed Integer, Long, Double and Boolean values put by the Map methods are stored unboxed,
+ *    getting them back by {@link #get(Object)} returns equal but not identical objects.
+ * 4) It is serialized as a JSON object by itself, Map related configuration of the ObjectMapper does not apply.
+ * </PRE>
+ */
+public class PrimitiveCore extends AbstractMap<String, Object> implements JsonSerializable {
+
+	/** Kinds of slot */
+	static final byte K_REF = 0, K_INT = 1, K_LONG = 2, K_DOUBLE = 3, K_BOOLEAN = 4;
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private String[] c_a_keys;
+	private int[] c_a_hashes;
+	private byte[] c_a_kinds;
+	/** int, long, boolean as 0 or 1, double as raw bits */
+	private long[] c_a_prims;
+	private Object[] c_a_refs;
+	private int c_i_size;
+	/** Open addressing table of slot index + 1, 0 is empty, linear probing; at most half full */
+	private int[] c_a_table;
+	private int c_i_modCount;
+
+	public PrimitiveCore(){
+		this(INITIAL_CAPACITY);
+	}
+	/** @param p_i_capacity expected number of keys */
+	public PrimitiveCore(int p_i_capacity){
+		this.allocate(Math.max(Integer.highestOneBit(Math.max(p_i_capacity, 2) - 1) << 1, 2));
+	}
+	/** Copy of the map, so it can be the target of {@link Packet#transformCore(Class)} */
+	public PrimitiveCore(Map<String, ? extends Object> pm_o_map){
+		this(pm_o_map.size());
+		this.putAll(pm_o_map);
+	}
+
+	private void allocate(int p_i_capacity){
+		c_a_keys = new String[p_i_capacity];
+		c_a_hashes = new int[p_i_capacity];
+		c_a_kinds = new byte[p_i_capacity];
+		c_a_prims = new long[p_i_capacity];
+		c_a_refs = new Object[p_i_capacity];
+		c_a_table = new int[p_i_capacity << 1];
+	}
+
+	private static int hash(Object p_o_key){
+		final int l_i_hash = p_o_key.hashCode();
+		return l_i_hash ^ (l_i_hash >>> 16);
+	}
+
+//		Slots		\\
+	/** @return slot of the key, -1 if absent */
+	int slot(Object p_o_key){
+		if (!(p_o_key instanceof String))
+			return -1;
+		final int l_i_hash = hash(p_o_key);
+		final int l_i_mask = c_a_table.length - 1;
+		for (int i = l_i_hash & l_i_mask, l_i_entry; (l_i_entry = c_a_table[i]) != 0; i = (i + 1) & l_i_mask) {
+			final int l_i_slot = l_i_entry - 1;
+			if (c_a_hashes[l_i_slot] == l_i_hash && p_o_key.equals(c_a_keys[l_i_slot]))
+				return l_i_slot;
+		}
+		return -1;
+	}
+
+	/** @return slot of the key, a new reference slot holding null if absent */
+	private int insert(String p_s_key){
+		if (p_s_key == null)
+			throw new NullPointerException("PrimitiveCore does not accept null keys");
+		if (c_i_size == c_a_keys.length)
+			this.grow();
+		final int l_i_hash = hash(p_s_key);
+		final int l_i_mask = c_a_table.length - 1;
+		int i = l_i_hash & l_i_mask;
+		for (int l_i_entry; (l_i_entry = c_a_table[i]) != 0; i = (i + 1) & l_i_mask) {
+			final int l_i_slot = l_i_entry - 1;
+			if (c_a_hashes[l_i_slot] == l_i_hash && p_s_key.equals(c_a_keys[l_i_slot]))
+				return l_i_slot;
+		}
+		final int r_i_slot = c_i_size++;
+		c_a_keys[r_i_slot] = p_s_key;
+		c_a_hashes[r_i_slot] = l_i_hash;
+		c_a_kinds[r_i_slot] = K_REF;
+		c_a_table[i] = r_i_slot + 1;
+		c_i_modCount++;
+		return r_i_slot;
+	}
+
+	private void grow(){
+		final int l_i_capacity = c_a_keys.length << 1;
+		c_a_keys = Arrays.copyOf(c_a_keys, l_i_capacity);
+		c_a_hashes = Arrays.copyOf(c_a_hashes, l_i_capacity);
+		c_a_kinds = Arrays.copyOf(c_a_kinds, l_i_capacity);
+		c_a_prims = Arrays.copyOf(c_a_prims, l_i_capacity);
+		c_a_refs = Arrays.copyOf(c_a_refs, l_i_capacity);
+		c_a_table = new int[l_i_capacity << 1];
+		final int l_i_mask = c_a_table.length - 1;
+		for (int l_i_slot = 0; l_i_slot < c_i_size; l_i_slot++) {
+			int i = c_a_hashes[l_i_slot] & l_i_mask;
+			while (c_a_table[i] != 0)
+				i = (i + 1) & l_i_mask;
+			c_a_table[i] = l_i_slot + 1;
+		}
+	}
+
+	/** Index of the slot in the table */
+	private int tableIndex(int p_i_slot){
+		final int l_i_mask = c_a_table.length - 1;
+		int i = c_a_hashes[p_i_slot] & l_i_mask;
+		while (c_a_table[i] != p_i_slot + 1)
+			i = (i + 1) & l_i_mask;
+		return i;
+	}
+
+	/** Remove the slot, the last slot is moved into its place */
+	private void removeSlot(int p_i_slot){
+		// backward shift deletion of the table entry
+		final int l_i_mask = c_a_table.length - 1;
+		int i = this.tableIndex(p_i_slot);
+		for (int j = (i + 1) & l_i_mask, l_i_entry; (l_i_entry = c_a_table[j]) != 0; j = (j + 1) & l_i_mask) {
+			final int l_i_home = c_a_hashes[l_i_entry - 1] & l_i_mask;
+			if (i <= j? (l_i_home <= i || l_i_home > j) : (l_i_home <= i && l_i_home > j)) {
+				c_a_table[i] = l_i_entry;
+				i = j;
+			}
+		}
+		c_a_table[i] = 0;
+
+		final int l_i_last = --c_i_size;
+		if (p_i_slot != l_i_last) {
+			c_a_table[this.tableIndex(l_i_last)] = p_i_slot + 1;
+			c_a_keys[p_i_slot] = c_a_keys[l_i_last];
+			c_a_hashes[p_i_slot] = c_a_hashes[l_i_last];
+			c_a_kinds[p_i_slot] = c_a_kinds[l_i_last];
+			c_a_prims[p_i_slot] = c_a_prims[l_i_last];
+			c_a_refs[p_i_slot] = c_a_refs[l_i_last];
+		}
+		c_a_keys[l_i_last] = null;
+		c_a_refs[l_i_last] = null;
+		c_i_modCount++;
+	}
+
+	/** Number of slots, slots are 0 to size - 1 */
+	int slots()						{return c_i_size;}
+	String keyAt(int p_i_slot)		{return c_a_keys[p_i_slot];}
+	byte kindAt(int p_i_slot)		{return c_a_kinds[p_i_slot];}
+	Object refAt(int p_i_slot)		{return c_a_refs[p_i_slot];}
+	/** Primitive of the slot, int and boolean as long, double as raw bits */
+	long primAt(int p_i_slot)		{return c_a_prims[p_i_slot];}
+
+	/** Value of the slot, boxed if primitive */
+	Object valueAt(int p_i_slot){
+		final long l_l_prim = c_a_prims[p_i_slot];
+		switch (c_a_kinds[p_i_slot]) {
+		case K_INT:		return Integer.valueOf((int) l_l_prim);
+		case K_LONG:	return Long.valueOf(l_l_prim);
+		case K_DOUBLE:	return Double.valueOf(Double.longBitsToDouble(l_l_prim));
+		case K_BOOLEAN:	return Boolean.valueOf(l_l_prim != 0);
+		default:		return c_a_refs[p_i_slot];
+		}
+	}
+
+	private void setPrim(int p_i_slot, byte p_b_kind, long p_l_prim){
+		c_a_kinds[p_i_slot] = p_b_kind;
+		c_a_prims[p_i_slot] = p_l_prim;
+		c_a_refs[p_i_slot] = null;
+	}
+
+//		Primitive put		\\
+	public void putInt(String p_s_key, int p_i_val)				{this.setPrim(this.insert(p_s_key), K_INT, p_i_val);}
+	public void putLong(String p_s_key, long p_l_val)			{this.setPrim(this.insert(p_s_key), K_LONG, p_l_val);}
+	public void putDouble(String p_s_key, double p_d_val)		{this.setPrim(this.insert(p_s_key), K_DOUBLE, Double.doubleToRawLongBits(p_d_val));}
+	public void putBoolean(String p_s_key, boolean p_fl_val)	{this.setPrim(this.insert(p_s_key), K_BOOLEAN, p_fl_val? 1 : 0);}
+
+//		Primitive get		\\
+	/**
+	 * Int of a numeric value, converted like {@link Number#intValue()}.
+	 * @return default if absent or not a number
+	 */
+	public int getInt(String p_s_key, int p_def){
+		final int l_i_slot = this.slot(p_s_key);
+		if (l_i_slot < 0)
+			return p_def;
+		switch (c_a_kinds[l_i_slot]) {
+		case K_INT:
+		case K_LONG:	return (int) c_a_prims[l_i_slot];
+		case K_DOUBLE:	return (int) Double.longBitsToDouble(c_a_prims[l_i_slot]);
+		case K_REF:		return c_a_refs[l_i_slot] instanceof Number? ((Number) c_a_refs[l_i_slot]).intValue() : p_def;
+		default:		return p_def;
+		}
+	}
+	/**
+	 * Long of a numeric value, int is widened.
+	 * @return default if absent or not a number
+	 */
+	public long getLong(String p_s_key, long p_def){
+		final int l_i_slot = this.slot(p_s_key);
+		if (l_i_slot < 0)
+			return p_def;
+		switch (c_a_kinds[l_i_slot]) {
+		case K_INT:
+		case K_LONG:	return c_a_prims[l_i_slot];
+		case K_DOUBLE:	return (long) Double.longBitsToDouble(c_a_prims[l_i_slot]);
+		case K_REF:		return c_a_refs[l_i_slot] instanceof Number? ((Number) c_a_refs[l_i_slot]).longValue() : p_def;
+		default:		return p_def;
+		}
+	}
+	/**
+	 * Double of a numeric value, int and long are widened.
+	 * @return default if absent or not a number
+	 */
+	public double getDouble(String p_s_key, double p_def){
+		final int l_i_slot = this.slot(p_s_key);
+		if (l_i_slot < 0)
+			return p_def;
+		switch (c_a_kinds[l_i_slot]) {
+		case K_INT:
+		case K_LONG:	return c_a_prims[l_i_slot];
+		case K_DOUBLE:	return Double.longBitsToDouble(c_a_prims[l_i_slot]);
+		case K_REF:		return c_a_refs[l_i_slot] instanceof Number? ((Number) c_a_refs[l_i_slot]).doubleValue() : p_def;
+		default:		return p_def;
+		}
+	}
+	/** @return default if absent or not a boolean */
+	public boolean getBoolean(String p_s_key, boolean p_def){
+		final int l_i_slot = this.slot(p_s_key);
+		if (l_i_slot < 0)
+			return p_def;
+		switch (c_a_kinds[l_i_slot]) {
+		case K_BOOLEAN:	return c_a_prims[l_i_slot] != 0;
+		case K_REF:		return c_a_refs[l_i_slot] instanceof Boolean? (Boolean) c_a_refs[l_i_slot] : p_def;
+		default:		return p_def;
+		}
+	}
+
+//		Map Methods		\\
+	@Override
+	public int size() {
+		return c_i_size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return this.slot(key) >= 0;
+	}
+
+	@Override
+	public Object get(Object key) {
+		final int l_i_slot = this.slot(key);
+		return l_i_slot>=0? this.valueAt(l_i_slot) : null;
+	}
+
+	/** Integer, Long, Double and Boolean are stored unboxed */
+	@Override
+	public Object put(String key, Object value) {
+		final int l_i_slot = this.insert(key);
+		final Object r_o_prev = this.valueAt(l_i_slot);
+		if (value instanceof Integer)
+			this.setPrim(l_i_slot, K_INT, (Integer) value);
+		else if (value instanceof Long)
+			this.setPrim(l_i_slot, K_LONG, (Long) value);
+		else if (value instanceof Double)
+			this.setPrim(l_i_slot, K_DOUBLE, Double.doubleToRawLongBits((Double) value));
+		else if (value instanceof Boolean)
+			this.setPrim(l_i_slot, K_BOOLEAN, (Boolean) value? 1 : 0);
+		else {
+			c_a_kinds[l_i_slot] = K_REF;
+			c_a_refs[l_i_slot] = value;
+		}
+		return r_o_prev;
+	}
+
+	@Override
+	public Object remove(Object key) {
+		final int l_i_slot = this.slot(key);
+		if (l_i_slot < 0)
+			return null;
+		final Object r_o_prev = this.valueAt(l_i_slot);
+		this.removeSlot(l_i_slot);
+		return r_o_prev;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(c_a_keys, 0, c_i_size, null);
+		Arrays.fill(c_a_refs, 0, c_i_size, null);
+		Arrays.fill(c_a_table, 0);
+		c_i_size = 0;
+		c_i_modCount++;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		return new AbstractSet<Map.Entry<String, Object>>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new EntryIterator();
+			}
+			@Override
+			public int size() {
+				return c_i_size;
+			}
+		};
+	}
+
+	/** Iterate the slots in order, an entry is a snapshot of the slot */
+	private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+		private int c_i_next;
+		private boolean c_fl_removable;
+		private int c_i_expectedModCount = c_i_modCount;
+
+		@Override
+		public boolean hasNext() {
+			return c_i_next < c_i_size;
+		}
+
+		@Override
+		public Map.Entry<String, Object> next() {
+			if (c_i_expectedModCount != c_i_modCount)
+				throw new ConcurrentModificationException();
+			if (c_i_next >= c_i_size)
+				throw new NoSuchElementException();
+			final int l_i_slot = c_i_next++;
+			c_fl_removable = true;
+			final String l_s_key = c_a_keys[l_i_slot];
+			return new AbstractMap.SimpleEntry<String, Object>(l_s_key, PrimitiveCore.this.valueAt(l_i_slot)) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				public Object setValue(Object p_o_val) {
+					PrimitiveCore.this.put(l_s_key, p_o_val);
+					return super.setValue(p_o_val);
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			if (!c_fl_removable)
+				throw new IllegalStateException();
+			if (c_i_expectedModCount != c_i_modCount)
+				throw new ConcurrentModificationException();
+			PrimitiveCore.this.removeSlot(--c_i_next);	// the last slot is moved here, visit it next
+			c_i_expectedModCount = c_i_modCount;
+			c_fl_removable = false;
+		}
+	}
+
+//		JsonSerializable		\\
+	/** Write a JSON object, primitives are written directly, other values by their serializer */
+	@Override
+	public void serialize(JsonGenerator p_o_gen, SerializerProvider p_o_provider) throws IOException, JsonProcessingException {
+		p_o_gen.writeStartObject();
+		for (int i = 0; i < c_i_size; i++) {
+			p_o_gen.writeFieldName(c_a_keys[i]);
+			final long l_l_prim = c_a_prims[i];
+			switch (c_a_kinds[i]) {
+			case K_INT:		p_o_gen.writeNumber((int) l_l_prim);						break;
+			case K_LONG:	p_o_gen.writeNumber(l_l_prim);								break;
+			case K_DOUBLE:	p_o_gen.writeNumber(Double.longBitsToDouble(l_l_prim));	break;
+			case K_BOOLEAN:	p_o_gen.writeBoolean(l_l_prim != 0);						break;
+			default:
+				if (c_a_refs[i] == null)
+					p_o_provider.defaultSerializeNull(p_o_gen);
+				else
+					p_o_provider.defaultSerializeValue(c_a_refs[i], p_o_gen);
+			}
+		}
+		p_o_gen.writeEndObject();
+	}
+
+	@Override
+	public void serializeWithType(JsonGenerator p_o_gen, SerializerProvider p_o_provider, TypeSerializer p_o_typeSer)
+			throws IOException, JsonProcessingException {
+		this.serialize(p_o_gen, p_o_provider);	// the core is always read back as a Packet
+	}
+}
@@ -0,0 +1,142 @@
+package evo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * An element of {@link Packet} which is not deserialized yet.<br/>
+ * Reference to a byte range of the encoded document and the {@link PacketCodec} of it, the typed get methods of Packet bind
+ * the object straight from the range, so an element is tokenized once when it is used, and never when it is not.
+ * @rule
+ * <PRE>
+ * The range is not copied, the bytes must not be modified while the element is alive.
+ * </PRE>
+ */
+public final class RawElement implements JsonSerializable {
+
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final PacketCodec c_o_codec;
+	private final byte[] c_a_buf;
+	private final int c_i_off;
+	private final int c_i_len;
+
+	/**
+	 * @param p_a_buf UTF-8 encoded JSON
+	 * @param p_i_off start of the element, must be '{' or '['
+	 * @param p_i_len length of the element
+	 */
+	public RawElement(byte[] p_a_buf, int p_i_off, int p_i_len){
+		this(PacketCodec.JSON, p_a_buf, p_i_off, p_i_len);
+	}
+	/**
+	 * @param p_o_codec codec of the element
+	 * @param p_a_buf encoded document
+	 * @param p_i_off start of the element
+	 * @param p_i_len length of the element
+	 */
+	public RawElement(PacketCodec p_o_codec, byte[] p_a_buf, int p_i_off, int p_i_len){
+		this.c_o_codec = p_o_codec;
+		this.c_a_buf = p_a_buf;
+		this.c_i_off = p_i_off;
+		this.c_i_len = p_i_len;
+	}
+
+//		GETTER - Fields		\\
+	public PacketCodec getCodec()	{return this.c_o_codec;}
+	public byte[] getBuffer()	{return this.c_a_buf;}
+	public int getOffset()		{return this.c_i_off;}
+	public int getLength()		{return this.c_i_len;}
+
+	/** true if the element is an array */
+	public boolean isArray(){
+		return c_o_codec.isArray(c_a_buf, c_i_off);
+	}
+
+//		Methods		\\
+	/** Bind the element by the cached reader of the type, without copying the range. */
+	public <T> T readValue(PacketMapper p_o_mapper, JavaType p_o_type) throws IOException, JsonProcessingException {
+		final ObjectReader l_o_reader = p_o_mapper.reader(p_o_type);
+		if (c_o_codec == PacketCodec.JSON)
+			return l_o_reader.readValue(c_a_buf, c_i_off, c_i_len);
+		final JsonParser l_o_parser = this.createParser(p_o_mapper.getObjectMapper());
+		try {
+			return l_o_reader.readValue(l_o_parser);
+		} finally {
+			l_o_parser.close();
+		}
+	}
+
+	/** Create a parser over the range by the codec, the caller must close it. */
+	public JsonParser createParser(ObjectMapper p_o_mapper) throws IOException {
+		return c_o_codec.createParser(p_o_mapper, c_a_buf, c_i_off, c_i_len);
+	}
+
+	/**
+	 * Write the element to the generator.<br/>
+	 * A JSON element is spliced as raw bytes when the generator writes UTF-8 to a stream, or as raw text to a writer,
+	 * so it is never tokenized. Otherwise the tokens are copied.
+	 */
+	public void writeTo(JsonGenerator p_o_gen) throws IOException {
+		if (c_o_codec == PacketCodec.JSON) {
+			final Object l_o_target = p_o_gen.getOutputTarget();
+			if (l_o_target instanceof OutputStream) {
+				p_o_gen.writeRawValue("");	// separator and state of the value
+				final boolean l_fl_passFlush = p_o_gen.isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+				p_o_gen.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+				p_o_gen.flush();	// the buffered output goes before the element
+				if (l_fl_passFlush)
+					p_o_gen.enable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+				((OutputStream) l_o_target).write(c_a_buf, c_i_off, c_i_len);
+				return;
+			} else if (l_o_target instanceof Writer) {
+				p_o_gen.writeRawValue(new String(c_a_buf, c_i_off, c_i_len, UTF_8));
+				return;
+			}
+		}
+		final JsonParser l_o_parser = this.createParser(PacketMapper.getDefault().getObjectMapper());
+		try {
+			l_o_parser.nextToken();
+			p_o_gen.copyCurrentStructure(l_o_parser);
+		} finally {
+			l_o_parser.close();
+		}
+	}
+
+	/** The JSON text of the element, transcoded if the codec is not JSON */
+	@Override
+	public String toString() {
+		if (c_o_codec == PacketCodec.JSON)
+			return new String(c_a_buf, c_i_off, c_i_len, UTF_8);
+		try {
+			return PacketMapper.getDefault().writer().writeValueAsString(this);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Malformed " + c_o_codec + " element", e);
+		}
+	}
+
+//		JsonSerializable		\\
+	@Override
+	public void serialize(JsonGenerator p_o_gen, SerializerProvider p_o_provider)
+			throws IOException, JsonProcessingException {
+		this.writeTo(p_o_gen);
+	}
+
+	@Override
+	public void serializeWithType(JsonGenerator p_o_gen, SerializerProvider p_o_provider, TypeSerializer p_o_typeSer)
+			throws IOException, JsonProcessingException {
+		this.writeTo(p_o_gen);	// raw JSON carries no type information
+	}
+}
@@ -3,26 +3,49 @@ package evo;
 import java.util.HashMap;
 import java.util.Map;
 
+import evo.util.TimerRegistry;
+
+/**
+ * Quick stopwatch printing the elapsed time of a section, by id.<br/>
+ * Timers are kept per thread and measured by {@link System#nanoTime()}, every printed time is also recorded
+ * to the {@link TimerRegistry#getDefault() default TimerRegistry}, named "STOPWATCH[name]".
+ * For scoped timers and latency distributions use {@link TimerRegistry} directly.
+ */
 public class TimePrinter {
-	
-	private static Map<Integer, Long> TIMERS = new HashMap<Integer, Long>();
-	
+
+	private static final int DEFAULT_ID = -100;
+	/** Start times by id, of the current thread */
+	private static final ThreadLocal<Map<Integer, Long>> TIMERS = new ThreadLocal<Map<Integer, Long>>(){
+		@Override
+		protected Map<Integer, Long> initialValue() {
+			return new HashMap<Integer, Long>();
+		}
+	};
+
 	public static void start(){
-		start(-100);
+		start(DEFAULT_ID);
 	}
 	public static void start(int id){
-		TIMERS.put(id, System.currentTimeMillis());
+		TIMERS.get().put(id, System.nanoTime());
 	}
-	
+
 	public static void print(){
-		print(-100);
+		print(DEFAULT_ID);
 	}
 	public static void print(int id){
 		print(id, null);
 	}
+	/** Print the milliseconds since {@link #start(int)} of the same id and thread, the timer keeps running. */
 	public static void print(int id, String name){
-		long time = System.currentTimeMillis() - TIMERS.get(id);
-		System.out.println(String.format("STOPWATCH[%s]: %s", name, time));
+		final long now = System.nanoTime();
+		final Long start = TIMERS.get().get(id);
+		if (start == null) {
+			System.out.println(String.format("STOPWATCH[%s]: not started", name));
+			return;
+		}
+		final long nanos = now - start;
+		TimerRegistry.getDefault().record(String.format("STOPWATCH[%s]", name!=null? name : String.valueOf(id)), nanos);
+		System.out.println(String.format("STOPWATCH[%s]: %.3f", name, nanos / 1000000d));
 	}
 
 }
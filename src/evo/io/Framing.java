@@ -0,0 +1,16 @@
+package evo.io;
+
+/**
+ * How records are delimited in a stream of Packets, see {@link PacketReader} and {@link PacketWriter}.
+ */
+public enum Framing {
+	/**
+	 * Newline-delimited JSON, one compact JSON document per line.
+	 * Blank lines and a trailing '\r' are ignored by the reader.
+	 */
+	NDJSON,
+	/**
+	 * A 4 bytes big-endian length, then the document in any format of {@link evo.PacketCodec}.
+	 */
+	LENGTH_PREFIXED
+}
@@ -0,0 +1,209 @@
+package evo.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import evo.Packet;
+
+/**
+ * Incremental decoder of a stream of Packets delimited by a {@link Framing}, fed with chunks as they arrive from a non-blocking channel.<br/>
+ * The bytes are copied once, from the fed buffer into a slab array shared by the records, and each completed record is decoded
+ * in place, so its Packet references the slab without another copy. Only a record left incomplete at the end of a slab is moved
+ * to the next slab. A length-prefixed record larger than a slab gets an array of its exact length, allocated when its prefix arrives.
+ * The decoder keeps no thread and never blocks, one event-loop thread may serve a decoder per connection.
+ * @usage
+ * <PRE>
+ * {@code
+ * // per connection
+ * PacketDecoder decoder = new PacketDecoder(Framing.LENGTH_PREFIXED);
+ * // on readable
+ * channel.read(buffer);
+ * buffer.flip();
+ * decoder.feed(buffer);
+ * buffer.clear();
+ * for (Packet packet; (packet = decoder.poll()) != null;)
+ * 	process(packet);
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) A decoder is not thread-safe, feed and poll it on the thread of its connection.
+ * 2) A Packet keeps its slab reachable, size the slabs by {@link #PacketDecoder(Framing, int)} if Packets are kept long.
+ * 3) After an IOException the stream is corrupt, the decoder must be discarded with its connection.
+ * </PRE>
+ */
+public class PacketDecoder {
+
+	public static final int DEFAULT_SLAB = 64 * 1024;
+
+	private final Framing c_o_framing;
+	private final int c_i_slabSize;
+	private int c_i_maxRecord = PacketReader.DEFAULT_MAX_RECORD;
+
+	/** Bytes from start to position are the incomplete record, null until the first feed */
+	private byte[] c_a_slab;
+	private int c_i_start;
+	private int c_i_pos;
+	/** NDJSON: index to continue the search of '\n' from */
+	private int c_i_scan;
+	private final ArrayDeque<Packet> c_o_ready = new ArrayDeque<Packet>();
+	private long c_l_count;
+
+	public PacketDecoder(Framing p_o_framing){
+		this(p_o_framing, DEFAULT_SLAB);
+	}
+	/**
+	 * @param p_i_slabSize length of the arrays the records are copied into
+	 */
+	public PacketDecoder(Framing p_o_framing, int p_i_slabSize){
+		this.c_o_framing = p_o_framing;
+		this.c_i_slabSize = p_i_slabSize;
+	}
+
+//		GETTER & SETTER		\\
+	public Framing getFraming()		{return this.c_o_framing;}
+	/** Number of records completed so far */
+	public long getCount()			{return this.c_l_count;}
+	/** Number of completed Packets waiting for {@link #poll()} */
+	public int available()			{return c_o_ready.size();}
+	/** Bytes of the incomplete record, 0 if the fed bytes ended on a record boundary */
+	public int getPartialLength()	{return c_i_pos - c_i_start;}
+	/**
+	 * @param p_i_max maximum length of a record in bytes, a longer record fails the decoder
+	 */
+	public PacketDecoder setMaxRecordLength(int p_i_max){
+		this.c_i_maxRecord = p_i_max;
+		return this;
+	}
+
+//		Methods		\\
+	/**
+	 * Consume all remaining bytes of the buffer, heap or direct, and decode the records they complete.
+	 * @return number of Packets available to {@link #poll()}
+	 * @throws IOException a record is too long or has an invalid length prefix
+	 */
+	public int feed(ByteBuffer p_o_buf) throws IOException {
+		while (p_o_buf.hasRemaining()) {
+			this.reserve();
+			final int l_i_len = Math.min(p_o_buf.remaining(), c_a_slab.length - c_i_pos);
+			p_o_buf.get(c_a_slab, c_i_pos, l_i_len);
+			c_i_pos += l_i_len;
+			this.split();
+		}
+		return c_o_ready.size();
+	}
+
+	/** Same as {@link #feed(ByteBuffer)} with a range of an array, the array is not referenced afterwards */
+	public int feed(byte[] p_a_buf, int p_i_off, int p_i_len) throws IOException {
+		return this.feed(ByteBuffer.wrap(p_a_buf, p_i_off, p_i_len));
+	}
+
+	/** @return the next completed Packet, null if none */
+	public Packet poll(){
+		return c_o_ready.poll();
+	}
+
+	/**
+	 * Complete the last NDJSON record missing its final newline, at the end of the stream.
+	 * @return number of Packets available to {@link #poll()}
+	 * @throws IOException a length-prefixed record is truncated
+	 */
+	public int finish() throws IOException {
+		if (c_i_pos > c_i_start) {
+			if (c_o_framing == Framing.LENGTH_PREFIXED)
+				throw new IOException("Truncated record, " + (c_i_pos - c_i_start) + " bytes left");
+			this.emitLine(c_i_start, c_i_pos);
+			c_i_start = c_i_scan = c_i_pos;
+		}
+		return c_o_ready.size();
+	}
+
+	/**
+	 * Decode a completed record, override it to create Packets of a subclass or with another core.
+	 * The range stays valid as long as the Packet references it.
+	 */
+	protected Packet createPacket(byte[] p_a_buf, int p_i_off, int p_i_len){
+		return Packet.fromBytes(p_a_buf, p_i_off, p_i_len);
+	}
+
+//		Slabs		\\
+	/** Make room after the position, moving the incomplete record to a new slab if the slab is full */
+	private void reserve() throws IOException {
+		if (c_a_slab == null) {
+			c_a_slab = new byte[c_i_slabSize];
+		} else if (c_i_pos == c_a_slab.length) {
+			final int l_i_partial = c_i_pos - c_i_start;
+			if (l_i_partial > c_i_maxRecord + 4)
+				throw new IOException("Record exceeds " + c_i_maxRecord + " bytes");
+			this.relocate(l_i_partial == c_a_slab.length? l_i_partial << 1 : l_i_partial + 1);	// an NDJSON record filling a slab grows it
+		}
+	}
+
+	/** Move the incomplete record to the start of a new slab of at least the length */
+	private void relocate(int p_i_need){
+		final byte[] l_a_slab = new byte[Math.max(c_i_slabSize, p_i_need)];
+		final int l_i_partial = c_i_pos - c_i_start;
+		System.arraycopy(c_a_slab, c_i_start, l_a_slab, 0, l_i_partial);
+		c_i_scan -= c_i_start;
+		c_i_start = 0;
+		c_i_pos = l_i_partial;
+		c_a_slab = l_a_slab;
+	}
+
+//		Records		\\
+	private void split() throws IOException {
+		if (c_o_framing == Framing.NDJSON)
+			this.splitLines();
+		else
+			this.splitPrefixed();
+	}
+
+	private void splitLines() throws IOException {
+		for (int i = c_i_scan; i < c_i_pos; i++) {
+			if (c_a_slab[i] == '\n') {
+				this.emitLine(c_i_start, i);
+				c_i_start = i + 1;
+			}
+		}
+		c_i_scan = c_i_pos;
+		if (c_i_pos - c_i_start > c_i_maxRecord)
+			throw new IOException("Record exceeds " + c_i_maxRecord + " bytes");
+	}
+
+	/** Decode the line without surrounding blanks, blank lines are skipped */
+	private void emitLine(int p_i_start, int p_i_end){
+		int l_i_start = p_i_start, l_i_end = p_i_end;
+		while (l_i_start < l_i_end && isBlank(c_a_slab[l_i_start]))
+			l_i_start++;
+		while (l_i_end > l_i_start && isBlank(c_a_slab[l_i_end - 1]))
+			l_i_end--;
+		if (l_i_start < l_i_end)
+			this.emit(c_a_slab, l_i_start, l_i_end - l_i_start);
+	}
+
+	private static boolean isBlank(byte p_b_val){
+		return p_b_val == ' ' || p_b_val == '\t' || p_b_val == '\r' || p_b_val == '\n';
+	}
+
+	private void splitPrefixed() throws IOException {
+		while (c_i_pos - c_i_start >= 4) {
+			final int l_i_len = ((c_a_slab[c_i_start] & 0xFF) << 24) | ((c_a_slab[c_i_start + 1] & 0xFF) << 16)
+					| ((c_a_slab[c_i_start + 2] & 0xFF) << 8) | (c_a_slab[c_i_start + 3] & 0xFF);
+			if (l_i_len < 0 || l_i_len > c_i_maxRecord)
+				throw new IOException("Invalid record length: " + l_i_len);
+			if (c_i_pos - c_i_start - 4 < l_i_len) {
+				if (c_a_slab.length - c_i_start < 4 + l_i_len)	// allocate the room of the whole record once
+					this.relocate(4 + l_i_len);
+				return;
+			}
+			this.emit(c_a_slab, c_i_start + 4, l_i_len);
+			c_i_start += 4 + l_i_len;
+		}
+	}
+
+	private void emit(byte[] p_a_buf, int p_i_off, int p_i_len){
+		c_o_ready.add(this.createPacket(p_a_buf, p_i_off, p_i_len));
+		c_l_count++;
+	}
+}
@@ -0,0 +1,534 @@
+package evo.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import evo.Packet;
+import evo.PacketCodec;
+
+/**
+ * Append-only log of Packets on local disk, split into memory-mapped segment files, for audit and replay.<br/>
+ * Records are numbered from 0 in append order. Each record is encoded straight into the mapped segment,
+ * after a header of its length and CRC32. A segment is full at {@link #DEFAULT_SEGMENT_SIZE} bytes, then the log rolls to a new one,
+ * named by the number of its first record.<br/>
+ * Every {@link #DEFAULT_INDEX_INTERVAL}th record position is indexed, so a record is found by its number in constant time:
+ * the segment is found by binary search, the indexed position directly, then at most an interval of headers is skipped.
+ * The index of a full segment is saved next to it, the index of the last segment is rebuilt on open.<br/>
+ * On open, the last segment is checked record by record and cut after the last complete record, so the records torn by a crash are dropped.
+ * @usage
+ * <PRE>
+ * {@code
+ * PacketLog log = new PacketLog(new File("audit"));
+ * try {
+ * 	long number = log.append(packet);
+ * 	log.flush();	// durable
+ * 	...
+ * 	Packet again = log.get(number);
+ * 	for (Packet replayed : log.iterable(from))
+ * 		process(replayed);
+ * } finally {
+ * 	log.close();
+ * }
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) A log is not thread-safe, and a directory must be opened by one log at a time.
+ * 2) Appended records are in the page cache at once, they are on disk after {@link #flush()} or {@link #close()}.
+ * 3) Buffers returned by {@link #getRecord(long)} and handed to a {@link Visitor} view the mapped file, they are read-only.
+ * </PRE>
+ */
+public class PacketLog implements Closeable, Iterable<Packet> {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	public static final int DEFAULT_INDEX_INTERVAL = 32;
+	/** Length then CRC32 of the record */
+	private static final int HEADER = 8;
+	private static final String LOG_SUFFIX = ".log", INDEX_SUFFIX = ".idx";
+
+	private final File c_o_dir;
+	private final PacketCodec c_o_codec;
+	private final int c_i_segmentSize;
+	private final int c_i_interval;
+	/** Ordered by their first record, the last one is appended to */
+	private final List<Segment> cl_o_segments = new ArrayList<Segment>();
+	private FileChannel c_o_channel;
+	private final CRC32 c_o_crc = new CRC32();
+	private long c_l_truncated;
+	private boolean c_fl_closed;
+
+	/** Same as {@link #PacketLog(File, PacketCodec, int)} with JSON records and the default segment size */
+	public PacketLog(File p_o_dir) throws IOException {
+		this(p_o_dir, PacketCodec.JSON, DEFAULT_SEGMENT_SIZE);
+	}
+	/**
+	 * Open the log in the directory, created if missing, and recover its tail.
+	 * @param p_o_codec format of the appended records, records of any format are read
+	 * @param p_i_segmentSize bytes of a segment, the largest record must fit in a segment
+	 * @throws IOException failed on reading the segments, or records are missing between segments
+	 */
+	public PacketLog(File p_o_dir, PacketCodec p_o_codec, int p_i_segmentSize) throws IOException {
+		if (p_i_segmentSize <= HEADER)
+			throw new IllegalArgumentException("Segment size too small: " + p_i_segmentSize);
+		this.c_o_dir = p_o_dir;
+		this.c_o_codec = p_o_codec;
+		this.c_i_segmentSize = p_i_segmentSize;
+		this.c_i_interval = DEFAULT_INDEX_INTERVAL;
+		if (!p_o_dir.isDirectory() && !p_o_dir.mkdirs())
+			throw new IOException("Cannot create " + p_o_dir);
+		this.open();
+	}
+
+//		GETTER		\\
+	public File getDirectory()		{return this.c_o_dir;}
+	public PacketCodec getCodec()	{return this.c_o_codec;}
+	/** Number of records, also the number of the next appended record */
+	public long getCount(){
+		final Segment l_o_last = this.last();
+		return l_o_last.c_l_base + l_o_last.c_i_count;
+	}
+	public int getSegmentCount()	{return cl_o_segments.size();}
+	/** Bytes of torn records dropped from the last segment when the log was opened, 0 if it was closed or flushed cleanly */
+	public long getTruncated()		{return this.c_l_truncated;}
+
+//		Methods		\\
+	/**
+	 * Encode the Packet at the end of the log, rolling to a new segment if the current one is full.
+	 * Nothing is appended if encoding fails.
+	 * @return number of the record
+	 * @throws IOException failed on encoding, on creating a segment, or the record is larger than a segment
+	 */
+	public long append(Packet p_o_pack) throws IOException {
+		this.checkOpen();
+		Segment l_o_seg = this.last();
+		if (l_o_seg.c_o_map.capacity() - l_o_seg.c_i_size <= HEADER)
+			l_o_seg = this.roll();
+		int l_i_len;
+		try {
+			l_i_len = this.encode(l_o_seg, p_o_pack);
+		} catch (BufferOverflowException e) {
+			if (l_o_seg.c_i_count == 0)
+				throw new IOException("Record exceeds the segment size " + c_i_segmentSize);
+			l_o_seg = this.roll();
+			try {
+				l_i_len = this.encode(l_o_seg, p_o_pack);
+			} catch (BufferOverflowException e2) {
+				throw new IOException("Record exceeds the segment size " + c_i_segmentSize);
+			}
+		}
+		final MappedByteBuffer l_o_map = l_o_seg.c_o_map;
+		l_o_map.putInt(l_o_seg.c_i_size + 4, this.checksum(l_o_map, l_o_seg.c_i_size + HEADER, l_i_len));
+		l_o_map.putInt(l_o_seg.c_i_size, l_i_len);	// the record is complete once its length is written
+		l_o_seg.add(l_i_len);
+		return l_o_seg.c_l_base + l_o_seg.c_i_count - 1;
+	}
+
+	/** @return length of the record encoded after the header of the next record */
+	private int encode(Segment p_o_seg, Packet p_o_pack) throws IOException {
+		final MappedByteBuffer l_o_map = p_o_seg.c_o_map;
+		l_o_map.limit(l_o_map.capacity()).position(p_o_seg.c_i_size + HEADER);
+		final int r_i_len = p_o_pack.writeTo(l_o_map, c_o_codec);
+		if (r_i_len == 0)	// a zero length marks the end of the records
+			throw new IOException("Empty record");
+		return r_i_len;
+	}
+
+	/** Write the appended records of the last segment to disk */
+	public void flush() throws IOException {
+		this.checkOpen();
+		this.last().c_o_map.force();
+	}
+
+	/**
+	 * Decode a record, objects and arrays are decoded by the get methods of the Packet.
+	 * The record is copied once from the mapped file into an array of its length.
+	 * @throws IndexOutOfBoundsException if no record has the number
+	 */
+	public Packet get(long p_l_number){
+		final byte[] l_a_buf = this.read(p_l_number);
+		return Packet.fromBytes(l_a_buf, 0, l_a_buf.length);
+	}
+	/**
+	 * Same as {@link #get(long)} but only the keys are decoded, see {@link Packet#fromBytes(byte[], int, int, Set)}.
+	 */
+	public Packet get(long p_l_number, Set<String> p_o_keys){
+		final byte[] l_a_buf = this.read(p_l_number);
+		return Packet.fromBytes(l_a_buf, 0, l_a_buf.length, p_o_keys);
+	}
+
+	/**
+	 * Encoded bytes of a record without copy, to forward it as is.
+	 * @return read-only buffer of the record from position 0
+	 * @throws IndexOutOfBoundsException if no record has the number
+	 */
+	public ByteBuffer getRecord(long p_l_number){
+		this.checkOpen();
+		final Segment l_o_seg = this.find(p_l_number);
+		final int l_i_pos = l_o_seg.position(p_l_number);
+		final ByteBuffer r_o_buf = l_o_seg.c_o_map.asReadOnlyBuffer();
+		r_o_buf.limit(l_i_pos + HEADER + r_o_buf.getInt(l_i_pos)).position(l_i_pos + HEADER);
+		return r_o_buf.slice();
+	}
+
+	private byte[] read(long p_l_number){
+		final ByteBuffer l_o_buf = this.getRecord(p_l_number);
+		final byte[] r_a_buf = new byte[l_o_buf.remaining()];
+		l_o_buf.get(r_a_buf);
+		return r_a_buf;
+	}
+
+	/**
+	 * Visit the encoded records in order without copy or allocation, the fastest replay.
+	 * @param p_l_from number of the first visited record
+	 * @return number of visited records
+	 */
+	public long replay(long p_l_from, Visitor p_o_visitor) throws IOException {
+		this.checkOpen();
+		if (p_l_from == this.getCount())
+			return 0;
+		long r_l_visited = 0;
+		long l_l_number = p_l_from;
+		for (int l_i_seg = this.indexOf(p_l_from); l_i_seg < cl_o_segments.size(); l_i_seg++) {
+			final Segment l_o_seg = cl_o_segments.get(l_i_seg);
+			if (l_o_seg.c_i_count == 0)
+				continue;
+			final ByteBuffer l_o_buf = l_o_seg.c_o_map.asReadOnlyBuffer();
+			for (int l_i_pos = l_o_seg.position(l_l_number); l_i_pos < l_o_seg.c_i_size;) {
+				final int l_i_end = l_i_pos + HEADER + l_o_buf.getInt(l_i_pos);
+				l_o_buf.limit(l_i_end).position(l_i_pos + HEADER);
+				r_l_visited++;
+				if (!p_o_visitor.visit(l_l_number++, l_o_buf))
+					return r_l_visited;
+				l_o_buf.limit(l_o_buf.capacity());
+				l_i_pos = l_i_end;
+			}
+		}
+		return r_l_visited;
+	}
+
+	/** Decoded records from the first one, see {@link #iterable(long)} */
+	@Override
+	public Iterator<Packet> iterator() {
+		return this.iterable(0).iterator();
+	}
+	/**
+	 * Decoded records in order, each copied once like {@link #get(long)}.
+	 * Records appended while iterating are iterated too.
+	 * @param p_l_from number of the first record
+	 */
+	public Iterable<Packet> iterable(final long p_l_from){
+		this.checkOpen();
+		if (p_l_from != this.getCount())
+			this.find(p_l_from);	// fail early
+		return new Iterable<Packet>() {
+			@Override
+			public Iterator<Packet> iterator() {
+				return new Cursor(p_l_from);
+			}
+		};
+	}
+
+	/** Flush and close the last segment, cut to its records */
+	@Override
+	public void close() throws IOException {
+		if (c_fl_closed)
+			return;
+		c_fl_closed = true;
+		final Segment l_o_last = this.last();
+		try {
+			l_o_last.c_o_map.force();
+			c_o_channel.truncate(l_o_last.c_i_size);
+		} finally {
+			c_o_channel.close();
+			cl_o_segments.clear();	// the mappings are released by the garbage collector
+		}
+	}
+
+	private void checkOpen(){
+		if (c_fl_closed)
+			throw new IllegalStateException("PacketLog is closed");
+	}
+
+	private int checksum(ByteBuffer p_o_buf, int p_i_off, int p_i_len){
+		final ByteBuffer l_o_buf = p_o_buf.duplicate();
+		l_o_buf.limit(p_i_off + p_i_len).position(p_i_off);
+		c_o_crc.reset();
+		c_o_crc.update(l_o_buf);
+		return (int) c_o_crc.getValue();
+	}
+
+//		Segments		\\
+	private Segment last(){
+		return cl_o_segments.get(cl_o_segments.size() - 1);
+	}
+
+	private Segment find(long p_l_number){
+		return cl_o_segments.get(this.indexOf(p_l_number));
+	}
+
+	/** Index of the segment holding the record, by binary search on their first record */
+	private int indexOf(long p_l_number){
+		if (p_l_number < 0 || p_l_number >= this.getCount())
+			throw new IndexOutOfBoundsException("Record " + p_l_number + " of " + this.getCount());
+		int l_i_low = 0, l_i_high = cl_o_segments.size() - 1;
+		if (p_l_number >= cl_o_segments.get(l_i_high).c_l_base)
+			return l_i_high;
+		while (l_i_low < l_i_high) {
+			final int l_i_mid = (l_i_low + l_i_high + 1) >>> 1;
+			if (cl_o_segments.get(l_i_mid).c_l_base <= p_l_number)
+				l_i_low = l_i_mid;
+			else
+				l_i_high = l_i_mid - 1;
+		}
+		return l_i_low;
+	}
+
+	/** Seal the last segment with its index and start a new one after it */
+	private Segment roll() throws IOException {
+		final Segment l_o_last = this.last();
+		l_o_last.c_o_map.force();
+		c_o_channel.truncate(l_o_last.c_i_size);	// the mapping stays readable up to the size
+		c_o_channel.close();
+		this.writeIndex(l_o_last);
+		final Segment r_o_seg = new Segment(l_o_last.c_l_base + l_o_last.c_i_count);
+		c_o_channel = FileChannel.open(this.file(r_o_seg.c_l_base, LOG_SUFFIX).toPath(),
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		r_o_seg.c_o_map = c_o_channel.map(MapMode.READ_WRITE, 0, c_i_segmentSize);
+		cl_o_segments.add(r_o_seg);
+		return r_o_seg;
+	}
+
+	private File file(long p_l_base, String p_s_suffix){
+		return new File(c_o_dir, String.format("%020d", p_l_base) + p_s_suffix);
+	}
+
+	/** Map the segments, load their indexes, recover the last one */
+	private void open() throws IOException {
+		final File[] l_a_files = c_o_dir.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File p_o_file) {
+				return p_o_file.getName().matches("\\d{20}\\" + LOG_SUFFIX);
+			}
+		});
+		if (l_a_files == null)
+			throw new IOException("Cannot list " + c_o_dir);
+		Arrays.sort(l_a_files);	// same width, the name order is the number order
+		for (int i = 0; i < l_a_files.length; i++) {
+			final Segment l_o_seg = new Segment(Long.parseLong(l_a_files[i].getName().substring(0, 20)));
+			if (!cl_o_segments.isEmpty() && l_o_seg.c_l_base != this.getCount())
+				throw new IOException("Records " + this.getCount() + " to " + (l_o_seg.c_l_base - 1) + " are missing before " + l_a_files[i]);
+			if (i < l_a_files.length - 1)
+				this.openSealed(l_o_seg, l_a_files[i]);
+			else
+				this.openLast(l_o_seg, l_a_files[i]);
+			cl_o_segments.add(l_o_seg);
+		}
+		if (cl_o_segments.isEmpty()) {
+			final Segment l_o_seg = new Segment(0);
+			c_o_channel = FileChannel.open(this.file(0, LOG_SUFFIX).toPath(),
+					StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			l_o_seg.c_o_map = c_o_channel.map(MapMode.READ_WRITE, 0, c_i_segmentSize);
+			cl_o_segments.add(l_o_seg);
+		}
+	}
+
+	private void openSealed(Segment p_o_seg, File p_o_file) throws IOException {
+		final FileChannel l_o_channel = FileChannel.open(p_o_file.toPath(), StandardOpenOption.READ);
+		try {
+			p_o_seg.c_o_map = l_o_channel.map(MapMode.READ_ONLY, 0, l_o_channel.size());
+		} finally {
+			l_o_channel.close();
+		}
+		if (!this.readIndex(p_o_seg) && this.scan(p_o_seg, false) != p_o_seg.c_o_map.capacity())
+			throw new IOException("Corrupt record at " + p_o_seg.c_i_size + " of " + p_o_file);
+	}
+
+	/** Drop the torn records at the end and map the segment for appending */
+	private void openLast(Segment p_o_seg, File p_o_file) throws IOException {
+		this.file(p_o_seg.c_l_base, INDEX_SUFFIX).delete();	// rebuilt when the segment is sealed
+		c_o_channel = FileChannel.open(p_o_file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		final long l_l_length = c_o_channel.size();
+		p_o_seg.c_o_map = c_o_channel.map(MapMode.READ_ONLY, 0, l_l_length);
+		final int l_i_size = this.scan(p_o_seg, true);
+		if (l_i_size < l_l_length) {
+			c_l_truncated = lastNonZero(p_o_seg.c_o_map, l_i_size) - l_i_size;
+			c_o_channel.truncate(l_i_size);	// the zeros mapped after it mark the end
+		}
+		p_o_seg.c_o_map = c_o_channel.map(MapMode.READ_WRITE, 0, Math.max(c_i_segmentSize, l_i_size));
+	}
+
+	/** @return end of the bytes that are not zero after the position, the position if all are zero */
+	private static int lastNonZero(MappedByteBuffer p_o_map, int p_i_pos){
+		int r_i_end = p_i_pos, l_i_pos = p_i_pos;
+		for (final int l_i_longs = p_o_map.capacity() - 7; l_i_pos < l_i_longs; l_i_pos += 8) {
+			if (p_o_map.getLong(l_i_pos) != 0)
+				r_i_end = l_i_pos + 8;
+		}
+		for (; l_i_pos < p_o_map.capacity(); l_i_pos++) {
+			if (p_o_map.get(l_i_pos) != 0)
+				r_i_end = l_i_pos + 1;
+		}
+		return r_i_end;
+	}
+
+	/**
+	 * Index the records from the start of the segment until the end of the mapping or a record is incomplete.
+	 * @param p_fl_verify check the CRC32 of the records
+	 * @return size of the complete records
+	 */
+	private int scan(Segment p_o_seg, boolean p_fl_verify){
+		final MappedByteBuffer l_o_map = p_o_seg.c_o_map;
+		final int l_i_capacity = l_o_map.capacity();
+		p_o_seg.c_i_size = p_o_seg.c_i_count = p_o_seg.c_i_slots = 0;
+		while (l_i_capacity - p_o_seg.c_i_size > HEADER) {
+			final int l_i_len = l_o_map.getInt(p_o_seg.c_i_size);
+			if (l_i_len <= 0 || l_i_len > l_i_capacity - p_o_seg.c_i_size - HEADER)
+				break;
+			if (p_fl_verify && l_o_map.getInt(p_o_seg.c_i_size + 4) != this.checksum(l_o_map, p_o_seg.c_i_size + HEADER, l_i_len))
+				break;
+			p_o_seg.add(l_i_len);
+		}
+		return p_o_seg.c_i_size;
+	}
+
+	/** Index file: interval, count, size, then the indexed positions */
+	private void writeIndex(Segment p_o_seg) throws IOException {
+		final ByteBuffer l_o_buf = ByteBuffer.allocate(12 + 4 * p_o_seg.c_i_slots);
+		l_o_buf.putInt(c_i_interval).putInt(p_o_seg.c_i_count).putInt(p_o_seg.c_i_size);
+		l_o_buf.asIntBuffer().put(p_o_seg.c_a_index, 0, p_o_seg.c_i_slots);
+		final FileChannel l_o_channel = FileChannel.open(this.file(p_o_seg.c_l_base, INDEX_SUFFIX).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			while (l_o_buf.hasRemaining())
+				l_o_channel.write(l_o_buf);
+			l_o_channel.force(false);
+		} finally {
+			l_o_channel.close();
+		}
+	}
+
+	/** @return false if the index file is missing or does not match the segment, it is rebuilt by a scan */
+	private boolean readIndex(Segment p_o_seg) throws IOException {
+		final File l_o_file = this.file(p_o_seg.c_l_base, INDEX_SUFFIX);
+		if (!l_o_file.isFile() || l_o_file.length() < 12)
+			return false;
+		final FileChannel l_o_channel = FileChannel.open(l_o_file.toPath(), StandardOpenOption.READ);
+		try {
+			final ByteBuffer l_o_buf = ByteBuffer.allocate((int) l_o_channel.size());
+			while (l_o_buf.hasRemaining() && l_o_channel.read(l_o_buf) != -1);
+			l_o_buf.flip();
+			final int l_i_interval = l_o_buf.getInt(), l_i_count = l_o_buf.getInt(), l_i_size = l_o_buf.getInt();
+			final int l_i_slots = (l_i_count + c_i_interval - 1) / c_i_interval;
+			if (l_i_interval != c_i_interval || l_i_size != p_o_seg.c_o_map.capacity() || l_o_buf.remaining() != 4 * l_i_slots)
+				return false;
+			p_o_seg.c_a_index = new int[Math.max(l_i_slots, 1)];
+			l_o_buf.asIntBuffer().get(p_o_seg.c_a_index, 0, l_i_slots);
+			p_o_seg.c_i_slots = l_i_slots;
+			p_o_seg.c_i_count = l_i_count;
+			p_o_seg.c_i_size = l_i_size;
+			return true;
+		} finally {
+			l_o_channel.close();
+		}
+	}
+
+	/** Receiver of the records replayed by {@link PacketLog#replay(long, Visitor)} */
+	public interface Visitor {
+		/**
+		 * @param p_o_record the encoded record between position and limit, valid during the call only
+		 * @return false to stop the replay
+		 */
+		boolean visit(long p_l_number, ByteBuffer p_o_record);
+	}
+
+	/** Records of a segment file and the positions of every interval-th record */
+	private final class Segment {
+		private final long c_l_base;
+		private MappedByteBuffer c_o_map;
+		private int c_i_size;
+		private int c_i_count;
+		private int[] c_a_index = new int[16];
+		private int c_i_slots;
+
+		Segment(long p_l_base){
+			this.c_l_base = p_l_base;
+		}
+
+		/** Account a record of the length written at the size */
+		void add(int p_i_len){
+			if (c_i_count % c_i_interval == 0) {
+				if (c_i_slots == c_a_index.length)
+					c_a_index = Arrays.copyOf(c_a_index, c_i_slots << 1);
+				c_a_index[c_i_slots++] = c_i_size;
+			}
+			c_i_size += HEADER + p_i_len;
+			c_i_count++;
+		}
+
+		/** Position of the header of the record, skipping less than an interval of records from the indexed one */
+		int position(long p_l_number){
+			final int l_i_rel = (int) (p_l_number - c_l_base);
+			if (l_i_rel == c_i_count)
+				return c_i_size;
+			int r_i_pos = c_a_index[l_i_rel / c_i_interval];
+			for (int i = l_i_rel % c_i_interval; i > 0; i--)
+				r_i_pos += HEADER + c_o_map.getInt(r_i_pos);
+			return r_i_pos;
+		}
+	}
+
+	/** Sequential reader of decoded records, from segment to segment without the index */
+	private final class Cursor implements Iterator<Packet> {
+		private long c_l_next;
+		private Segment c_o_seg;
+		private ByteBuffer c_o_buf;
+		private int c_i_pos;
+
+		Cursor(long p_l_from){
+			this.c_l_next = p_l_from;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !c_fl_closed && c_l_next < PacketLog.this.getCount();
+		}
+
+		@Override
+		public Packet next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException();
+			if (c_o_seg == null || c_l_next == c_o_seg.c_l_base + c_o_seg.c_i_count) {
+				c_o_seg = PacketLog.this.find(c_l_next);
+				c_o_buf = c_o_seg.c_o_map.asReadOnlyBuffer();
+				c_i_pos = c_o_seg.position(c_l_next);
+			}
+			final byte[] l_a_buf = new byte[c_o_buf.getInt(c_i_pos)];
+			c_o_buf.limit(c_i_pos + HEADER + l_a_buf.length).position(c_i_pos + HEADER);
+			c_o_buf.get(l_a_buf);
+			c_o_buf.limit(c_o_buf.capacity());
+			c_i_pos += HEADER + l_a_buf.length;
+			c_l_next++;
+			return Packet.fromBytes(l_a_buf, 0, l_a_buf.length);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("PacketLog is append-only");
+		}
+	}
+}
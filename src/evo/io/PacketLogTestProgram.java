@@ -0,0 +1,89 @@
+package evo.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import evo.Packet;
+import evo.PacketCodec;
+
+/**
+ * Appends across the end of a segment of {@link PacketLog}.<br/>
+ * A record larger than the buffer of the Jackson generator, encoded past the end of the segment, must roll the log to a new segment,
+ * then every record must be read back, after the log is opened again too. A record larger than a segment must be refused.
+ */
+public class PacketLogTestProgram {
+
+	private static final int SEGMENT_SIZE = 30000;
+
+	public static void main(String[] args) throws IOException {
+		for (PacketCodec l_o_codec : new PacketCodec[]{PacketCodec.JSON, PacketCodec.BINARY}) {
+			final File l_o_dir = Files.createTempDirectory("packetlog").toFile();
+			try {
+				run(l_o_dir, l_o_codec);
+			} finally {
+				for (File l_o_file : l_o_dir.listFiles())
+					l_o_file.delete();
+				l_o_dir.delete();
+			}
+		}
+		System.out.println("PacketLogTestProgram: OK");
+	}
+
+	private static void run(File p_o_dir, PacketCodec p_o_codec) throws IOException {
+		final String l_s_large = fill('x', 20 * 1024);
+		PacketLog l_o_log = new PacketLog(p_o_dir, p_o_codec, SEGMENT_SIZE);
+		try {
+			int l_i_count = 0;
+			while (l_i_count < 20)	// about 20 KB of the first segment
+				l_o_log.append(record(l_i_count++, fill('s', 1000)));
+			check(l_o_log.getSegmentCount() == 1, p_o_codec.getName() + ": small records in one segment");
+			l_o_log.append(record(l_i_count++, l_s_large));	// re-encoded, across the end of the segment
+			check(l_o_log.getSegmentCount() == 2, p_o_codec.getName() + ": large record rolled to a new segment");
+			l_o_log.append(record(l_i_count++, "after"));
+			try {
+				l_o_log.append(record(l_i_count, fill('y', SEGMENT_SIZE)));
+				check(false, p_o_codec.getName() + ": record larger than a segment accepted");
+			} catch (IOException e) {	// expected
+			}
+			check(l_o_log.getCount() == l_i_count, p_o_codec.getName() + ": count " + l_o_log.getCount());
+			verify(l_o_log, l_i_count, l_s_large, p_o_codec);
+			l_o_log.close();
+
+			l_o_log = new PacketLog(p_o_dir, p_o_codec, SEGMENT_SIZE);
+			check(l_o_log.getTruncated() == 0, p_o_codec.getName() + ": nothing truncated on open");
+			verify(l_o_log, l_i_count, l_s_large, p_o_codec);
+		} finally {
+			l_o_log.close();
+		}
+	}
+
+	/** A Packet put key by key, so it is encoded again when appended */
+	private static Packet record(int p_i_number, String p_s_text) {
+		final Packet r_o_pack = new Packet();
+		r_o_pack.put("number", p_i_number);
+		r_o_pack.put("text", p_s_text);
+		return r_o_pack;
+	}
+
+	private static void verify(PacketLog p_o_log, int p_i_count, String p_s_large, PacketCodec p_o_codec) {
+		for (int i = 0; i < p_i_count; i++) {
+			final Packet l_o_pack = p_o_log.get(i);
+			check(l_o_pack.getInt("number", -1) == i, p_o_codec.getName() + ": record " + i + " is " + l_o_pack.getInt("number", -1));
+		}
+		check(p_s_large.equals(p_o_log.get(20).getString("text")), p_o_codec.getName() + ": large record read back");
+		check("after".equals(p_o_log.get(21).getString("text")), p_o_codec.getName() + ": record after the roll read back");
+	}
+
+	private static String fill(char p_c_char, int p_i_len) {
+		final char[] l_a_chars = new char[p_i_len];
+		Arrays.fill(l_a_chars, p_c_char);
+		return new String(l_a_chars);
+	}
+
+	private static void check(boolean p_fl_ok, String p_s_case) {
+		if (!p_fl_ok)
+			throw new AssertionError(p_s_case);
+	}
+}
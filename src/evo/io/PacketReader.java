@@ -0,0 +1,349 @@
+package evo.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import evo.Packet;
+
+/**
+ * Read a stream of Packets delimited by a {@link Framing}, one record at a time.<br/>
+ * The stream is read through one buffer reused across records, each record is copied once to an array owned by its Packet,
+ * so memory depends on the largest record, not on the length of the stream.
+ * The records are split from the stream by a single thread, while decoding may run in parallel, see {@link #stream(boolean)}.
+ * @usage
+ * <PRE>
+ * {@code
+ * PacketReader reader = new PacketReader(new FileInputStream(file), Framing.NDJSON);
+ * try {
+ * 	while (reader.hasNext())
+ * 		process(reader.next());
+ * } finally {
+ * 	reader.close();
+ * }
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) A reader is not thread-safe, except the Spliterator handed to a parallel Stream.
+ * 2) Failures of the stream are thrown as {@link UncheckedIOException} by the Iterator and Stream methods.
+ * </PRE>
+ */
+public class PacketReader implements Iterator<Packet>, Iterable<Packet>, Closeable {
+
+	private static final int INITIAL_BUFFER = 8 * 1024;
+	/** Default limit of a record, protects from a stream without delimiters */
+	public static final int DEFAULT_MAX_RECORD = 64 * 1024 * 1024;
+	/** Records per split batch grow by this step, like {@link java.util.Spliterators.AbstractSpliterator} */
+	private static final int BATCH_UNIT = 64;
+	private static final int MAX_BATCH = 1 << 16;
+
+	private final InputStream c_o_in;
+	private final Framing c_o_framing;
+	private int c_i_maxRecord = DEFAULT_MAX_RECORD;
+
+	/** Read buffer, bytes between position and limit are not consumed yet */
+	private byte[] c_a_buf = new byte[INITIAL_BUFFER];
+	private int c_i_pos;
+	private int c_i_limit;
+	private boolean c_fl_eof;
+	/** Record read ahead by {@link #hasNext()} */
+	private byte[] c_a_next;
+	private long c_l_count;
+
+	public PacketReader(InputStream p_o_in, Framing p_o_framing){
+		this.c_o_in = p_o_in;
+		this.c_o_framing = p_o_framing;
+	}
+	/** The channel must be blocking */
+	public PacketReader(ReadableByteChannel p_o_channel, Framing p_o_framing){
+		this(Channels.newInputStream(p_o_channel), p_o_framing);
+	}
+
+//		GETTER & SETTER		\\
+	public Framing getFraming()		{return this.c_o_framing;}
+	/** Number of records returned so far */
+	public long getCount()			{return this.c_l_count;}
+	/**
+	 * @param p_i_max maximum length of a record in bytes, a longer record fails the reader
+	 */
+	public PacketReader setMaxRecordLength(int p_i_max){
+		this.c_i_maxRecord = p_i_max;
+		return this;
+	}
+
+//		Records		\\
+	/**
+	 * Read the next record without decoding it.
+	 * @return the document, owned by the caller; null at the end of the stream
+	 * @throws IOException failed on reading, or the record is malformed or too long
+	 */
+	public byte[] nextRecord() throws IOException {
+		final byte[] r_a_rec;
+		if (c_a_next != null) {
+			r_a_rec = c_a_next;
+			c_a_next = null;
+		} else
+			r_a_rec = c_o_framing == Framing.NDJSON? this.readLine() : this.readPrefixed();
+		if (r_a_rec != null)
+			c_l_count++;
+		return r_a_rec;
+	}
+
+	/**
+	 * Decode a record, override it to create Packets of a subclass or with another core.
+	 * Called concurrently when the Stream is parallel.
+	 */
+	protected Packet createPacket(byte[] p_a_rec){
+		return Packet.fromBytes(p_a_rec);
+	}
+
+	private byte[] readLine() throws IOException {
+		int l_i_scan = c_i_pos;
+		while (true) {
+			for (; l_i_scan < c_i_limit; l_i_scan++) {
+				if (c_a_buf[l_i_scan] == '\n') {
+					final byte[] r_a_rec = this.copyLine(c_i_pos, l_i_scan);
+					c_i_pos = l_i_scan + 1;
+					if (r_a_rec != null)
+						return r_a_rec;
+				}
+			}
+			final int l_i_scanned = l_i_scan - c_i_pos;
+			if (!this.fill(l_i_scanned + 1)) {	// the last line may miss the delimiter
+				final byte[] r_a_rec = this.copyLine(c_i_pos, c_i_limit);
+				c_i_pos = c_i_limit;
+				return r_a_rec;
+			}
+			l_i_scan = c_i_pos + l_i_scanned;	// the buffer may be compacted
+		}
+	}
+
+	/** Copy the line without the trailing '\r', null if blank */
+	private byte[] copyLine(int p_i_start, int p_i_end){
+		int l_i_start = p_i_start, l_i_end = p_i_end;
+		while (l_i_start < l_i_end && isBlank(c_a_buf[l_i_start]))
+			l_i_start++;
+		while (l_i_end > l_i_start && isBlank(c_a_buf[l_i_end - 1]))
+			l_i_end--;
+		return l_i_start < l_i_end? Arrays.copyOfRange(c_a_buf, l_i_start, l_i_end) : null;
+	}
+
+	private static boolean isBlank(byte p_b_val){
+		return p_b_val == ' ' || p_b_val == '\t' || p_b_val == '\r' || p_b_val == '\n';
+	}
+
+	private byte[] readPrefixed() throws IOException {
+		if (!this.fill(4)) {
+			if (c_i_limit > c_i_pos)
+				throw new EOFException("Truncated length prefix");
+			return null;
+		}
+		final int l_i_len = ((c_a_buf[c_i_pos] & 0xFF) << 24) | ((c_a_buf[c_i_pos + 1] & 0xFF) << 16)
+				| ((c_a_buf[c_i_pos + 2] & 0xFF) << 8) | (c_a_buf[c_i_pos + 3] & 0xFF);
+		if (l_i_len < 0 || l_i_len > c_i_maxRecord)
+			throw new IOException("Invalid record length: " + l_i_len);
+		c_i_pos += 4;
+		final byte[] r_a_rec = new byte[l_i_len];
+		final int l_i_buffered = Math.min(l_i_len, c_i_limit - c_i_pos);
+		System.arraycopy(c_a_buf, c_i_pos, r_a_rec, 0, l_i_buffered);
+		c_i_pos += l_i_buffered;
+		for (int l_i_off = l_i_buffered, l_i_read; l_i_off < l_i_len; l_i_off += l_i_read) {	// large records bypass the buffer
+			l_i_read = c_o_in.read(r_a_rec, l_i_off, l_i_len - l_i_off);
+			if (l_i_read < 0)
+				throw new EOFException("Truncated record, expected " + l_i_len + " bytes");
+		}
+		return r_a_rec;
+	}
+
+	/**
+	 * Make at least the given number of bytes available from the position, compacting or growing the buffer.
+	 * @return false if the stream ended before
+	 */
+	private boolean fill(int p_i_need) throws IOException {
+		if (c_i_limit - c_i_pos >= p_i_need)
+			return true;
+		if (p_i_need > c_i_maxRecord + 1)
+			throw new IOException("Record exceeds " + c_i_maxRecord + " bytes");
+		if (c_i_pos > 0) {
+			System.arraycopy(c_a_buf, c_i_pos, c_a_buf, 0, c_i_limit - c_i_pos);
+			c_i_limit -= c_i_pos;
+			c_i_pos = 0;
+		}
+		if (p_i_need > c_a_buf.length)
+			c_a_buf = Arrays.copyOf(c_a_buf, Math.max(p_i_need, Math.min(c_a_buf.length << 1, c_i_maxRecord + 1)));
+		while (c_i_limit < p_i_need) {
+			if (c_fl_eof)
+				return false;
+			final int l_i_read = c_o_in.read(c_a_buf, c_i_limit, c_a_buf.length - c_i_limit);
+			if (l_i_read < 0)
+				c_fl_eof = true;
+			else
+				c_i_limit += l_i_read;
+		}
+		return true;
+	}
+
+//		Iterator		\\
+	/** @throws UncheckedIOException failed on reading */
+	@Override
+	public boolean hasNext() {
+		if (c_a_next == null) {
+			try {
+				c_a_next = c_o_framing == Framing.NDJSON? this.readLine() : this.readPrefixed();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return c_a_next != null;
+	}
+
+	/** @throws UncheckedIOException failed on reading */
+	@Override
+	public Packet next() {
+		if (!this.hasNext())
+			throw new NoSuchElementException();
+		return this.createPacket(this.nextRecordUnchecked());
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/** The reader itself, it can be iterated once */
+	@Override
+	public Iterator<Packet> iterator() {
+		return this;
+	}
+
+	private byte[] nextRecordUnchecked(){
+		try {
+			return this.nextRecord();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+//		Stream		\\
+	/**
+	 * Spliterator of the remaining Packets. Splits are batches of raw records, decoded by the thread consuming the batch.
+	 */
+	@Override
+	public Spliterator<Packet> spliterator() {
+		return new RecordSpliterator();
+	}
+
+	/**
+	 * Stream of the remaining Packets, closing the stream closes the reader.
+	 * @param p_fl_parallel true to decode the records in parallel, the order of records is kept
+	 */
+	public Stream<Packet> stream(boolean p_fl_parallel){
+		return StreamSupport.stream(this.spliterator(), p_fl_parallel).onClose(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					PacketReader.this.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+	}
+
+	@Override
+	public void close() throws IOException {
+		c_a_next = null;
+		c_o_in.close();
+	}
+
+	/** Spliterator over the reader, splitting off batches of growing size */
+	private final class RecordSpliterator implements Spliterator<Packet> {
+		private int c_i_batch = BATCH_UNIT;
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Packet> p_o_action) {
+			final byte[] l_a_rec = PacketReader.this.nextRecordUnchecked();
+			if (l_a_rec == null)
+				return false;
+			p_o_action.accept(PacketReader.this.createPacket(l_a_rec));
+			return true;
+		}
+
+		@Override
+		public Spliterator<Packet> trySplit() {
+			final byte[][] l_a_batch = new byte[c_i_batch][];
+			int l_i_size = 0;
+			for (byte[] l_a_rec; l_i_size < l_a_batch.length && (l_a_rec = PacketReader.this.nextRecordUnchecked()) != null;)
+				l_a_batch[l_i_size++] = l_a_rec;
+			if (l_i_size == 0)
+				return null;
+			c_i_batch = Math.min(c_i_batch + BATCH_UNIT, MAX_BATCH);
+			return new BatchSpliterator(l_a_batch, 0, l_i_size);
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+	}
+
+	/** Records already read, decoded on advance */
+	private final class BatchSpliterator implements Spliterator<Packet> {
+		private final byte[][] c_a_recs;
+		private int c_i_index;
+		private final int c_i_end;
+
+		BatchSpliterator(byte[][] p_a_recs, int p_i_start, int p_i_end){
+			this.c_a_recs = p_a_recs;
+			this.c_i_index = p_i_start;
+			this.c_i_end = p_i_end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Packet> p_o_action) {
+			if (c_i_index >= c_i_end)
+				return false;
+			final byte[] l_a_rec = c_a_recs[c_i_index];
+			c_a_recs[c_i_index++] = null;	// release the record with its Packet
+			p_o_action.accept(PacketReader.this.createPacket(l_a_rec));
+			return true;
+		}
+
+		@Override
+		public Spliterator<Packet> trySplit() {
+			final int l_i_mid = (c_i_index + c_i_end) >>> 1;
+			if (l_i_mid <= c_i_index)
+				return null;
+			final Spliterator<Packet> r_o_split = new BatchSpliterator(c_a_recs, c_i_index, l_i_mid);
+			c_i_index = l_i_mid;
+			return r_o_split;
+		}
+
+		@Override
+		public long estimateSize() {
+			return c_i_end - c_i_index;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | SIZED | SUBSIZED;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package evo.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import evo.Packet;
+import evo.PacketCodec;
+
+/**
+ * Write a stream of Packets delimited by a {@link Framing}.<br/>
+ * Packets are encoded straight into one buffer reused across records, length prefixes are patched in place,
+ * and the buffer is written to the stream in blocks, so no array is allocated per record.
+ * @usage
+ * <PRE>
+ * {@code
+ * PacketWriter writer = new PacketWriter(new FileOutputStream(file), Framing.LENGTH_PREFIXED, PacketCodec.BINARY);
+ * try {
+ * 	for (Packet packet : packets)
+ * 		writer.write(packet);
+ * } finally {
+ * 	writer.close();
+ * }
+ * }
+ * </PRE>
+ * @rule
+ * <PRE>
+ * 1) A writer is not thread-safe.
+ * 2) Records are buffered, call {@link #flush()} to push them to the stream.
+ * </PRE>
+ */
+public class PacketWriter implements Closeable, Flushable {
+
+	private static final int INITIAL_BUFFER = 16 * 1024;
+	/** The buffer is written to the stream once it holds this many bytes */
+	private static final int FLUSH_THRESHOLD = 8 * 1024;
+	/** Buffers grown larger than this by a large record are not kept */
+	private static final int MAX_KEPT_BUFFER = 1024 * 1024;
+
+	private final OutputStream c_o_out;
+	private final Framing c_o_framing;
+	private final PacketCodec c_o_codec;
+	private final RecordBuffer c_o_buf = new RecordBuffer();
+	private long c_l_count;
+
+	/** Same as {@link #PacketWriter(OutputStream, Framing, PacketCodec)} with JSON records */
+	public PacketWriter(OutputStream p_o_out, Framing p_o_framing){
+		this(p_o_out, p_o_framing, PacketCodec.JSON);
+	}
+	/**
+	 * @param p_o_codec format of the records, must be {@link PacketCodec#JSON} for {@link Framing#NDJSON}
+	 */
+	public PacketWriter(OutputStream p_o_out, Framing p_o_framing, PacketCodec p_o_codec){
+		if (p_o_framing == Framing.NDJSON && p_o_codec != PacketCodec.JSON)
+			throw new IllegalArgumentException("NDJSON records must be encoded by PacketCodec.JSON, not " + p_o_codec);
+		this.c_o_out = p_o_out;
+		this.c_o_framing = p_o_framing;
+		this.c_o_codec = p_o_codec;
+	}
+	/** The channel must be blocking */
+	public PacketWriter(WritableByteChannel p_o_channel, Framing p_o_framing, PacketCodec p_o_codec){
+		this(Channels.newOutputStream(p_o_channel), p_o_framing, p_o_codec);
+	}
+
+//		GETTER		\\
+	public Framing getFraming()		{return this.c_o_framing;}
+	public PacketCodec getCodec()	{return this.c_o_codec;}
+	/** Number of records written so far */
+	public long getCount()			{return this.c_l_count;}
+
+//		Methods		\\
+	/**
+	 * Append a record. Nothing is written if encoding fails.
+	 * @throws IOException failed on encoding or on writing the buffered records
+	 */
+	public void write(Packet p_o_pack) throws IOException {
+		final int l_i_start = c_o_buf.c_i_count;
+		try {
+			if (c_o_framing == Framing.LENGTH_PREFIXED)
+				c_o_buf.skip(4);
+			p_o_pack.writeTo(c_o_buf, c_o_codec);
+			if (c_o_framing == Framing.LENGTH_PREFIXED)
+				c_o_buf.putInt(l_i_start, c_o_buf.c_i_count - l_i_start - 4);
+			else
+				c_o_buf.endLine(l_i_start);
+		} catch (IOException e) {
+			c_o_buf.c_i_count = l_i_start;
+			throw e;
+		} catch (RuntimeException e) {
+			c_o_buf.c_i_count = l_i_start;
+			throw e;
+		}
+		c_l_count++;
+		if (c_o_buf.c_i_count >= FLUSH_THRESHOLD)
+			this.drain();
+	}
+
+	/** Write the buffered records and flush the stream */
+	@Override
+	public void flush() throws IOException {
+		this.drain();
+		c_o_out.flush();
+	}
+
+	/** Flush then close the stream */
+	@Override
+	public void close() throws IOException {
+		try {
+			this.flush();
+		} finally {
+			c_o_out.close();
+		}
+	}
+
+	private void drain() throws IOException {
+		if (c_o_buf.c_i_count > 0) {
+			c_o_out.write(c_o_buf.c_a_buf, 0, c_o_buf.c_i_count);
+			c_o_buf.c_i_count = 0;
+		}
+		if (c_o_buf.c_a_buf.length > MAX_KEPT_BUFFER)
+			c_o_buf.c_a_buf = new byte[INITIAL_BUFFER];
+	}
+
+	/** Growable buffer the Packets are encoded into, flushing it is left to the writer */
+	private static final class RecordBuffer extends OutputStream {
+		private byte[] c_a_buf = new byte[INITIAL_BUFFER];
+		private int c_i_count;
+
+		private void ensure(int p_i_more){
+			if (c_i_count + p_i_more > c_a_buf.length)
+				c_a_buf = Arrays.copyOf(c_a_buf, Math.max(c_a_buf.length << 1, c_i_count + p_i_more));
+		}
+
+		void skip(int p_i_len){
+			this.ensure(p_i_len);
+			c_i_count += p_i_len;
+		}
+
+		/** Big-endian int at the index */
+		void putInt(int p_i_index, int p_i_val){
+			c_a_buf[p_i_index] = (byte) (p_i_val >>> 24);
+			c_a_buf[p_i_index + 1] = (byte) (p_i_val >>> 16);
+			c_a_buf[p_i_index + 2] = (byte) (p_i_val >>> 8);
+			c_a_buf[p_i_index + 3] = (byte) p_i_val;
+		}
+
+		/**
+		 * Terminate the NDJSON record from the index.
+		 * Sources spliced as is may be indented, line breaks of valid JSON are whitespace outside strings, so they are replaced by spaces.
+		 */
+		void endLine(int p_i_start){
+			for (int i = p_i_start; i < c_i_count; i++) {
+				if (c_a_buf[i] == '\n' || c_a_buf[i] == '\r')
+					c_a_buf[i] = ' ';
+			}
+			this.write('\n');
+		}
+
+		@Override
+		public void write(int p_i_byte) {
+			this.ensure(1);
+			c_a_buf[c_i_count++] = (byte) p_i_byte;
+		}
+
+		@Override
+		public void write(byte[] p_a_buf, int p_i_off, int p_i_len) {
+			this.ensure(p_i_len);
+			System.arraycopy(p_a_buf, p_i_off, c_a_buf, c_i_count, p_i_len);
+			c_i_count += p_i_len;
+		}
+
+		/** Generators flush on close, records are flushed by the writer */
+		@Override
+		public void flush() {
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package evo.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import evo.PacketCodec;
+import evo.util.Histogram;
+
+/**
+ * Default {@link PacketMetrics}, a thread-safe in-memory registry of counters and {@link Histogram Histograms}.<br/>
+ * Recording is lock-free and does not allocate once a key, type or codec was seen.
+ * The registry is scraped by the getters or by {@link #report()}.
+ * @usage
+ * <PRE>
+ * {@code
+ * InMemoryPacketMetrics metrics = new InMemoryPacketMetrics();
+ * Packet.setMetrics(metrics);
+ * ...
+ * long count = metrics.getDeserializations("key", MyObject.class);
+ * long p99 = metrics.getDeserializeLatency(MyObject.class).getValueAtPercentile(99);
+ * }
+ * </PRE>
+ */
+public class InMemoryPacketMetrics implements PacketMetrics {
+
+	/** Lazy deserializations by key then type */
+	private final ConcurrentMap<String, ConcurrentMap<Class<?>, AtomicLong>> cm_o_deserializations = new ConcurrentHashMap<String, ConcurrentMap<Class<?>, AtomicLong>>();
+	/** Deserialization latency in nanoseconds by type */
+	private final ConcurrentMap<Class<?>, Histogram> cm_o_deserializeNanos = new ConcurrentHashMap<Class<?>, Histogram>();
+	/** Document sizes and latencies by codec name */
+	private final ConcurrentMap<String, Histogram> cm_o_decodeBytes = new ConcurrentHashMap<String, Histogram>();
+	private final ConcurrentMap<String, Histogram> cm_o_decodeNanos = new ConcurrentHashMap<String, Histogram>();
+	private final ConcurrentMap<String, Histogram> cm_o_encodeBytes = new ConcurrentHashMap<String, Histogram>();
+	private final ConcurrentMap<String, Histogram> cm_o_encodeNanos = new ConcurrentHashMap<String, Histogram>();
+	/** Failures by operation */
+	private final ConcurrentMap<String, AtomicLong> cm_o_failures = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicReference<Throwable> c_o_lastFailure = new AtomicReference<Throwable>();
+
+//		PacketMetrics		\\
+	@Override
+	public void onDeserialize(String p_s_key, Class<?> p_cls_type, long p_l_nanos) {
+		ConcurrentMap<Class<?>, AtomicLong> lm_o_types = cm_o_deserializations.get(p_s_key);
+		if (lm_o_types == null)
+			lm_o_types = cache(cm_o_deserializations, p_s_key, new ConcurrentHashMap<Class<?>, AtomicLong>());
+		counter(lm_o_types, p_cls_type).incrementAndGet();
+		histogram(cm_o_deserializeNanos, p_cls_type).record(p_l_nanos);
+	}
+
+	@Override
+	public void onDecode(PacketCodec p_o_codec, int p_i_bytes, long p_l_nanos) {
+		final String l_s_codec = p_o_codec.getName();
+		histogram(cm_o_decodeBytes, l_s_codec).record(p_i_bytes);
+		histogram(cm_o_decodeNanos, l_s_codec).record(p_l_nanos);
+	}
+
+	@Override
+	public void onEncode(PacketCodec p_o_codec, int p_i_bytes, long p_l_nanos) {
+		final String l_s_codec = p_o_codec.getName();
+		histogram(cm_o_encodeBytes, l_s_codec).record(p_i_bytes);
+		histogram(cm_o_encodeNanos, l_s_codec).record(p_l_nanos);
+	}
+
+	@Override
+	public void onFailure(String p_s_operation, String p_s_key, Throwable p_o_error) {
+		counter(cm_o_failures, p_s_operation).incrementAndGet();
+		c_o_lastFailure.set(p_o_error);
+	}
+
+//		GETTER - Metrics		\\
+	/** Number of lazy deserializations of the key to the type */
+	public long getDeserializations(String p_s_key, Class<?> p_cls_type){
+		final Map<Class<?>, AtomicLong> lm_o_types = cm_o_deserializations.get(p_s_key);
+		final AtomicLong l_o_count = lm_o_types!=null? lm_o_types.get(p_cls_type) : null;
+		return l_o_count!=null? l_o_count.get() : 0;
+	}
+	/** Copy of the lazy deserialization counters, by key then type */
+	public Map<String, Map<Class<?>, Long>> getDeserializations(){
+		final Map<String, Map<Class<?>, Long>> rm_o_counts = new TreeMap<String, Map<Class<?>, Long>>();
+		for (Map.Entry<String, ConcurrentMap<Class<?>, AtomicLong>> l_o_key : cm_o_deserializations.entrySet()) {
+			final Map<Class<?>, Long> lm_o_types = new HashMap<Class<?>, Long>();
+			for (Map.Entry<Class<?>, AtomicLong> l_o_type : l_o_key.getValue().entrySet())
+				lm_o_types.put(l_o_type.getKey(), l_o_type.getValue().get());
+			rm_o_counts.put(l_o_key.getKey(), lm_o_types);
+		}
+		return rm_o_counts;
+	}
+	/** Live histogram of the deserialization latency in nanoseconds */
+	public Histogram getDeserializeLatency(Class<?> p_cls_type)		{return histogram(cm_o_deserializeNanos, p_cls_type);}
+	/** Live histogram of the decoded document sizes in bytes */
+	public Histogram getDecodeBytes(PacketCodec p_o_codec)			{return histogram(cm_o_decodeBytes, p_o_codec.getName());}
+	/** Live histogram of the decode latency in nanoseconds */
+	public Histogram getDecodeLatency(PacketCodec p_o_codec)		{return histogram(cm_o_decodeNanos, p_o_codec.getName());}
+	/** Live histogram of the encoded document sizes in bytes */
+	public Histogram getEncodeBytes(PacketCodec p_o_codec)			{return histogram(cm_o_encodeBytes, p_o_codec.getName());}
+	/** Live histogram of the encode latency in nanoseconds */
+	public Histogram getEncodeLatency(PacketCodec p_o_codec)		{return histogram(cm_o_encodeNanos, p_o_codec.getName());}
+	/** Number of failures of the operation, see {@link PacketMetrics#onFailure(String, String, Throwable)} */
+	public long getFailures(String p_s_operation){
+		final AtomicLong l_o_count = cm_o_failures.get(p_s_operation);
+		return l_o_count!=null? l_o_count.get() : 0;
+	}
+	/** @return null if nothing failed */
+	public Throwable getLastFailure()	{return c_o_lastFailure.get();}
+
+//		Methods		\\
+	/** Clear all metrics */
+	public void reset(){
+		cm_o_deserializations.clear();
+		cm_o_deserializeNanos.clear();
+		cm_o_decodeBytes.clear();
+		cm_o_decodeNanos.clear();
+		cm_o_encodeBytes.clear();
+		cm_o_encodeNanos.clear();
+		cm_o_failures.clear();
+		c_o_lastFailure.set(null);
+	}
+
+	/**
+	 * Text dump of all metrics, one line per metric
+	 * <PRE>
+	 * deserialize key=... type=... count=...
+	 * deserialize.nanos type=... count=... mean=... p50=... p99=... p999=... max=...
+	 * decode.bytes codec=json count=...
+	 * failures operation=get count=...
+	 * </PRE>
+	 */
+	public String report(){
+		final StringBuilder l_o_out = new StringBuilder();
+		for (Map.Entry<String, Map<Class<?>, Long>> l_o_key : this.getDeserializations().entrySet()) {
+			for (Map.Entry<Class<?>, Long> l_o_type : l_o_key.getValue().entrySet())
+				l_o_out.append("deserialize key=").append(l_o_key.getKey())
+					.append(" type=").append(l_o_type.getKey().getName())
+					.append(" count=").append(l_o_type.getValue()).append('\n');
+		}
+		for (Map.Entry<Class<?>, Histogram> l_o_type : cm_o_deserializeNanos.entrySet())
+			l_o_out.append("deserialize.nanos type=").append(l_o_type.getKey().getName()).append(' ').append(l_o_type.getValue()).append('\n');
+		append(l_o_out, "decode.bytes", cm_o_decodeBytes);
+		append(l_o_out, "decode.nanos", cm_o_decodeNanos);
+		append(l_o_out, "encode.bytes", cm_o_encodeBytes);
+		append(l_o_out, "encode.nanos", cm_o_encodeNanos);
+		for (Map.Entry<String, AtomicLong> l_o_failure : new TreeMap<String, AtomicLong>(cm_o_failures).entrySet())
+			l_o_out.append("failures operation=").append(l_o_failure.getKey()).append(" count=").append(l_o_failure.getValue().get()).append('\n');
+		return l_o_out.toString();
+	}
+
+	@Override
+	public String toString() {
+		return this.report();
+	}
+
+	private static void append(StringBuilder p_o_out, String p_s_name, Map<String, Histogram> pm_o_codecs){
+		for (Map.Entry<String, Histogram> l_o_codec : new TreeMap<String, Histogram>(pm_o_codecs).entrySet())
+			p_o_out.append(p_s_name).append(" codec=").append(l_o_codec.getKey()).append(' ').append(l_o_codec.getValue()).append('\n');
+	}
+
+	private static <K> Histogram histogram(ConcurrentMap<K, Histogram> pm_o_histograms, K p_o_key){
+		final Histogram r_o_histogram = pm_o_histograms.get(p_o_key);
+		return r_o_histogram!=null? r_o_histogram : cache(pm_o_histograms, p_o_key, new Histogram());
+	}
+
+	private static <K> AtomicLong counter(ConcurrentMap<K, AtomicLong> pm_o_counters, K p_o_key){
+		final AtomicLong r_o_counter = pm_o_counters.get(p_o_key);
+		return r_o_counter!=null? r_o_counter : cache(pm_o_counters, p_o_key, new AtomicLong());
+	}
+
+	private static <K,V> V cache(ConcurrentMap<K, V> pm_o_cache, K p_o_key, V p_o_val){
+		final V l_o_exist = pm_o_cache.putIfAbsent(p_o_key, p_o_val);
+		return l_o_exist!=null? l_o_exist : p_o_val;
+	}
+}
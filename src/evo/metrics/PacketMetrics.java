@@ -0,0 +1,49 @@
+package evo.metrics;
+
+import evo.Packet;
+import evo.PacketCodec;
+
+/**
+ * Instrumentation SPI of {@link Packet}, installed by {@link Packet#setMetrics(PacketMetrics)}.<br/>
+ * Nothing is measured while no metrics is installed, the hooks are called synchronously by the thread doing the work,
+ * so implementations must be thread-safe and cheap.
+ * @usage
+ * <PRE>
+ * {@code
+ * InMemoryPacketMetrics metrics = new InMemoryPacketMetrics();
+ * Packet.setMetrics(metrics);
+ * ...
+ * System.out.println(metrics.report());
+ * }
+ * </PRE>
+ * @see InMemoryPacketMetrics
+ */
+public interface PacketMetrics {
+
+	/**
+	 * A lazy element was deserialized by a get method.
+	 * @param p_s_key key of the element
+	 * @param p_cls_type requested type, or the class of the result for dynamic deserializers
+	 * @param p_l_nanos elapsed time
+	 */
+	void onDeserialize(String p_s_key, Class<?> p_cls_type, long p_l_nanos);
+
+	/**
+	 * A document was decoded to a Packet, only its top level is decoded.
+	 * @param p_i_bytes size of the document
+	 */
+	void onDecode(PacketCodec p_o_codec, int p_i_bytes, long p_l_nanos);
+
+	/**
+	 * A Packet was encoded.
+	 * @param p_i_bytes size of the document, in chars for {@link Packet#serialize()}
+	 */
+	void onEncode(PacketCodec p_o_codec, int p_i_bytes, long p_l_nanos);
+
+	/**
+	 * An operation failed and was recovered by Packet, such as an element which can not be deserialized to the requested type.
+	 * @param p_s_operation name of the operation, such as "get", "decode", "transformCore"
+	 * @param p_s_key key of the element, null if the failure is not about an element
+	 */
+	void onFailure(String p_s_operation, String p_s_key, Throwable p_o_error);
+}
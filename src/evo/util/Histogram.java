@@ -0,0 +1,155 @@
+package evo.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, high dynamic range histogram of non-negative long values, such as latencies in nanoseconds or sizes in bytes.<br/>
+ * Values are counted in log-linear buckets, 32 buckets per power of two, so any recorded value is reported
+ * within 3% of its real value, from 0 up to Long.MAX_VALUE, with a fixed footprint.
+ * @usage
+ * <PRE>
+ * {@code
+ * Histogram histogram = new Histogram();
+ * histogram.record(System.nanoTime() - start);	// from any thread
+ * long p99 = histogram.getValueAtPercentile(99);
+ * }
+ * </PRE>
+ */
+public class Histogram {
+
+	/** log2 of the number of linear buckets below the first power of two */
+	private static final int SUB_BITS = 6;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int HALF_COUNT = SUB_COUNT >> 1;
+	/** Enough buckets for Long.MAX_VALUE */
+	private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+	private final AtomicLongArray c_a_counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong c_l_count = new AtomicLong();
+	private final AtomicLong c_l_sum = new AtomicLong();
+	private final AtomicLong c_l_min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong c_l_max = new AtomicLong(Long.MIN_VALUE);
+
+	/** Bucket of the value, values below {@link #SUB_COUNT} are exact */
+	private static int index(long p_l_val){
+		if (p_l_val < SUB_COUNT)
+			return (int) p_l_val;
+		final int l_i_shift = (63 - Long.numberOfLeadingZeros(p_l_val)) - (SUB_BITS - 1);
+		return l_i_shift * HALF_COUNT + (int) (p_l_val >>> l_i_shift);
+	}
+
+	/** Highest value counted by the bucket */
+	private static long highestValue(int p_i_index){
+		if (p_i_index < SUB_COUNT)
+			return p_i_index;
+		final int l_i_shift = p_i_index / HALF_COUNT - 1;
+		final long l_l_sub = p_i_index - l_i_shift * HALF_COUNT;
+		return ((l_l_sub + 1) << l_i_shift) - 1;
+	}
+
+//		Record		\\
+	/**
+	 * Record a value, negative values are recorded as 0.
+	 */
+	public void record(long p_l_val){
+		if (p_l_val < 0)
+			p_l_val = 0;
+		c_a_counts.incrementAndGet(index(p_l_val));
+		c_l_count.incrementAndGet();
+		c_l_sum.addAndGet(p_l_val);
+		for (long l_l_min = c_l_min.get(); p_l_val < l_l_min && !c_l_min.compareAndSet(l_l_min, p_l_val);)
+			l_l_min = c_l_min.get();
+		for (long l_l_max = c_l_max.get(); p_l_val > l_l_max && !c_l_max.compareAndSet(l_l_max, p_l_val);)
+			l_l_max = c_l_max.get();
+	}
+
+	/** Add all values recorded by another histogram */
+	public void add(Histogram p_o_other){
+		for (int i = 0; i < BUCKETS; i++) {
+			final long l_l_count = p_o_other.c_a_counts.get(i);
+			if (l_l_count != 0)
+				c_a_counts.addAndGet(i, l_l_count);
+		}
+		c_l_count.addAndGet(p_o_other.c_l_count.get());
+		c_l_sum.addAndGet(p_o_other.c_l_sum.get());
+		final long l_l_min = p_o_other.c_l_min.get(), l_l_max = p_o_other.c_l_max.get();
+		for (long l_l_cur = c_l_min.get(); l_l_min < l_l_cur && !c_l_min.compareAndSet(l_l_cur, l_l_min);)
+			l_l_cur = c_l_min.get();
+		for (long l_l_cur = c_l_max.get(); l_l_max > l_l_cur && !c_l_max.compareAndSet(l_l_cur, l_l_max);)
+			l_l_cur = c_l_max.get();
+	}
+
+	/** Clear all recorded values. Values recorded concurrently may be kept partially. */
+	public void reset(){
+		for (int i = 0; i < BUCKETS; i++)
+			c_a_counts.set(i, 0);
+		c_l_count.set(0);
+		c_l_sum.set(0);
+		c_l_min.set(Long.MAX_VALUE);
+		c_l_max.set(Long.MIN_VALUE);
+	}
+
+	/** Copy of the current values */
+	public Histogram snapshot(){
+		final Histogram r_o_copy = new Histogram();
+		r_o_copy.add(this);
+		return r_o_copy;
+	}
+
+	/**
+	 * Copy of the current values then clear them, for interval reporting.
+	 * Values recorded concurrently are kept by either this histogram or the copy.
+	 */
+	public Histogram snapshotAndReset(){
+		final Histogram r_o_copy = new Histogram();
+		for (int i = 0; i < BUCKETS; i++)
+			r_o_copy.c_a_counts.set(i, c_a_counts.getAndSet(i, 0));
+		r_o_copy.c_l_count.set(c_l_count.getAndSet(0));
+		r_o_copy.c_l_sum.set(c_l_sum.getAndSet(0));
+		r_o_copy.c_l_min.set(c_l_min.getAndSet(Long.MAX_VALUE));
+		r_o_copy.c_l_max.set(c_l_max.getAndSet(Long.MIN_VALUE));
+		return r_o_copy;
+	}
+
+//		Statistics		\\
+	public long getCount()		{return c_l_count.get();}
+	public long getSum()		{return c_l_sum.get();}
+	/** @return 0 if empty */
+	public long getMin()		{return c_l_count.get()==0? 0 : c_l_min.get();}
+	/** @return 0 if empty */
+	public long getMax()		{return c_l_count.get()==0? 0 : c_l_max.get();}
+	/** @return 0 if empty */
+	public double getMean(){
+		final long l_l_count = c_l_count.get();
+		return l_l_count==0? 0 : (double) c_l_sum.get() / l_l_count;
+	}
+
+	/**
+	 * @param p_d_percentile 0 to 100, such as 50, 99, 99.9
+	 * @return the highest value of the bucket reaching the percentile, not above the max; 0 if empty
+	 */
+	public long getValueAtPercentile(double p_d_percentile){
+		long l_l_total = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			l_l_total += c_a_counts.get(i);
+		if (l_l_total == 0)
+			return 0;
+		final long l_l_rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, p_d_percentile)) / 100 * l_l_total));
+		long l_l_seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			l_l_seen += c_a_counts.get(i);
+			if (l_l_seen >= l_l_rank)
+				return Math.min(highestValue(i), this.getMax());
+		}
+		return this.getMax();
+	}
+
+	/** count, mean, p50, p99, p999 and max */
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.1f p50=%d p99=%d p999=%d max=%d",
+				this.getCount(), this.getMean(),
+				this.getValueAtPercentile(50), this.getValueAtPercentile(99), this.getValueAtPercentile(99.9), this.getMax());
+	}
+}
@@ -0,0 +1,57 @@
+package evo.util;
+
+/**
+ * A started measurement of {@link System#nanoTime()}, recorded into a {@link Histogram} when it is closed.<br/>
+ * Created by {@link TimerRegistry#start(String)}, used by one thread, usually as a try-with-resources scope.
+ * @usage
+ * <PRE>
+ * {@code
+ * try (Stopwatch watch = TimerRegistry.getDefault().start("decode")) {
+ * 	packet = Packet.fromBytes(bytes);
+ * }
+ * }
+ * </PRE>
+ */
+public final class Stopwatch implements AutoCloseable {
+
+	private final Histogram c_o_histogram;
+	private final long c_l_start;
+	private long c_l_elapsed = -1;
+
+	/**
+	 * @param p_o_histogram recorder of the elapsed time, null to record nothing
+	 */
+	Stopwatch(Histogram p_o_histogram){
+		this.c_o_histogram = p_o_histogram;
+		this.c_l_start = System.nanoTime();
+	}
+
+	/** Start a stopwatch which records nothing, read it by {@link #getElapsedNanos()} */
+	public static Stopwatch start(){
+		return new Stopwatch(null);
+	}
+
+	/** Nanoseconds since started, or until stopped */
+	public long getElapsedNanos(){
+		return c_l_elapsed>=0? c_l_elapsed : System.nanoTime() - c_l_start;
+	}
+
+	/**
+	 * Stop and record the elapsed time, only the first call records.
+	 * @return elapsed nanoseconds
+	 */
+	public long stop(){
+		if (c_l_elapsed < 0) {
+			c_l_elapsed = System.nanoTime() - c_l_start;
+			if (c_o_histogram != null)
+				c_o_histogram.record(c_l_elapsed);
+		}
+		return c_l_elapsed;
+	}
+
+	/** Same as {@link #stop()} */
+	@Override
+	public void close() {
+		this.stop();
+	}
+}
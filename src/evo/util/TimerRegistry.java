@@ -0,0 +1,138 @@
+package evo.util;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe registry of named timers, each timer is a {@link Histogram} of nanoseconds.<br/>
+ * Timers are created on first use, recording is lock-free, and all timers can be dumped on demand or periodically.
+ * @usage
+ * <PRE>
+ * {@code
+ * TimerRegistry timers = TimerRegistry.getDefault();
+ * try (Stopwatch watch = timers.start("encode")) {
+ * 	bytes = packet.toByteArray();
+ * }
+ * timers.scheduleDump(1, TimeUnit.MINUTES, System.out);	// interval p50/p99/p999/max of every timer
+ * }
+ * </PRE>
+ */
+public class TimerRegistry {
+
+	private static final TimerRegistry DEFAULT = new TimerRegistry();
+	/** Single daemon thread running the dumps of all registries */
+	private static volatile ScheduledExecutorService c_o_scheduler;
+
+	private final ConcurrentMap<String, Histogram> cm_o_timers = new ConcurrentHashMap<String, Histogram>();
+
+	/** The registry shared by the process */
+	public static TimerRegistry getDefault(){
+		return DEFAULT;
+	}
+
+//		Record		\\
+	/** The timer of the name, created if absent */
+	public Histogram timer(String p_s_name){
+		final Histogram r_o_timer = cm_o_timers.get(p_s_name);
+		if (r_o_timer != null)
+			return r_o_timer;
+		final Histogram l_o_new = new Histogram();
+		final Histogram l_o_exist = cm_o_timers.putIfAbsent(p_s_name, l_o_new);
+		return l_o_exist!=null? l_o_exist : l_o_new;
+	}
+
+	/** Start a stopwatch recording into the timer when it is closed */
+	public Stopwatch start(String p_s_name){
+		return new Stopwatch(this.timer(p_s_name));
+	}
+
+	/** Record a measured time into the timer */
+	public void record(String p_s_name, long p_l_nanos){
+		this.timer(p_s_name).record(p_l_nanos);
+	}
+
+	/** Remove all timers */
+	public void clear(){
+		cm_o_timers.clear();
+	}
+
+//		Dump		\\
+	/**
+	 * One line per timer in microseconds, sorted by name
+	 * <PRE>
+	 * name count=... mean=...us p50=...us p99=...us p999=...us max=...us
+	 * </PRE>
+	 */
+	public String dump(){
+		return dump(new TreeMap<String, Histogram>(cm_o_timers));
+	}
+
+	/** Same as {@link #dump()} but the timers are reset, so the next dump covers the next interval only. */
+	public String dumpAndReset(){
+		final Map<String, Histogram> lm_o_interval = new TreeMap<String, Histogram>();
+		for (Map.Entry<String, Histogram> l_o_timer : cm_o_timers.entrySet())
+			lm_o_interval.put(l_o_timer.getKey(), l_o_timer.getValue().snapshotAndReset());
+		return dump(lm_o_interval);
+	}
+
+	/**
+	 * Print {@link #dumpAndReset()} periodically from a daemon thread, timers without records in the interval are skipped.
+	 * @return cancel it to stop dumping
+	 */
+	public ScheduledFuture<?> scheduleDump(long p_l_period, TimeUnit p_o_unit, final PrintStream p_o_out){
+		return scheduler().scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				final String l_s_dump = TimerRegistry.this.dumpAndReset();
+				if (l_s_dump.length() > 0)
+					p_o_out.print(l_s_dump);
+			}
+		}, p_l_period, p_l_period, p_o_unit);
+	}
+
+	private static String dump(Map<String, Histogram> pm_o_timers){
+		final StringBuilder r_o_out = new StringBuilder();
+		for (Map.Entry<String, Histogram> l_o_timer : pm_o_timers.entrySet()) {
+			final Histogram l_o_hist = l_o_timer.getValue();
+			if (l_o_hist.getCount() == 0)
+				continue;
+			r_o_out.append(String.format("%s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+					l_o_timer.getKey(), l_o_hist.getCount(), l_o_hist.getMean() / 1000,
+					l_o_hist.getValueAtPercentile(50) / 1000d, l_o_hist.getValueAtPercentile(99) / 1000d,
+					l_o_hist.getValueAtPercentile(99.9) / 1000d, l_o_hist.getMax() / 1000d));
+		}
+		return r_o_out.toString();
+	}
+
+	private static ScheduledExecutorService scheduler(){
+		ScheduledExecutorService r_o_scheduler = c_o_scheduler;
+		if (r_o_scheduler == null) {
+			synchronized (TimerRegistry.class) {
+				r_o_scheduler = c_o_scheduler;
+				if (r_o_scheduler == null)
+					c_o_scheduler = r_o_scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable p_o_task) {
+							final Thread r_o_thread = new Thread(p_o_task, "TimerRegistry-dump");
+							r_o_thread.setDaemon(true);
+							return r_o_thread;
+						}
+					});
+			}
+		}
+		return r_o_scheduler;
+	}
+
+	@Override
+	public String toString() {
+		return this.dump();
+	}
+}